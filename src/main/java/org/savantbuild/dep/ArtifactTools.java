@@ -18,11 +18,19 @@ package org.savantbuild.dep;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -46,6 +54,18 @@ import org.xml.sax.helpers.DefaultHandler;
  * @author Brian Pontarelli
  */
 public class ArtifactTools {
+  /**
+   * The version of the binary ArtifactMetaData format. Binary files with a different version are ignored.
+   */
+  public static final int BinaryMetaDataVersion = 1;
+
+  /**
+   * The extension of the binary ArtifactMetaData files that are stored next to the AMD or POM files they were built from.
+   */
+  public static final String BinaryMetaDataExtension = ".bin";
+
+  private static final int BinaryMetaDataMagic = 0x53414D44; // SAMD
+
   /**
    * Maven version error.
    */
@@ -181,6 +201,123 @@ public class ArtifactTools {
     return new ArtifactMetaData(handler.dependencies, handler.licenses);
   }
 
+  /**
+   * Reads the binary ArtifactMetaData that was written next to the given AMD or POM file by
+   * {@link #writeBinaryMetaData(ArtifactMetaData, Path, String)}. The binary file is only used if it was written for the
+   * current size and modification time of the source file and the same semantic version mappings.
+   *
+   * @param source              The AMD or POM file.
+   * @param mappingsFingerprint The fingerprint of the semantic version mappings used to build the meta-data.
+   * @return The meta-data or null if the binary file is missing, stale or invalid.
+   */
+  public static ArtifactMetaData readBinaryMetaData(Path source, String mappingsFingerprint) {
+    Path file = source.resolveSibling(source.getFileName() + BinaryMetaDataExtension);
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != BinaryMetaDataMagic || in.readInt() != BinaryMetaDataVersion ||
+          in.readLong() != Files.size(source) || in.readLong() != Files.getLastModifiedTime(source).toMillis() ||
+          !mappingsFingerprint.equals(readString(in))) {
+        return null;
+      }
+
+      int licenseCount = in.readInt();
+      List<License> licenses = new ArrayList<>(licenseCount);
+      for (int i = 0; i < licenseCount; i++) {
+        licenses.add(License.parse(readString(in), readNullableString(in)));
+      }
+
+      Dependencies dependencies = null;
+      if (in.readBoolean()) {
+        dependencies = new Dependencies();
+        int groupCount = in.readInt();
+        for (int i = 0; i < groupCount; i++) {
+          String name = readString(in);
+          boolean export = in.readBoolean();
+          DependencyGroup group = new DependencyGroup(name, export);
+          int artifactCount = in.readInt();
+          for (int j = 0; j < artifactCount; j++) {
+            ArtifactID id = readArtifactID(in);
+            Version version = new Version(readString(in));
+            String nonSemanticVersion = readNullableString(in);
+            boolean skipCompatibilityCheck = in.readBoolean();
+            int exclusionCount = in.readInt();
+            List<ArtifactID> exclusions = new ArrayList<>(exclusionCount);
+            for (int k = 0; k < exclusionCount; k++) {
+              exclusions.add(readArtifactID(in));
+            }
+
+            group.dependencies.add(new Artifact(id, version, nonSemanticVersion, skipCompatibilityCheck, exclusions));
+          }
+
+          dependencies.groups.put(name, group);
+        }
+      }
+
+      return new ArtifactMetaData(dependencies, licenses);
+    } catch (IOException | RuntimeException e) {
+      // Missing, truncated, corrupt or otherwise unusable, so the caller falls back to the AMD or POM
+      return null;
+    }
+  }
+
+  /**
+   * Writes the ArtifactMetaData in the compact binary format next to the AMD or POM file it was built from. The file is
+   * written to a temporary file and moved into place so that concurrent builds never read a partial file.
+   *
+   * @param artifactMetaData    The meta-data.
+   * @param source              The AMD or POM file.
+   * @param mappingsFingerprint The fingerprint of the semantic version mappings used to build the meta-data.
+   * @throws IOException If the file could not be written.
+   */
+  public static void writeBinaryMetaData(ArtifactMetaData artifactMetaData, Path source, String mappingsFingerprint)
+      throws IOException {
+    Path file = source.resolveSibling(source.getFileName() + BinaryMetaDataExtension);
+    Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        out.writeInt(BinaryMetaDataMagic);
+        out.writeInt(BinaryMetaDataVersion);
+        out.writeLong(Files.size(source));
+        out.writeLong(Files.getLastModifiedTime(source).toMillis());
+        writeString(out, mappingsFingerprint);
+
+        out.writeInt(artifactMetaData.licenses.size());
+        for (License license : artifactMetaData.licenses) {
+          writeString(out, license.exception != null ? license.identifier + " WITH " + license.exception.identifier : license.identifier);
+          writeNullableString(out, license.customText ? license.text : null);
+        }
+
+        Dependencies dependencies = artifactMetaData.dependencies;
+        out.writeBoolean(dependencies != null);
+        if (dependencies != null) {
+          out.writeInt(dependencies.groups.size());
+          for (DependencyGroup group : dependencies.groups.values()) {
+            writeString(out, group.name);
+            out.writeBoolean(group.export);
+            out.writeInt(group.dependencies.size());
+            for (Artifact dependency : group.dependencies) {
+              writeArtifactID(out, dependency.id);
+              writeString(out, dependency.version.toString());
+              writeNullableString(out, dependency.nonSemanticVersion);
+              out.writeBoolean(dependency.skipCompatibilityCheck);
+              out.writeInt(dependency.exclusions.size());
+              for (ArtifactID exclusion : dependency.exclusions) {
+                writeArtifactID(out, exclusion);
+              }
+            }
+          }
+        }
+      }
+
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
   private static void print(PrintWriter writer, String message, Object... args) {
     for (int i = 0; i < args.length; i++) {
       args[i] = args[i].toString().replace("\"", "&quot;");
@@ -189,6 +326,41 @@ public class ArtifactTools {
     writer.printf(message, args);
   }
 
+  private static ArtifactID readArtifactID(DataInputStream in) throws IOException {
+    return new ArtifactID(readString(in), readString(in), readString(in), readString(in));
+  }
+
+  private static String readNullableString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? readString(in) : null;
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    byte[] bytes = new byte[in.readInt()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeArtifactID(DataOutputStream out, ArtifactID id) throws IOException {
+    writeString(out, id.group);
+    writeString(out, id.project);
+    writeString(out, id.name);
+    writeString(out, id.type);
+  }
+
+  private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      writeString(out, value);
+    }
+  }
+
+  // Strings are length prefixed rather than written with writeUTF because license texts can be longer than 64K
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
   public static class ArtifactMetaDataHandler extends DefaultHandler {
     public final List<ArtifactID> exclusions = new ArrayList<>();
 
@@ -15,19 +15,30 @@
  */
 package org.savantbuild.dep;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.savantbuild.dep.DependencyService.TraversalRules.GroupTraversalRule;
 import org.savantbuild.dep.domain.Artifact;
@@ -57,6 +68,7 @@ import org.savantbuild.security.MD5;
 import org.savantbuild.security.MD5Exception;
 import org.savantbuild.util.CyclicException;
 import org.savantbuild.util.Graph.Edge;
+import org.savantbuild.util.Graph.EdgeFilter.SingleTraversalEdgeFilter;
 
 import static java.util.Arrays.asList;
 
@@ -80,10 +92,147 @@ public class DefaultDependencyService implements DependencyService {
       throws ArtifactMetaDataMissingException, ProcessFailureException, MD5Exception {
     output.debugln("Building DependencyGraph with a root of [%s]", project);
     DependencyGraph graph = new DependencyGraph(project);
-    populateGraph(graph, project, dependencies, workflow, new HashSet<>(), new LinkedList<>());
+    populateGraph(graph, project, dependencies, workflow::fetchMetaData, workflow.mappingsFingerprint(), new HashSet<>(),
+        new ExclusionIndex());
     return graph;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DependencyGraph buildGraph(ReifiedArtifact project, Dependencies dependencies, Workflow workflow, int parallelism)
+      throws ArtifactMetaDataMissingException, ProcessFailureException, MD5Exception {
+    if (parallelism < 2) {
+      return buildGraph(project, dependencies, workflow);
+    }
+
+    output.debugln("Building DependencyGraph with a root of [%s] and a parallelism of [%d]", project, parallelism);
+    Map<MetaDataKey, Future<ArtifactMetaData>> metaData = prefetchMetaData(dependencies, workflow, new Semaphore(parallelism));
+
+    // Populate the graph serially from the prefetched meta-data so that it is identical to the graph from a serial build
+    DependencyGraph graph = new DependencyGraph(project);
+    populateGraph(graph, project, dependencies, (dependency) -> {
+      Future<ArtifactMetaData> future = metaData.get(new MetaDataKey(dependency));
+      return future != null ? await(future, "ArtifactMetaData") : workflow.fetchMetaData(dependency);
+    }, workflow.mappingsFingerprint(), new HashSet<>(), new ExclusionIndex());
+    return graph;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ArtifactGraph buildReducedGraph(ReifiedArtifact project, Dependencies dependencies, Workflow workflow,
+                                         TraversalRules rules, Path lockFile)
+      throws ArtifactMetaDataMissingException, ProcessFailureException, MD5Exception, CompatibilityException, CyclicException {
+    boolean canLock = LockFileTools.canLock(project, dependencies);
+    String inputsHash = canLock ? LockFileTools.inputsHash(project, dependencies, workflow, rules) : null;
+    if (canLock) {
+      try {
+        ArtifactGraph locked = LockFileTools.read(lockFile, inputsHash, project);
+        if (locked != null) {
+          output.debugln("Loaded the reduced graph from the lockfile [%s]", lockFile);
+          return locked;
+        }
+
+        output.debugln("The lockfile [%s] is missing or stale", lockFile);
+      } catch (IOException e) {
+        output.debugln("Unable to read the lockfile [%s]. Rebuilding the graph. %s", lockFile, e.getMessage());
+      }
+    }
+
+    ArtifactGraph reduced = reduce(buildGraph(project, dependencies, workflow));
+    if (canLock && LockFileTools.canLock(reduced)) {
+      try {
+        LockFileTools.write(lockFile, inputsHash, reduced);
+      } catch (IOException e) {
+        // The lockfile is only an optimization, so the next build will just rebuild the graph
+        output.debugln("Unable to write the lockfile [%s]. %s", lockFile, e.getMessage());
+      }
+    }
+
+    return reduced;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public PrefetchResult prefetch(Collection<? extends Artifact> artifacts, Workflow workflow, boolean fetchSource,
+                                 int parallelism, PrefetchListener... listeners)
+      throws ArtifactMetaDataMissingException, ArtifactMissingException, ProcessFailureException, MD5Exception {
+    long start = System.nanoTime();
+    List<Artifact> unique = new ArrayList<>(new LinkedHashSet<>(artifacts));
+    output.debugln("Prefetching [%d] artifacts with a parallelism of [%d]", unique.size(), parallelism);
+
+    Semaphore permits = new Semaphore(Math.max(1, parallelism));
+    AtomicInteger completed = new AtomicInteger();
+    AtomicInteger sources = new AtomicInteger();
+    AtomicLong cachedBytes = new AtomicLong();
+    List<Future<Long>> futures = new ArrayList<>(unique.size());
+    for (Artifact artifact : unique) {
+      // The fetches block on the workflow's executor, but their downloads run on its download executor, so a bounded
+      // executor isn't starved
+      futures.add(fetchAsync(() -> CompletableFuture.supplyAsync(() -> {
+        // The meta-data is fetched first, just like a resolve, so that the AMD or POM is cached along with the artifact
+        workflow.fetchMetaData(artifact);
+        long size = size(workflow.fetchArtifact(artifact));
+        if (fetchSource) {
+          Path sourceFile = workflow.fetchSource(artifact);
+          if (sourceFile != null) {
+            sources.incrementAndGet();
+            size += size(sourceFile);
+          }
+        }
+
+        cachedBytes.addAndGet(size);
+        int count = completed.incrementAndGet();
+        for (PrefetchListener listener : listeners) {
+          listener.artifactPrefetched(artifact, size, count, unique.size());
+        }
+
+        return size;
+      }, workflow.executor), permits));
+    }
+
+    // Wait for all the fetches so that none are still running when the first failure is thrown
+    RuntimeException failure = null;
+    for (Future<Long> future : futures) {
+      try {
+        await(future, "artifact");
+      } catch (RuntimeException e) {
+        if (failure == null) {
+          failure = e;
+        }
+      }
+    }
+
+    if (failure != null) {
+      throw failure;
+    }
+
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    output.debugln("Prefetched [%d] artifacts and [%d] sources ([%d] bytes in the caches) in [%d] ms", unique.size(), sources.get(), cachedBytes.get(), elapsed);
+    return new PrefetchResult(unique.size(), sources.get(), cachedBytes.get(), elapsed);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public PrefetchResult prefetch(ResolvedArtifactGraph graph, Workflow workflow, boolean fetchSource, int parallelism,
+                                 PrefetchListener... listeners)
+      throws ArtifactMetaDataMissingException, ArtifactMissingException, ProcessFailureException, MD5Exception {
+    List<Artifact> artifacts = new ArrayList<>();
+    graph.traverse(graph.root, true, null, (origin, destination, group, depth, isLast) -> {
+      artifacts.add(destination);
+      return true;
+    });
+
+    return prefetch(artifacts, workflow, fetchSource, parallelism, listeners);
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -119,6 +268,52 @@ public class DefaultDependencyService implements DependencyService {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public DependencyGraph rebuildGraph(DependencyGraph previous, Dependencies dependencies, Workflow workflow)
+      throws ArtifactMetaDataMissingException, ProcessFailureException, MD5Exception {
+    ReifiedArtifact project = previous.root;
+    output.debugln("Rebuilding DependencyGraph with a root of [%s]", project);
+
+    // Report which root edges changed. Only these subtrees need new meta-data, the rest comes from the previous graph
+    Map<ArtifactID, Set<String>> previousEdges = new HashMap<>();
+    previous.traverse(new Dependency(project.id), false, null, (origin, destination, edge, depth, isLast) -> {
+      previousEdges.computeIfAbsent(destination.id, (id) -> new TreeSet<>())
+                   .add(describeRootEdge(edge.type, edge.dependencyVersion, edge.dependencyNonSemanticVersion));
+      return false;
+    });
+
+    Map<ArtifactID, Set<String>> newEdges = new HashMap<>();
+    dependencies.groups.forEach((type, group) -> group.dependencies.forEach((dependency) ->
+        newEdges.computeIfAbsent(dependency.id, (id) -> new TreeSet<>())
+                .add(describeRootEdge(type, dependency.version, dependency.nonSemanticVersion))
+    ));
+
+    previousEdges.forEach((id, edge) -> {
+      if (!newEdges.containsKey(id)) {
+        output.debugln("Removed root dependency [%s]", id);
+      } else if (!newEdges.get(id).equals(edge)) {
+        output.debugln("Changed root dependency [%s] from [%s] to [%s]", id, edge, newEdges.get(id));
+      }
+    });
+    newEdges.keySet().stream()
+                     .filter((id) -> !previousEdges.containsKey(id))
+                     .forEach((id) -> output.debugln("Added root dependency [%s]", id));
+
+    // Replay the population so that exclusions and the order the artifacts are recursed are identical to a full build.
+    // The meta-data of unchanged subtrees is already in the previous graph, so only the changed subtrees hit the workflow.
+    // Meta-data that was translated from a POM with different mappings isn't reused
+    String mappings = workflow.mappingsFingerprint();
+    DependencyGraph graph = new DependencyGraph(project);
+    populateGraph(graph, project, dependencies, (dependency) -> {
+      ArtifactMetaData amd = previous.getMetaData(dependency, mappings);
+      return amd != null ? amd : workflow.fetchMetaData(dependency);
+    }, mappings, new HashSet<>(), new ExclusionIndex());
+    return graph;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -126,40 +321,53 @@ public class DefaultDependencyService implements DependencyService {
   public ArtifactGraph reduce(DependencyGraph graph) throws CompatibilityException, CyclicException {
     output.debugln("Reducing DependencyGraph with a root of [%s]", graph.root);
 
-    // Traverse graph. At each node, if the node's parents haven't all been checked. Skip it.
-    // If the node's parents have all been checked, for each parent, get the version of the node for the version of the
-    // parent that was kept. Ensure all these versions are compatible. Select the highest one. Add that to the
-    // ArtifactGraph. Store the kept version. Continue.
+    // Index the reachable part of the graph once. Each edge is traversed a single time (which also detects cycles) and
+    // the children and the distinct parents of every node are recorded in traversal order.
+    Dependency rootNode = new Dependency(graph.root.id);
+    Map<Dependency, List<Dependency>> children = new HashMap<>();
+    Map<Dependency, Set<Dependency>> parents = new HashMap<>();
+    graph.traverse(rootNode, false, new SingleTraversalEdgeFilter<>(), (origin, destination, edgeValue, depth, isLast) -> {
+      if (parents.computeIfAbsent(destination, (key) -> new HashSet<>()).add(origin)) {
+        children.computeIfAbsent(origin, (key) -> new ArrayList<>()).add(destination);
+      }
 
+      return true;
+    });
+
+    // Process the nodes in topological order. A node is ready once all of its parents have been processed (kept or
+    // pruned), so the versions of its parents that were kept are known. Ready nodes are handled depth first to keep the
+    // order close to the traversal order.
     ArtifactGraph artifactGraph = new ArtifactGraph(graph.root);
     Map<ArtifactID, ReifiedArtifact> artifacts = new HashMap<>();
     artifacts.put(graph.root.id, graph.root);
 
-    Set<Dependency> seenAtLeastOnce = new HashSet<>();
-
-    graph.traverse(new Dependency(graph.root.id), false, null, (origin, destination, edgeValue, depth, isLast) -> {
-      List<Edge<Dependency, DependencyEdgeValue>> inboundEdges = graph.getInboundEdges(destination);
-      boolean alreadyCheckedAllParents = !inboundEdges.isEmpty() && inboundEdges.stream().allMatch((edge) -> artifacts.containsKey(edge.getOrigin().id));
-      if (alreadyCheckedAllParents) {
-        output.debugln("Already checked all parents so we know the versions of them at this point. Working on node [%s]", destination);
+    Map<Dependency, Integer> remainingParents = new HashMap<>();
+    parents.forEach((dependency, set) -> remainingParents.put(dependency, set.size()));
+
+    Deque<Dependency> ready = new ArrayDeque<>();
+    ready.push(rootNode);
+    int processed = 0;
+    while (!ready.isEmpty()) {
+      Dependency dependency = ready.pop();
+      if (dependency != rootNode) {
+        output.debugln("Checked all parents so we know the versions of them at this point. Working on node [%s]", dependency);
+        checkCompatibilityAndAddToGraph(graph, artifacts, dependency, graph.getInboundEdges(dependency), artifactGraph);
+      }
 
-        // Remove from seenAtLeastOnce
-        seenAtLeastOnce.remove(destination);
+      processed++;
 
-        return checkCompatibilityAndAddToGraph(graph, artifacts, destination, inboundEdges, artifactGraph);
-      } else {
-        output.debugln("Skipping dependency [%s] for now. Not all its parents have been checked", destination);
-        seenAtLeastOnce.add(destination);
+      List<Dependency> dependencyChildren = children.getOrDefault(dependency, List.of());
+      for (int i = dependencyChildren.size() - 1; i >= 0; i--) {
+        Dependency child = dependencyChildren.get(i);
+        if (remainingParents.merge(child, -1, Integer::sum) == 0) {
+          ready.push(child);
+        }
       }
+    }
 
-      return true; // Always continue traversal
-    });
-
-    // Go through the seenAtLeastOnce set and determine if we should add any of the nodes to the graph
-    seenAtLeastOnce.forEach((dependency) -> {
-      List<Edge<Dependency, DependencyEdgeValue>> inboundEdges = graph.getInboundEdges(dependency);
-      checkCompatibilityAndAddToGraph(graph, artifacts, dependency, inboundEdges, artifactGraph);
-    });
+    if (processed != remainingParents.size() + 1) {
+      throw new CyclicException("The DependencyGraph with a root of [" + graph.root + "] contains a cycle");
+    }
 
     return artifactGraph;
   }
@@ -182,25 +390,9 @@ public class DefaultDependencyService implements DependencyService {
     AtomicReference<GroupTraversalRule> rootTypeResolveConfiguration = new AtomicReference<>();
 
     graph.traverse(graph.root, false, null, (origin, destination, group, depth, isLast) -> {
-      // If we are at the root, check if the group is to be resolved. If we are below the root, then we need to ensure
-      // that the root was set up to fetch the group transitively
-      GroupTraversalRule groupTraversalRule;
-      if (origin.equals(graph.root)) {
-        groupTraversalRule = configuration.rules.get(group);
-        if (groupTraversalRule == null) {
-          return false;
-        }
-
-        rootTypeResolveConfiguration.set(groupTraversalRule);
-      } else {
-        groupTraversalRule = rootTypeResolveConfiguration.get();
-        if (!groupTraversalRule.transitiveGroups.isEmpty() && !groupTraversalRule.transitiveGroups.contains(group)) {
-          return false;
-        }
-      }
-
-      if (groupTraversalRule.disallowedLicenses.stream().anyMatch(destination.licenses::contains)) {
-        throw new LicenseException(destination);
+      GroupTraversalRule groupTraversalRule = traversalRule(graph, configuration, rootTypeResolveConfiguration, origin, destination, group);
+      if (groupTraversalRule == null) {
+        return false;
       }
 
       Path file = workflow.fetchArtifact(destination).toAbsolutePath();
@@ -226,33 +418,111 @@ public class DefaultDependencyService implements DependencyService {
     return resolvedGraph;
   }
 
-  private boolean checkCompatibilityAndAddToGraph(DependencyGraph graph, Map<ArtifactID, ReifiedArtifact> artifacts,
-                                                  Dependency destination, List<Edge<Dependency, DependencyEdgeValue>> inboundEdges,
-                                                  ArtifactGraph artifactGraph) {
-    List<Edge<Dependency, DependencyEdgeValue>> significantInbound =
-        inboundEdges.stream()
-                    .filter((edge) -> artifacts.containsKey(edge.getOrigin().id))
-                    .filter((edge) -> edge.getValue().dependentVersion.equals(artifacts.get(edge.getOrigin().id).version))
-                    .toList();
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public ResolvedArtifactGraph resolve(ArtifactGraph graph, Workflow workflow, TraversalRules configuration,
+                                       int parallelism, DependencyListener... listeners)
+      throws CyclicException, ArtifactMissingException, ProcessFailureException, MD5Exception, LicenseException {
+    if (parallelism < 2) {
+      return resolve(graph, workflow, configuration, listeners);
+    }
+
+    output.debugln("Resolving ArtifactGraph with a root of [%s] and a parallelism of [%d]", graph.root, parallelism);
+
+    // Apply the traversal rules and license checks first to determine what needs to be fetched. A license failure stops
+    // the traversal just like a serial resolve, but it is only thrown after the fetches that precede it
+    List<ResolveStep> steps = new ArrayList<>();
+    LicenseException licenseException = null;
+    AtomicReference<GroupTraversalRule> rootTypeResolveConfiguration = new AtomicReference<>();
+    try {
+      graph.traverse(graph.root, false, null, (origin, destination, group, depth, isLast) -> {
+        GroupTraversalRule groupTraversalRule = traversalRule(graph, configuration, rootTypeResolveConfiguration, origin, destination, group);
+        if (groupTraversalRule == null) {
+          return false;
+        }
 
+        steps.add(new ResolveStep(origin, destination, group, groupTraversalRule.fetchSource));
+        return groupTraversalRule.transitive;
+      });
+    } catch (LicenseException e) {
+      licenseException = e;
+    }
+
+    // Fetch each artifact and source once
+    Semaphore permits = new Semaphore(parallelism);
+    Map<ReifiedArtifact, Future<Path>> files = new HashMap<>();
+    Map<ReifiedArtifact, Future<Path>> sourceFiles = new HashMap<>();
+    for (ResolveStep step : steps) {
+      if (!files.containsKey(step.destination)) {
+        files.put(step.destination, fetchAsync(() -> workflow.fetchArtifactAsync(step.destination), permits));
+      }
+
+      if (step.fetchSource && !sourceFiles.containsKey(step.destination)) {
+        sourceFiles.put(step.destination, fetchAsync(() -> workflow.fetchSourceAsync(step.destination), permits));
+      }
+    }
+
+    // Build the graph and call the listeners in the traversal order
+    ResolvedArtifact root = new ResolvedArtifact(graph.root.id, graph.root.version, graph.root.licenses, null, null);
+    ResolvedArtifactGraph resolvedGraph = new ResolvedArtifactGraph(root);
+    Map<ReifiedArtifact, ResolvedArtifact> map = new HashMap<>();
+    map.put(graph.root, root);
+
+    for (ResolveStep step : steps) {
+      Path file = await(files.get(step.destination), "artifact").toAbsolutePath();
+      Path sourceFile = step.fetchSource ? await(sourceFiles.get(step.destination), "source") : null;
+
+      ResolvedArtifact resolvedArtifact = new ResolvedArtifact(step.destination.id, step.destination.version, step.destination.licenses, file, sourceFile);
+      resolvedGraph.addEdge(map.get(step.origin), resolvedArtifact, step.group);
+      map.put(step.destination, resolvedArtifact);
+
+      asList(listeners).forEach((listener) -> listener.artifactFetched(resolvedArtifact));
+    }
+
+    if (licenseException != null) {
+      throw licenseException;
+    }
+
+    return resolvedGraph;
+  }
+
+  private void checkCompatibilityAndAddToGraph(DependencyGraph graph, Map<ArtifactID, ReifiedArtifact> artifacts,
+                                               Dependency destination, List<Edge<Dependency, DependencyEdgeValue>> inboundEdges,
+                                               ArtifactGraph artifactGraph) {
     // This is the complex part, for each inbound edge, grab the one where the origin is the correct version (based
-    // on the versions we have already kept). Then for each of those, map to the dependency version (the version of
-    // the destination node). Then get the min and max.
-    Version min = significantInbound.stream()
-                                    .map(edge -> edge.getValue().dependencyVersion)
-                                    .min(Version::compareTo)
-                                    .orElse(null);
-    Version max = significantInbound.stream()
-                                    .map(edge -> edge.getValue().dependencyVersion)
-                                    .max(Version::compareTo)
-                                    .orElse(null);
+    // on the versions we have already kept). Then for each of those, take the dependency version (the version of
+    // the destination node) and track the min, the max and the first edge with the max version.
+    List<Edge<Dependency, DependencyEdgeValue>> significantInbound = new ArrayList<>(inboundEdges.size());
+    Version min = null;
+    Version max = null;
+    DependencyEdgeValue edgeValue = null;
+    for (Edge<Dependency, DependencyEdgeValue> edge : inboundEdges) {
+      ReifiedArtifact originArtifact = artifacts.get(edge.getOrigin().id);
+      if (originArtifact == null || !edge.getValue().dependentVersion.equals(originArtifact.version)) {
+        continue;
+      }
+
+      significantInbound.add(edge);
+
+      Version version = edge.getValue().dependencyVersion;
+      if (min == null || version.compareTo(min) < 0) {
+        min = version;
+      }
+
+      if (max == null || version.compareTo(max) > 0) {
+        max = version;
+        edgeValue = edge.getValue();
+      }
+    }
 
     output.debugln("Min [%s] and max [%s]", min, max);
 
     // This dependency is no longer used
     if (min == null) {
       output.debugln("NO LONGER USED");
-      return false;
+      return;
     }
 
     // Ensure min and max are compatible
@@ -261,22 +531,79 @@ public class DefaultDependencyService implements DependencyService {
       throw new CompatibilityException(graph, destination, min, max);
     }
 
-    //noinspection OptionalGetWithoutIsPresent
-    DependencyEdgeValue edgeValue = significantInbound.stream()
-                                                      .filter(edge -> edge.getValue().dependencyVersion.equals(max))
-                                                      .findFirst()
-                                                      .get()
-                                                      .getValue();
-
     // Build the artifact for this node, save it in the Map and put it in the ArtifactGraph
     ReifiedArtifact destinationArtifact = new ReifiedArtifact(destination.id, max, edgeValue.dependencyNonSemanticVersion, edgeValue.licenses);
     artifacts.put(destination.id, destinationArtifact);
 
-    significantInbound.forEach((edge) -> {
+    for (Edge<Dependency, DependencyEdgeValue> edge : significantInbound) {
       ReifiedArtifact originArtifact = artifacts.get(edge.getOrigin().id);
       artifactGraph.addEdge(originArtifact, destinationArtifact, edge.getValue().type);
-    });
-    return true;
+    }
+  }
+
+  /**
+   * Determines the traversal rule for an edge of the ArtifactGraph during a resolve. If the origin is the root, the rule
+   * is the one for the edge's group and it is stored in the reference for the edges below it. Otherwise, the root's rule
+   * must allow the group transitively.
+   *
+   * @return The rule or null if the edge should not be resolved.
+   * @throws LicenseException If the destination uses a license that the rule disallows.
+   */
+  private GroupTraversalRule traversalRule(ArtifactGraph graph, TraversalRules configuration,
+                                           AtomicReference<GroupTraversalRule> rootTypeResolveConfiguration,
+                                           ReifiedArtifact origin, ReifiedArtifact destination, String group) {
+    // If we are at the root, check if the group is to be resolved. If we are below the root, then we need to ensure
+    // that the root was set up to fetch the group transitively
+    GroupTraversalRule groupTraversalRule;
+    if (origin.equals(graph.root)) {
+      groupTraversalRule = configuration.rules.get(group);
+      if (groupTraversalRule == null) {
+        return null;
+      }
+
+      rootTypeResolveConfiguration.set(groupTraversalRule);
+    } else {
+      groupTraversalRule = rootTypeResolveConfiguration.get();
+      if (!groupTraversalRule.transitiveGroups.isEmpty() && !groupTraversalRule.transitiveGroups.contains(group)) {
+        return null;
+      }
+    }
+
+    if (groupTraversalRule.disallowedLicenses.stream().anyMatch(destination.licenses::contains)) {
+      throw new LicenseException(destination);
+    }
+
+    return groupTraversalRule;
+  }
+
+  private String describeRootEdge(String type, Version version, String nonSemanticVersion) {
+    return type + ":" + version + (nonSemanticVersion != null ? "(" + nonSemanticVersion + ")" : "");
+  }
+
+  /**
+   * Waits for a prefetched item and rethrows the original exception if the fetch failed.
+   *
+   * @param future The future of the fetch.
+   * @param what   A description of the item for error messages.
+   * @return The result of the fetch.
+   */
+  private <T> T await(Future<T> future, String what) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProcessFailureException("Interrupted while fetching the " + what, e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+
+      throw new ProcessFailureException("Unable to fetch the " + what, e.getCause());
+    }
   }
 
   /**
@@ -288,27 +615,27 @@ public class DefaultDependencyService implements DependencyService {
    * @param graph             The Graph to populate.
    * @param origin            The origin artifact that is dependent on the Dependencies given.
    * @param dependencies      The list of dependencies to extract the artifacts from.
-   * @param workflow          The workflow used to fetch the AMD files.
+   * @param metaDataLoader    The function used to fetch the AMD files.
+   * @param mappings          The fingerprint of the workflow's mappings that the meta-data is stored with.
    * @param artifactsRecursed The set of artifacts already resolved and recursed for.
    */
-  private void populateGraph(DependencyGraph graph, Artifact origin, Dependencies dependencies, Workflow workflow,
-                             Set<Artifact> artifactsRecursed, Deque<List<ArtifactID>> exclusions)
+  private void populateGraph(DependencyGraph graph, Artifact origin, Dependencies dependencies,
+                             Function<Artifact, ArtifactMetaData> metaDataLoader, String mappings,
+                             Set<Artifact> artifactsRecursed, ExclusionIndex exclusions)
       throws ArtifactMetaDataMissingException, ProcessFailureException, MD5Exception {
     dependencies.groups.forEach((type, group) -> {
       output.debugln("Loading dependency group [%s]", type);
 
       for (Artifact dependency : group.dependencies) {
-        boolean excluded = exclusions.stream()
-                                     .flatMap(Collection::stream)
-                                     .anyMatch(exclusion -> DependencyTools.matchesExclusion(dependency.id, exclusion));
-        if (excluded) {
+        if (exclusions.matches(dependency.id)) {
           output.debugln("Ignoring dependency [%s] because one of it's dependents excluded it", dependency);
           continue;
         }
 
         output.debugln("Loading dependency [%s] skipCompatibilityCheck=[%b]", dependency, dependency.skipCompatibilityCheck);
 
-        ArtifactMetaData amd = workflow.fetchMetaData(dependency);
+        ArtifactMetaData amd = metaDataLoader.apply(dependency);
+        graph.putMetaData(dependency, mappings, amd);
 
         // Create an edge using nodes so that we can be explicit
         DependencyEdgeValue edge = new DependencyEdgeValue(origin.version, origin.nonSemanticVersion, dependency.version, dependency.nonSemanticVersion, type, amd.licenses);
@@ -326,7 +653,7 @@ public class DefaultDependencyService implements DependencyService {
         // Recurse
         if (amd.dependencies != null) {
           exclusions.push(dependency.exclusions);
-          populateGraph(graph, dependency, amd.dependencies, workflow, artifactsRecursed, exclusions);
+          populateGraph(graph, dependency, amd.dependencies, metaDataLoader, mappings, artifactsRecursed, exclusions);
           exclusions.pop();
         }
 
@@ -336,6 +663,93 @@ public class DefaultDependencyService implements DependencyService {
     });
   }
 
+  /**
+   * Starts an asynchronous fetch on the workflow's executor once one of the permits is available. The permit is released
+   * when the fetch completes.
+   */
+  private <T> Future<T> fetchAsync(Supplier<CompletableFuture<T>> fetch, Semaphore permits) {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ProcessFailureException("Interrupted while waiting to start a fetch", e);
+    }
+
+    try {
+      return fetch.get().whenComplete((result, throwable) -> permits.release());
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Fetches the ArtifactMetaData for the dependencies one level of the graph at a time using the workflow's executor. This
+   * mirrors the exclusion handling of the graph population so that excluded artifacts aren't fetched. Failures are
+   * stored in the Futures and only surface if the graph population needs that meta-data, which keeps the exceptions
+   * identical to a serial build.
+   *
+   * @param dependencies The project's dependencies.
+   * @param workflow     The workflow used to fetch the AMD files.
+   * @param permits      Limits the number of fetches that run at the same time.
+   * @return The Futures of the fetches keyed by the artifact.
+   */
+  private Map<MetaDataKey, Future<ArtifactMetaData>> prefetchMetaData(Dependencies dependencies, Workflow workflow,
+                                                                      Semaphore permits) {
+    Map<MetaDataKey, Future<ArtifactMetaData>> metaData = new HashMap<>();
+    List<PrefetchNode> level = new ArrayList<>();
+    prefetchLevel(level, dependencies, List.of());
+
+    while (!level.isEmpty()) {
+      output.debugln("Prefetching [%d] AMD files", level.size());
+
+      List<PrefetchNode> submitted = new ArrayList<>();
+      for (PrefetchNode node : level) {
+        MetaDataKey key = new MetaDataKey(node.artifact);
+        if (!metaData.containsKey(key)) {
+          metaData.put(key, fetchAsync(() -> workflow.fetchMetaDataAsync(node.artifact), permits));
+          submitted.add(node);
+        }
+      }
+
+      List<PrefetchNode> nextLevel = new ArrayList<>();
+      for (PrefetchNode node : submitted) {
+        ArtifactMetaData amd;
+        try {
+          amd = metaData.get(new MetaDataKey(node.artifact)).get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new ProcessFailureException("Interrupted while fetching the ArtifactMetaData", e);
+        } catch (ExecutionException e) {
+          // The graph population will rethrow this if it needs the meta-data
+          continue;
+        }
+
+        if (amd.dependencies != null) {
+          List<List<ArtifactID>> exclusions = new ArrayList<>(node.exclusions);
+          exclusions.add(node.artifact.exclusions);
+          prefetchLevel(nextLevel, amd.dependencies, exclusions);
+        }
+      }
+
+      level = nextLevel;
+    }
+
+    return metaData;
+  }
+
+  private void prefetchLevel(List<PrefetchNode> level, Dependencies dependencies, List<List<ArtifactID>> exclusions) {
+    ExclusionIndex index = new ExclusionIndex();
+    exclusions.forEach(index::push);
+    dependencies.groups.forEach((type, group) -> {
+      for (Artifact dependency : group.dependencies) {
+        if (!index.matches(dependency.id)) {
+          level.add(new PrefetchNode(dependency, exclusions));
+        }
+      }
+    });
+  }
+
   /**
    * Publishes a single item for the given artifact.
    *
@@ -347,14 +761,58 @@ public class DefaultDependencyService implements DependencyService {
   private void publishItem(ResolvableItem item, Path file, PublishWorkflow workflow) throws IOException {
     // Publish the MD5
     MD5 md5 = MD5.forPath(file);
-    File tempFile = File.createTempFile("artifact-item", "md5");
-    tempFile.deleteOnExit();
-    Path md5File = tempFile.toPath();
-    MD5.writeMD5(md5, md5File);
     ResolvableItem md5Item = new ResolvableItem(item, item.item + ".md5");
-    workflow.publish(new FetchResult(md5File, ItemSource.SAVANT, md5Item));
+    Path md5File = createTempFile(workflow.stagingDirectory(md5Item, ItemSource.SAVANT), md5Item.item);
+    try {
+      MD5.writeMD5(md5, md5File);
+      workflow.publish(new FetchResult(md5File, ItemSource.SAVANT, md5Item, true));
+    } finally {
+      // The MD5 was moved into place unless the publish failed or a process copied it
+      try {
+        Files.deleteIfExists(md5File);
+      } catch (IOException e) {
+        // Smother since the MD5 was written to a temporary file
+      }
+    }
 
     // Now publish the item itself
     workflow.publish(new FetchResult(file, ItemSource.SAVANT, item));
   }
+
+  private static Path createTempFile(Path directory, String name) throws IOException {
+    if (directory != null) {
+      // The MD5 is written next to where it is published so that publishing it is a rename rather than a copy
+      try {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, name + "-", ".tmp");
+      } catch (IOException e) {
+        // The MD5 is written to the temporary directory and copied instead
+      }
+    }
+
+    return Files.createTempFile("artifact-item", "md5");
+  }
+
+  private static long size(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      // The size is only used for reporting
+      return 0;
+    }
+  }
+
+  /**
+   * The identity of an artifact's meta-data. Exclusions are not part of the identity because they don't change the
+   * AMD file.
+   */
+  private record MetaDataKey(ArtifactID id, Version version, String nonSemanticVersion) {
+    MetaDataKey(Artifact artifact) {
+      this(artifact.id, artifact.version, artifact.nonSemanticVersion);
+    }
+  }
+
+  private record ResolveStep(ReifiedArtifact origin, ReifiedArtifact destination, String group, boolean fetchSource) {}
+
+  private record PrefetchNode(Artifact artifact, List<List<ArtifactID>> exclusions) {}
 }
@@ -15,6 +15,7 @@
  */
 package org.savantbuild.dep;
 
+import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -22,6 +23,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.savantbuild.dep.domain.Artifact;
 import org.savantbuild.dep.domain.CompatibilityException;
 import org.savantbuild.dep.domain.Dependencies;
 import org.savantbuild.dep.domain.License;
@@ -66,6 +68,93 @@ public interface DependencyService {
   DependencyGraph buildGraph(ReifiedArtifact project, Dependencies dependencies, Workflow workflow)
       throws ArtifactMetaDataMissingException, ProcessFailureException, MD5Exception;
 
+  /**
+   * Builds a dependency graph for the given dependencies of the given project, fetching the AMD files for each level of
+   * the graph in parallel. The resulting graph is identical to the one produced by
+   * {@link #buildGraph(ReifiedArtifact, Dependencies, Workflow)}, including the edge values, the exclusions and the
+   * skip compatibility check flags. The fetches run on the workflow's executor.
+   *
+   * @param project      The artifact that represents the project.
+   * @param dependencies The declared dependencies of the project.
+   * @param workflow     The workflow to use for downloading and caching the AMD files.
+   * @param parallelism  The maximum number of AMD files that are fetched at the same time. Values less than 2 build the
+   *                     graph serially.
+   * @return The dependency graph.
+   * @throws ArtifactMetaDataMissingException If any artifacts AMD files could not be downloaded or found locally.
+   * @throws ProcessFailureException If a workflow process failed while fetching the meta-data.
+   * @throws MD5Exception If any MD5 files didn't match the AMD file when downloading.
+   */
+  DependencyGraph buildGraph(ReifiedArtifact project, Dependencies dependencies, Workflow workflow, int parallelism)
+      throws ArtifactMetaDataMissingException, ProcessFailureException, MD5Exception;
+
+  /**
+   * Builds and reduces the dependency graph using a lockfile. If the lockfile exists and was written for the same
+   * project, dependencies, semantic version mappings and traversal rules, the reduced graph is loaded from it and no
+   * AMD files are fetched. Otherwise, this builds the graph, reduces it and writes the lockfile for the next build.
+   * Graphs that contain integration builds are never locked. See {@link LockFileTools}.
+   *
+   * @param project      The artifact that represents the project.
+   * @param dependencies The declared dependencies of the project.
+   * @param workflow     The workflow to use for downloading and caching the AMD files.
+   * @param rules        The traversal rules that will be used to resolve the graph.
+   * @param lockFile     The lockfile.
+   * @return The reduced graph.
+   * @throws ArtifactMetaDataMissingException If any artifacts AMD files could not be downloaded or found locally.
+   * @throws ProcessFailureException If a workflow process failed while fetching the meta-data.
+   * @throws MD5Exception If any MD5 files didn't match the AMD file when downloading.
+   * @throws CompatibilityException If an dependency has incompatible versions.
+   * @throws CyclicException If the graph has a cycle in it.
+   */
+  ArtifactGraph buildReducedGraph(ReifiedArtifact project, Dependencies dependencies, Workflow workflow,
+                                  TraversalRules rules, Path lockFile)
+      throws ArtifactMetaDataMissingException, ProcessFailureException, MD5Exception, CompatibilityException, CyclicException;
+
+  /**
+   * Fetches the meta-data (AMD or POM), the file and optionally the source of each of the given artifacts with the
+   * workflow so that they are in its caches. This is used to warm the caches of a new machine (i.e. when building a CI
+   * agent image) from the artifacts of a previous build, which can come from a {@link ResolvedArtifactGraph} (see
+   * {@link #prefetch(ResolvedArtifactGraph, Workflow, boolean, int, PrefetchListener...)}), a lockfile (see
+   * {@link LockFileTools#artifacts(Path)}) or a list of artifact specifications. The artifacts are fetched on the
+   * workflow's executor and the listeners are called as each one completes. If any fetches fail, the exception of the
+   * first failure in the order of the artifacts is thrown after the other fetches complete.
+   * <p>
+   * Meta-data that is already in the workflow's {@link org.savantbuild.dep.workflow.MetaDataCache} isn't fetched again,
+   * so a new Workflow should be used to warm caches that don't have the AMD files yet.
+   *
+   * @param artifacts   The artifacts.
+   * @param workflow    The workflow used to fetch and cache the artifacts.
+   * @param fetchSource True to fetch the sources of the artifacts as well.
+   * @param parallelism The maximum number of artifacts that are fetched at the same time.
+   * @param listeners   Any listeners that want to receive the progress of the prefetch.
+   * @return The result.
+   * @throws ArtifactMetaDataMissingException If any artifacts AMD files could not be downloaded or found locally.
+   * @throws ArtifactMissingException If any of the artifacts are missing.
+   * @throws ProcessFailureException If a workflow process failed while fetching an artifact.
+   * @throws MD5Exception If an item's MD5 file did not match the item.
+   */
+  PrefetchResult prefetch(Collection<? extends Artifact> artifacts, Workflow workflow, boolean fetchSource, int parallelism,
+                          PrefetchListener... listeners)
+      throws ArtifactMetaDataMissingException, ArtifactMissingException, ProcessFailureException, MD5Exception;
+
+  /**
+   * Prefetches all the artifacts of a resolved graph except for its root (the project). See
+   * {@link #prefetch(Collection, Workflow, boolean, int, PrefetchListener...)}.
+   *
+   * @param graph       The resolved graph of a previous build.
+   * @param workflow    The workflow used to fetch and cache the artifacts.
+   * @param fetchSource True to fetch the sources of the artifacts as well.
+   * @param parallelism The maximum number of artifacts that are fetched at the same time.
+   * @param listeners   Any listeners that want to receive the progress of the prefetch.
+   * @return The result.
+   * @throws ArtifactMetaDataMissingException If any artifacts AMD files could not be downloaded or found locally.
+   * @throws ArtifactMissingException If any of the artifacts are missing.
+   * @throws ProcessFailureException If a workflow process failed while fetching an artifact.
+   * @throws MD5Exception If an item's MD5 file did not match the item.
+   */
+  PrefetchResult prefetch(ResolvedArtifactGraph graph, Workflow workflow, boolean fetchSource, int parallelism,
+                          PrefetchListener... listeners)
+      throws ArtifactMetaDataMissingException, ArtifactMissingException, ProcessFailureException, MD5Exception;
+
   /**
    * Publishes the given Publication (artifact, meta-data, source file, etc) with the given workflow.
    *
@@ -75,6 +164,25 @@ public interface DependencyService {
    */
   void publish(Publication publication, PublishWorkflow workflow) throws PublishException;
 
+  /**
+   * Rebuilds a dependency graph after the project's dependencies changed. The artifact versions that are still in the
+   * graph are populated from the meta-data the previous graph was built from, so only the subtrees of the dependencies
+   * that were added or changed fetch their AMD files. If the workflow's mappings changed, the meta-data that was
+   * translated from POMs is fetched again. The result is identical to calling
+   * {@link #buildGraph(ReifiedArtifact, Dependencies, Workflow)} with the new dependencies.
+   *
+   * @param previous     The graph from the previous build. Its root is the root of the new graph.
+   * @param dependencies The new dependencies of the project.
+   * @param workflow     The workflow to use for downloading and caching the AMD files that aren't in the previous
+   *                     graph.
+   * @return The new dependency graph.
+   * @throws ArtifactMetaDataMissingException If any artifacts AMD files could not be downloaded or found locally.
+   * @throws ProcessFailureException If a workflow process failed while fetching the meta-data.
+   * @throws MD5Exception If any MD5 files didn't match the AMD file when downloading.
+   */
+  DependencyGraph rebuildGraph(DependencyGraph previous, Dependencies dependencies, Workflow workflow)
+      throws ArtifactMetaDataMissingException, ProcessFailureException, MD5Exception;
+
   /**
    * Reduces the DependencyGraph by ensuring that each dependency only has one version. This also prunes unused
    * dependencies and ensures there are no compatibility issues in the graph.
@@ -104,6 +212,42 @@ public interface DependencyService {
   ResolvedArtifactGraph resolve(ArtifactGraph graph, Workflow workflow, TraversalRules rules, DependencyListener... listeners)
       throws CyclicException, ArtifactMissingException, ProcessFailureException, MD5Exception, LicenseException;
 
+  /**
+   * Resolves the graph by downloading the artifacts and their sources in parallel. The artifacts to fetch are determined
+   * by applying the traversal rules and license checks up front, then they are all fetched on the workflow's executor.
+   * The resulting graph is identical to the one produced by
+   * {@link #resolve(ArtifactGraph, Workflow, TraversalRules, DependencyListener...)}. The listeners are called in the
+   * same order as a serial resolve and, if any fetches fail, the exception of the first failure in that order is thrown.
+   *
+   * @param graph       The ArtifactGraph to resolve.
+   * @param workflow    The workflow used to resolve the artifacts.
+   * @param rules       The traversal rules that are applied while traversing the graph during the reduction.
+   * @param parallelism The maximum number of artifacts and sources that are fetched at the same time. Values less than
+   *                    2 resolve the graph serially.
+   * @param listeners   Any listeners that want to receive callbacks when artifacts are resolved.
+   * @return The resolved graph.
+   * @throws ProcessFailureException If a workflow process failed while fetching an artifact or its source.
+   * @throws ArtifactMissingException If any of the required artifacts are missing.
+   * @throws CyclicException If any of the artifact graph has any cycles in it.
+   * @throws MD5Exception If the item's MD5 file did not match the item.
+   * @throws LicenseException If an invalid license is encountered during the resolution process.
+   */
+  ResolvedArtifactGraph resolve(ArtifactGraph graph, Workflow workflow, TraversalRules rules, int parallelism,
+                                DependencyListener... listeners)
+      throws CyclicException, ArtifactMissingException, ProcessFailureException, MD5Exception, LicenseException;
+
+  /**
+   * The result of a prefetch.
+   *
+   * @param artifacts     The number of artifacts that were fetched.
+   * @param sources       The number of sources that were fetched. Sources that don't exist aren't counted.
+   * @param cachedBytes   The size of the artifacts and sources in the caches. This includes the files that were already
+   *                      cached, so it isn't the number of bytes that were downloaded.
+   * @param elapsedMillis The time that the prefetch took.
+   */
+  record PrefetchResult(int artifacts, int sources, long cachedBytes, long elapsedMillis) {
+  }
+
   /**
    * Controls how resolution functions for each dependency-group. This determines if sources are fetched or if
    * transitive dependencies are fetch.
@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.savantbuild.dep.domain.ArtifactID;
+
+/**
+ * An index of the exclusions that are active while traversing down a dependency graph. The exclusions of each artifact
+ * are pushed when the traversal descends into the artifact and popped when it returns.
+ * <p>
+ * The exclusions are stored in a tree keyed by group, project, name and type. Each level has the exact values plus a
+ * <code>*</code> branch for wildcards, so a match is at most sixteen hash lookups no matter how many exclusions are
+ * active and it doesn't allocate. Matching is identical to {@link DependencyTools#matchesExclusion(ArtifactID,
+ * ArtifactID)} against every active exclusion.
+ * <p>
+ * This class is not thread-safe.
+ *
+ * @author Brian Pontarelli
+ */
+public class ExclusionIndex {
+  private static final String Wildcard = "*";
+
+  private final Deque<List<ArtifactID>> pushed = new ArrayDeque<>();
+
+  private final Node root = new Node();
+
+  /**
+   * @return True if there are no active exclusions.
+   */
+  public boolean isEmpty() {
+    return root.size == 0;
+  }
+
+  /**
+   * Determines if any of the active exclusions match the given artifact ID.
+   *
+   * @param id The artifact ID.
+   * @return True if the artifact is excluded.
+   */
+  public boolean matches(ArtifactID id) {
+    if (root.size == 0) {
+      return false;
+    }
+
+    return matches(root, id, 0);
+  }
+
+  /**
+   * Removes the exclusions that were added by the last call to {@link #push(List)}.
+   */
+  public void pop() {
+    for (ArtifactID exclusion : pushed.pop()) {
+      remove(exclusion);
+    }
+  }
+
+  /**
+   * Adds the given exclusions. They are active until the matching call to {@link #pop()}.
+   *
+   * @param exclusions The exclusions.
+   */
+  public void push(List<ArtifactID> exclusions) {
+    pushed.push(exclusions);
+    for (ArtifactID exclusion : exclusions) {
+      Node node = root;
+      node.size++;
+      for (int level = 0; level < 4; level++) {
+        node = node.children.computeIfAbsent(field(exclusion, level), (key) -> new Node());
+        node.size++;
+      }
+    }
+  }
+
+  private static String field(ArtifactID id, int level) {
+    return switch (level) {
+      case 0 -> id.group;
+      case 1 -> id.project;
+      case 2 -> id.name;
+      default -> id.type;
+    };
+  }
+
+  private boolean matches(Node node, ArtifactID id, int level) {
+    if (level == 4) {
+      return true;
+    }
+
+    String value = field(id, level);
+    Node exact = node.children.get(value);
+    if (exact != null && matches(exact, id, level + 1)) {
+      return true;
+    }
+
+    Node wildcard = node.children.get(Wildcard);
+    return wildcard != null && wildcard != exact && matches(wildcard, id, level + 1);
+  }
+
+  private void remove(ArtifactID exclusion) {
+    Node node = root;
+    node.size--;
+    for (int level = 0; level < 4; level++) {
+      String key = field(exclusion, level);
+      Node child = node.children.get(key);
+      if (--child.size == 0) {
+        node.children.remove(key);
+        return;
+      }
+
+      node = child;
+    }
+  }
+
+  private static class Node {
+    final Map<String, Node> children = new HashMap<>(4);
+
+    int size;
+  }
+}
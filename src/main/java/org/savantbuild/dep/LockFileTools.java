@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.savantbuild.dep.DependencyService.TraversalRules;
+import org.savantbuild.dep.domain.Artifact;
+import org.savantbuild.dep.domain.ArtifactID;
+import org.savantbuild.dep.domain.Dependencies;
+import org.savantbuild.dep.domain.License;
+import org.savantbuild.dep.domain.ReifiedArtifact;
+import org.savantbuild.dep.graph.ArtifactGraph;
+import org.savantbuild.dep.workflow.Workflow;
+import org.savantbuild.domain.Version;
+import org.savantbuild.util.Graph.EdgeFilter.SingleTraversalEdgeFilter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Reads and writes lockfiles. A lockfile is a JSON snapshot of a reduced {@link ArtifactGraph} along with a hash of the
+ * inputs that produced it (the project, its dependencies, the semantic version mappings and the traversal rules) and a
+ * checksum of the graph itself. When the inputs haven't changed, the graph can be loaded from the lockfile instead of
+ * fetching every AMD file and reducing the graph again.
+ *
+ * @author Brian Pontarelli
+ */
+public final class LockFileTools {
+  /**
+   * The version of the lockfile format. Lockfiles with a different version are ignored.
+   */
+  public static final int FormatVersion = 1;
+
+  private static final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  private LockFileTools() {
+  }
+
+  /**
+   * Reads the artifacts from the lockfile regardless of the inputs it was written for. This is used to prefetch the
+   * artifacts of a project without building its graph (see
+   * {@link DependencyService#prefetch(java.util.Collection, Workflow, boolean, int, PrefetchListener...)}).
+   *
+   * @param file The lockfile.
+   * @return The artifacts, which are empty if the lockfile is missing or corrupt. The project isn't included.
+   * @throws IOException If the lockfile could not be read.
+   */
+  public static List<ReifiedArtifact> artifacts(Path file) throws IOException {
+    JsonNode graphNode = graphNode(file, null);
+    if (graphNode == null) {
+      return List.of();
+    }
+
+    try {
+      List<ReifiedArtifact> artifacts = new ArrayList<>();
+      for (JsonNode artifactNode : graphNode.path("artifacts")) {
+        artifacts.add(toArtifact(artifactNode));
+      }
+
+      return artifacts;
+    } catch (RuntimeException e) {
+      return List.of();
+    }
+  }
+
+  /**
+   * Determines if a lockfile can be used for the given project and dependencies. Integration builds change without
+   * their version changing, so graphs that contain them are never locked.
+   *
+   * @param project      The project.
+   * @param dependencies The project's dependencies.
+   * @return True if the dependencies can be locked.
+   */
+  public static boolean canLock(ReifiedArtifact project, Dependencies dependencies) {
+    if (project.isIntegrationBuild()) {
+      return false;
+    }
+
+    return dependencies.groups.values().stream()
+                              .flatMap((group) -> group.dependencies.stream())
+                              .noneMatch(Artifact::isIntegrationBuild);
+  }
+
+  /**
+   * Determines if the reduced graph can be written to a lockfile. See {@link #canLock(ReifiedArtifact, Dependencies)}.
+   *
+   * @param graph The reduced graph.
+   * @return True if none of the artifacts in the graph are integration builds.
+   */
+  public static boolean canLock(ArtifactGraph graph) {
+    return graph.values().stream().noneMatch(Artifact::isIntegrationBuild);
+  }
+
+  /**
+   * Calculates the hash of the inputs of a graph build and reduction. This covers everything that changes the reduced
+   * graph: the project, the dependency groups (in order), the artifacts including their non-semantic versions,
+   * exclusions and compatibility flags, the workflow's semantic version mappings and the traversal rules.
+   *
+   * @param project      The project.
+   * @param dependencies The project's dependencies.
+   * @param workflow     The workflow whose mappings are used to translate POMs.
+   * @param rules        The traversal rules.
+   * @return The SHA-256 hash of the inputs as a hex String.
+   */
+  public static String inputsHash(ReifiedArtifact project, Dependencies dependencies, Workflow workflow,
+                                  TraversalRules rules) {
+    StringBuilder build = new StringBuilder();
+    build.append("format:").append(FormatVersion).append('\n');
+    build.append("project:").append(project).append(':').append(project.nonSemanticVersion).append('\n');
+    dependencies.groups.values().forEach((group) -> {
+      build.append("group:").append(group.name).append(':').append(group.export).append('\n');
+      group.dependencies.forEach((artifact) -> {
+        build.append("  artifact:").append(artifact)
+             .append(':').append(artifact.nonSemanticVersion)
+             .append(':').append(artifact.skipCompatibilityCheck);
+        artifact.exclusions.forEach((exclusion) -> build.append(":exclude=").append(exclusion));
+        build.append('\n');
+      });
+    });
+
+    new TreeMap<>(workflow.mappings).forEach((key, value) -> build.append("mapping:").append(key).append('=').append(value).append('\n'));
+    new TreeMap<>(workflow.rangeMappings).forEach((key, value) -> build.append("rangeMapping:").append(key).append('=').append(value).append('\n'));
+
+    if (rules != null) {
+      new TreeMap<>(rules.rules).forEach((group, rule) -> {
+        build.append("rule:").append(group)
+             .append(':').append(rule.fetchSource)
+             .append(':').append(rule.transitive)
+             .append(':').append(new TreeSet<>(rule.transitiveGroups));
+        rule.disallowedLicenses.stream()
+                               .map(LockFileTools::licenseId)
+                               .sorted()
+                               .forEach((id) -> build.append(":disallow=").append(id));
+        build.append('\n');
+      });
+    }
+
+    return sha256(build.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Reads the reduced graph from the lockfile if the lockfile exists, was written for the given inputs and its checksum
+   * is valid.
+   *
+   * @param file       The lockfile.
+   * @param inputsHash The hash of the current inputs from {@link #inputsHash}.
+   * @param project    The project, which becomes the root of the graph.
+   * @return The graph or null if the lockfile is missing, stale or corrupt.
+   * @throws IOException If the lockfile could not be read.
+   */
+  public static ArtifactGraph read(Path file, String inputsHash, ReifiedArtifact project) throws IOException {
+    JsonNode graphNode = graphNode(file, inputsHash);
+    if (graphNode == null) {
+      return null;
+    }
+
+    try {
+      List<ReifiedArtifact> artifacts = new ArrayList<>();
+      artifacts.add(project);
+      for (JsonNode artifactNode : graphNode.path("artifacts")) {
+        artifacts.add(toArtifact(artifactNode));
+      }
+
+      ArtifactGraph graph = new ArtifactGraph(project);
+      for (JsonNode edgeNode : graphNode.path("edges")) {
+        ReifiedArtifact origin = artifacts.get(edgeNode.get("origin").asInt());
+        ReifiedArtifact destination = artifacts.get(edgeNode.get("destination").asInt());
+        graph.addEdge(origin, destination, edgeNode.get("type").asText());
+      }
+
+      return graph;
+    } catch (RuntimeException e) {
+      // The checksum matched but the contents are invalid (e.g. a license that no longer exists)
+      return null;
+    }
+  }
+
+  /**
+   * Writes the reduced graph to the lockfile. The file is written to a temporary file first and then moved into place so
+   * that a concurrent build never reads a partial lockfile.
+   *
+   * @param file       The lockfile.
+   * @param inputsHash The hash of the inputs from {@link #inputsHash}.
+   * @param graph      The reduced graph.
+   * @throws IOException If the lockfile could not be written.
+   */
+  public static void write(Path file, String inputsHash, ArtifactGraph graph) throws IOException {
+    Map<ReifiedArtifact, Integer> indexes = new HashMap<>();
+    indexes.put(graph.root, 0);
+
+    ObjectNode graphNode = objectMapper.createObjectNode();
+    ArrayNode artifactsNode = graphNode.putArray("artifacts");
+    ArrayNode edgesNode = graphNode.putArray("edges");
+    graph.traverse(graph.root, false, new SingleTraversalEdgeFilter<>(), (origin, destination, type, depth, isLast) -> {
+      Integer destinationIndex = indexes.get(destination);
+      if (destinationIndex == null) {
+        destinationIndex = indexes.size();
+        indexes.put(destination, destinationIndex);
+        artifactsNode.add(toJSON(destination));
+      }
+
+      edgesNode.addObject()
+               .put("origin", indexes.get(origin))
+               .put("destination", destinationIndex)
+               .put("type", type);
+      return true;
+    });
+
+    ObjectNode root = objectMapper.createObjectNode();
+    root.put("version", FormatVersion);
+    root.put("inputs", inputsHash);
+    root.put("checksum", sha256(objectMapper.writeValueAsBytes(graphNode)));
+    root.set("graph", graphNode);
+
+    Path parent = file.toAbsolutePath().getParent();
+    Files.createDirectories(parent);
+    Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+    try {
+      objectMapper.writeValue(temp.toFile(), root);
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Parses the lockfile and returns its graph if the format version and the checksum are valid and, if given, the inputs
+   * hash matches.
+   */
+  private static JsonNode graphNode(Path file, String inputsHash) throws IOException {
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+
+    JsonNode root;
+    try {
+      root = objectMapper.readTree(file.toFile());
+    } catch (IOException e) {
+      // A truncated or hand-edited lockfile is treated the same as a stale one
+      return null;
+    }
+
+    if (root == null || root.path("version").asInt() != FormatVersion || (inputsHash != null && !inputsHash.equals(root.path("inputs").asText()))) {
+      return null;
+    }
+
+    JsonNode graphNode = root.get("graph");
+    if (graphNode == null || !sha256(objectMapper.writeValueAsBytes(graphNode)).equals(root.path("checksum").asText())) {
+      return null;
+    }
+
+    return graphNode;
+  }
+
+  private static String licenseId(License license) {
+    return license.exception != null ? license.identifier + " WITH " + license.exception.identifier : license.identifier;
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static ReifiedArtifact toArtifact(JsonNode node) {
+    ArtifactID id = new ArtifactID(node.get("group").asText(), node.get("project").asText(), node.get("name").asText(), node.get("type").asText());
+    Version version = new Version(node.get("version").asText());
+    String nonSemanticVersion = node.hasNonNull("nonSemanticVersion") ? node.get("nonSemanticVersion").asText() : null;
+
+    List<License> licenses = new ArrayList<>();
+    for (JsonNode licenseNode : node.path("licenses")) {
+      String text = licenseNode.hasNonNull("text") ? licenseNode.get("text").asText() : null;
+      licenses.add(License.parse(licenseNode.get("id").asText(), text));
+    }
+
+    return new ReifiedArtifact(id, version, nonSemanticVersion, licenses);
+  }
+
+  private static ObjectNode toJSON(ReifiedArtifact artifact) {
+    ObjectNode node = objectMapper.createObjectNode();
+    node.put("group", artifact.id.group);
+    node.put("project", artifact.id.project);
+    node.put("name", artifact.id.name);
+    node.put("type", artifact.id.type);
+    node.put("version", artifact.version.toString());
+    if (artifact.nonSemanticVersion != null) {
+      node.put("nonSemanticVersion", artifact.nonSemanticVersion);
+    }
+
+    ArrayNode licensesNode = node.putArray("licenses");
+    artifact.licenses.forEach((license) -> {
+      ObjectNode licenseNode = licensesNode.addObject().put("id", licenseId(license));
+      if (license.customText) {
+        licenseNode.put("text", license.text);
+      }
+    });
+
+    return node;
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep;
+
+import org.savantbuild.dep.domain.Artifact;
+
+/**
+ * This interface is a listener that is notified of the progress of a
+ * {@link DependencyService#prefetch(java.util.Collection, org.savantbuild.dep.workflow.Workflow, boolean, int, PrefetchListener...) prefetch}.
+ * It is called from the threads of the workflow's executor as each artifact completes, so implementations must be
+ * thread safe.
+ *
+ * @author Brian Pontarelli
+ */
+public interface PrefetchListener {
+  /**
+   * Handle when an artifact (its meta-data, its file and optionally its source) is in the caches.
+   *
+   * @param artifact  The artifact.
+   * @param cachedBytes The size of the artifact's file and source in the caches, whether or not they were downloaded.
+   * @param completed   The number of artifacts that are done, including this one.
+   * @param total       The number of artifacts being prefetched.
+   */
+  void artifactPrefetched(Artifact artifact, long cachedBytes, int completed, int total);
+}
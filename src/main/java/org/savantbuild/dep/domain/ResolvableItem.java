@@ -17,6 +17,7 @@ package org.savantbuild.dep.domain;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * A resolvable item for an artifact. This might be the metadata, JAR, etc.
@@ -66,6 +67,25 @@ public class ResolvableItem {
     this.alternativeItems = Collections.emptyList();
   }
 
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+
+    final ResolvableItem that = (ResolvableItem) o;
+    return Objects.equals(group, that.group) && Objects.equals(project, that.project) && Objects.equals(name, that.name) &&
+        Objects.equals(version, that.version) && Objects.equals(item, that.item) && alternativeItems.equals(that.alternativeItems);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(group, project, name, version, item, alternativeItems);
+  }
+
   @Override
   public String toString() {
     return group + ":" + project + ":" + name + ":" + version + ":" + item;
@@ -16,8 +16,12 @@
 package org.savantbuild.dep.graph;
 
 import java.util.Formatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.savantbuild.dep.domain.Artifact;
 import org.savantbuild.dep.domain.ArtifactID;
+import org.savantbuild.dep.domain.ArtifactMetaData;
 import org.savantbuild.dep.domain.ReifiedArtifact;
 import org.savantbuild.dep.graph.DependencyGraph.Dependency;
 import org.savantbuild.util.Graph.EdgeFilter.SingleTraversalEdgeFilter;
@@ -25,12 +29,17 @@ import org.savantbuild.util.HashGraph;
 
 /**
  * This class is an artifact and dependency version of the Graph.
+ * <p>
+ * The graph also remembers the ArtifactMetaData that each artifact version was populated from. This isn't part of the
+ * graph's equality, it only allows the graph to be rebuilt incrementally without fetching the meta-data again.
  *
  * @author Brian Pontarelli
  */
 public class DependencyGraph extends HashGraph<Dependency, DependencyEdgeValue> {
   public final ReifiedArtifact root;
 
+  private final Map<String, ArtifactMetaData> metaData = new ConcurrentHashMap<>();
+
   public DependencyGraph(ReifiedArtifact root) {
     this.root = root;
   }
@@ -58,6 +67,30 @@ public class DependencyGraph extends HashGraph<Dependency, DependencyEdgeValue>
     return result;
   }
 
+  /**
+   * Returns the ArtifactMetaData that the given artifact version was populated from.
+   *
+   * @param artifact The artifact.
+   * @param mappings The fingerprint of the workflow mappings that the meta-data was translated with (see
+   *                 {@link org.savantbuild.dep.workflow.Workflow#mappingsFingerprint()}).
+   * @return The meta-data or null if this graph wasn't populated from this version of the artifact using the same
+   *     mappings.
+   */
+  public ArtifactMetaData getMetaData(Artifact artifact, String mappings) {
+    return metaData.get(metaDataKey(artifact, mappings));
+  }
+
+  /**
+   * Stores the ArtifactMetaData that the given artifact version was populated from.
+   *
+   * @param artifact The artifact.
+   * @param mappings The fingerprint of the workflow mappings that the meta-data was translated with.
+   * @param amd      The meta-data.
+   */
+  public void putMetaData(Artifact artifact, String mappings, ArtifactMetaData amd) {
+    metaData.put(metaDataKey(artifact, mappings), amd);
+  }
+
   public void skipCompatibilityCheck(ArtifactID id) {
     HashNode<Dependency, DependencyEdgeValue> node = getNode(new Dependency(id));
     node.value.skipCompatibilityCheck = true;
@@ -86,6 +119,10 @@ public class DependencyGraph extends HashGraph<Dependency, DependencyEdgeValue>
     return toDOT();
   }
 
+  private static String metaDataKey(Artifact artifact, String mappings) {
+    return artifact.id + ":" + artifact.version + ":" + artifact.nonSemanticVersion + "|" + mappings;
+  }
+
   /**
    * Traverses the dependency graph in a version consistent manner. This essentially guarantees that at any given node,
    * only the dependencies for the version of the current traversal are followed. For this graph:
@@ -18,12 +18,19 @@ package org.savantbuild.dep.workflow;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import org.savantbuild.dep.domain.ResolvableItem;
+import org.savantbuild.dep.workflow.process.CacheLocks;
+import org.savantbuild.dep.workflow.process.CacheProcess;
 import org.savantbuild.dep.workflow.process.FetchResult;
 import org.savantbuild.dep.workflow.process.Process;
 import org.savantbuild.dep.workflow.process.ProcessFailureException;
+import org.savantbuild.dep.workflow.process.URLProcess;
 import org.savantbuild.output.Output;
 import org.savantbuild.security.MD5Exception;
 
@@ -35,10 +42,22 @@ import org.savantbuild.security.MD5Exception;
 public class FetchWorkflow {
   public final List<Process> processes = new ArrayList<>();
 
+  /**
+   * The learned routes that determine which remote process is tried first or null to always use the configured order.
+   */
+  public final RoutingTable routing;
+
+  private final Map<ResolvableItem, CompletableFuture<FetchResult>> inFlight = new ConcurrentHashMap<>();
+
   private final Output output;
 
   public FetchWorkflow(Output output, Process... processes) {
+    this(output, null, processes);
+  }
+
+  public FetchWorkflow(Output output, RoutingTable routing, Process... processes) {
     this.output = output;
+    this.routing = routing;
     Collections.addAll(this.processes, processes);
   }
 
@@ -46,6 +65,12 @@ public class FetchWorkflow {
    * This loops over all the processes until the item is found or not. Each process must call to the PublishWorkflow if
    * it finds the artifact and the publish workflow must be able to return a File that can be used for future
    * reference.
+   * <p>
+   * If there is a learned route for the item's group, the remote process that served the group last is tried before
+   * the other remote processes. Local processes keep their positions, and the configured order is the fallback.
+   * <p>
+   * The local caches are checked first without any locks. If the item isn't there, the caches of the publish workflow
+   * are locked while the processes are tried, so that only one build downloads the item.
    *
    * @param item            The item being fetched. This item name should include the necessary information to locate
    *                        the item.
@@ -56,14 +81,154 @@ public class FetchWorkflow {
    */
   public FetchResult fetchItem(ResolvableItem item, PublishWorkflow publishWorkflow)
       throws ProcessFailureException, MD5Exception {
+    return fetchItem(item, publishWorkflow, WorkflowExecutors.shared());
+  }
+
+  /**
+   * Fetches the item like {@link #fetchItem(ResolvableItem, PublishWorkflow)} and passes the given executor to the
+   * processes for the work that they do in parallel.
+   *
+   * @param item            The item being fetched.
+   * @param publishWorkflow The PublishWorkflow that is used to store the item if it can be found.
+   * @param executor        The executor that the processes run their downloads on. It must be unbounded (i.e. virtual
+   *                        threads or a cached thread pool) because a download can wait for other downloads that it
+   *                        submits to the executor.
+   * @return A FetchResult that contains the item file and source, or null if the item was not found.
+   * @throws ProcessFailureException If any of the processes failed while attempting to fetch the artifact.
+   * @throws MD5Exception If the item's MD5 file did not match the item.
+   */
+  public FetchResult fetchItem(ResolvableItem item, PublishWorkflow publishWorkflow, Executor executor)
+      throws ProcessFailureException, MD5Exception {
+    // Parallel fetches of the same item wait for the fetch that is in flight rather than download and publish it again.
+    // Fetches of other items don't wait for each other
+    CompletableFuture<FetchResult> future = new CompletableFuture<>();
+    CompletableFuture<FetchResult> existing = inFlight.putIfAbsent(item, future);
+    if (existing != null) {
+      return await(existing);
+    }
+
+    try {
+      FetchResult result = fetch(item, publishWorkflow, executor);
+      future.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(item, future);
+    }
+  }
+
+  /**
+   * Runs {@link #fetchItem(ResolvableItem, PublishWorkflow)} on the given executor. The fetch blocks until its
+   * downloads finish, so the downloads run on the {@link WorkflowExecutors#shared() shared executor} rather than the
+   * given one, which might be bounded.
+   *
+   * @param item            The item being fetched.
+   * @param publishWorkflow The PublishWorkflow that is used to store the item if it can be found.
+   * @param executor        The executor that runs the fetch.
+   * @return A future that completes with the FetchResult (or null if the item was not found) or completes exceptionally
+   *     with the exception that the fetch threw.
+   */
+  public CompletableFuture<FetchResult> fetchItemAsync(ResolvableItem item, PublishWorkflow publishWorkflow,
+                                                       Executor executor) {
+    return CompletableFuture.supplyAsync(() -> fetchItem(item, publishWorkflow), executor);
+  }
+
+  private static FetchResult await(CompletableFuture<FetchResult> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      } else if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+
+      throw e;
+    }
+  }
+
+  private FetchResult fetch(ResolvableItem item, PublishWorkflow publishWorkflow, Executor executor) {
     output.debugln("\nFetching [" + item + "]");
-    return processes.stream()
-                    .map((process) -> {
-                      output.debugln(" * [" + process.getClass().getSimpleName() + ".fetch]");
-                      return process.fetch(item, publishWorkflow);
-                    })
-                    .filter(Objects::nonNull)
-                    .findFirst()
-                    .orElse(null);
+    List<Process> ordered = orderFor(item);
+
+    // Most items are already in the local caches, which don't need the locks
+    FetchResult result = fetch(item, publishWorkflow, executor, ordered, true);
+    if (result != null) {
+      return result;
+    }
+
+    List<CacheLocks.Lock> cacheLocks = new ArrayList<>();
+    try {
+      // Other builds that share the caches are coordinated with file locks. Only the caches that the item is published
+      // to are locked, so that the lock files are never created in caches that are only read from
+      for (Process process : publishWorkflow.getProcesses()) {
+        if (process instanceof CacheProcess cache) {
+          cacheLocks.add(cache.lock(item));
+        }
+      }
+
+      // Another build might have published the item while this one waited for the locks, so the local caches are
+      // checked again before the remote processes
+      return fetch(item, publishWorkflow, executor, ordered, false);
+    } finally {
+      for (int i = cacheLocks.size() - 1; i >= 0; i--) {
+        cacheLocks.get(i).close();
+      }
+    }
+  }
+
+  private FetchResult fetch(ResolvableItem item, PublishWorkflow publishWorkflow, Executor executor,
+                            List<Process> ordered, boolean localOnly) {
+    for (Process process : ordered) {
+      if (localOnly && !(process instanceof CacheProcess)) {
+        continue;
+      }
+
+      output.debugln(" * [" + process.getClass().getSimpleName() + ".fetch]");
+      FetchResult result = process.fetch(item, publishWorkflow, executor);
+      if (result != null) {
+        if (routing != null && process instanceof URLProcess) {
+          routing.record(item.group, process.toString());
+        }
+
+        return result;
+      }
+    }
+
+    return null;
+  }
+
+  private List<Process> orderFor(ResolvableItem item) {
+    String preferred = routing != null ? routing.lookup(item.group) : null;
+    if (preferred == null) {
+      return processes;
+    }
+
+    // Move the preferred remote process into the slot of the first remote process
+    int first = -1;
+    int index = -1;
+    for (int i = 0; i < processes.size(); i++) {
+      Process process = processes.get(i);
+      if (process instanceof URLProcess) {
+        if (first == -1) {
+          first = i;
+        }
+
+        if (index == -1 && preferred.equals(process.toString())) {
+          index = i;
+        }
+      }
+    }
+
+    if (index <= first) {
+      return processes;
+    }
+
+    List<Process> ordered = new ArrayList<>(processes);
+    ordered.add(first, ordered.remove(index));
+    output.debugln(" * Routing [" + item.group + "] to [" + preferred + "] first");
+    return ordered;
   }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Supplier;
+
+import org.savantbuild.dep.domain.Artifact;
+import org.savantbuild.dep.domain.ArtifactID;
+import org.savantbuild.dep.domain.ArtifactMetaData;
+import org.savantbuild.domain.Version;
+
+/**
+ * A bounded, thread-safe cache of parsed ArtifactMetaData. Entries are keyed by the artifact id, the semantic and
+ * non-semantic versions and a fingerprint of the semantic version mappings that were used to translate POMs. Concurrent
+ * loads of the same key are deduplicated so that only one thread parses the AMD or POM and the others wait for it.
+ * <p>
+ * Failed loads are not cached. When the cache is full, the oldest entries are evicted first.
+ *
+ * @author Brian Pontarelli
+ */
+public class MetaDataCache {
+  /**
+   * The default maximum number of entries.
+   */
+  public static final int DefaultMaximumSize = 10_000;
+
+  private static final MetaDataCache shared = new MetaDataCache(DefaultMaximumSize);
+
+  public final int maximumSize;
+
+  private final ConcurrentHashMap<Key, CompletableFuture<ArtifactMetaData>> entries = new ConcurrentHashMap<>();
+
+  private final Queue<Key> insertionOrder = new ConcurrentLinkedQueue<>();
+
+  public MetaDataCache(int maximumSize) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("The maximum size of the MetaDataCache must be positive");
+    }
+
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * @return The JVM-wide cache that Workflows can share to reuse parsed meta-data across builds.
+   */
+  public static MetaDataCache shared() {
+    return shared;
+  }
+
+  /**
+   * Removes all the entries.
+   */
+  public void clear() {
+    entries.clear();
+    insertionOrder.clear();
+  }
+
+  /**
+   * Returns the cached ArtifactMetaData for the artifact or loads it. If another thread is already loading the same key,
+   * this waits for that load instead of loading it again.
+   *
+   * @param artifact            The artifact.
+   * @param mappingsFingerprint The fingerprint of the semantic version mappings used to load the meta-data.
+   * @param loader              Loads the meta-data if it isn't cached.
+   * @return The meta-data.
+   */
+  public ArtifactMetaData get(Artifact artifact, String mappingsFingerprint, Supplier<ArtifactMetaData> loader) {
+    Key key = new Key(artifact.id, artifact.version, artifact.nonSemanticVersion, mappingsFingerprint);
+    CompletableFuture<ArtifactMetaData> existing = entries.get(key);
+    if (existing == null) {
+      CompletableFuture<ArtifactMetaData> future = new CompletableFuture<>();
+      existing = entries.putIfAbsent(key, future);
+      if (existing == null) {
+        return load(key, future, loader);
+      }
+    }
+
+    try {
+      return existing.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+
+      if (e.getCause() instanceof Error error) {
+        throw error;
+      }
+
+      throw e;
+    }
+  }
+
+  /**
+   * @return The number of entries, including loads that are in progress.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  private ArtifactMetaData load(Key key, CompletableFuture<ArtifactMetaData> future, Supplier<ArtifactMetaData> loader) {
+    ArtifactMetaData amd;
+    try {
+      amd = loader.get();
+    } catch (RuntimeException | Error e) {
+      // Don't cache failures, but hand the failure to any threads that are already waiting
+      entries.remove(key, future);
+      future.completeExceptionally(e);
+      throw e;
+    }
+
+    future.complete(amd);
+    insertionOrder.add(key);
+    while (entries.size() > maximumSize) {
+      Key eldest = insertionOrder.poll();
+      if (eldest == null) {
+        break;
+      }
+
+      entries.remove(eldest);
+    }
+
+    return amd;
+  }
+
+  private record Key(ArtifactID id, Version version, String nonSemanticVersion, String mappingsFingerprint) {
+  }
+}
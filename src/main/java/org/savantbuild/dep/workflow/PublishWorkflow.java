@@ -15,8 +15,8 @@
  */
 package org.savantbuild.dep.workflow;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -50,7 +50,26 @@ public class PublishWorkflow {
   }
 
   /**
-   * Publishes the item using the processes in this workflow.
+   * Determines if the given file is in a location that one of the processes in this workflow publishes to. Files that
+   * were fetched from other locations (i.e. read-only caches or temporary files) belong to someone else.
+   *
+   * @param file The file.
+   * @return True if one of the processes publishes to the location of the file.
+   */
+  public boolean owns(Path file) {
+    for (Process process : processes) {
+      if (process.owns(file)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Publishes the item using the processes in this workflow. If the file is {@link FetchResult#owned() owned}, the
+   * first process that publishes it can move the file into place. The remaining processes then publish from the copy
+   * of the process before them, which is {@link FetchResult#cached() cached} and can be linked rather than copied.
    *
    * @param fetchResult The fetch result containing the item, file, and source.
    * @return A file that can be used to reference the artifact for paths and other constructs.
@@ -58,41 +77,64 @@ public class PublishWorkflow {
    */
   public Path publish(FetchResult fetchResult) throws ProcessFailureException {
     Path result = null;
+    FetchResult current = fetchResult;
     for (Process process : processes) {
-      Path temp = process.publish(fetchResult);
+      Path temp = process.publish(current);
       if (result == null) {
         result = temp;
       }
+
+      if (temp != null) {
+        current = new FetchResult(temp, current.source(), current.item(), false, true);
+      }
+    }
+
+    // Clean up a staged download that a process copied rather than moved
+    if (fetchResult.owned() && result != null && !result.equals(fetchResult.file())) {
+      try {
+        Files.deleteIfExists(fetchResult.file());
+      } catch (IOException e) {
+        // Smother since the item was published
+      }
     }
 
     return result;
   }
 
+  /**
+   * Determines the directory where downloads of the item should be written so that they can be published without
+   * being copied. This is the staging directory of the first process that has one.
+   *
+   * @param item   The item being fetched.
+   * @param source The source that the item is being fetched from.
+   * @return The directory or null if none of the processes have a staging directory for the item.
+   */
+  public Path stagingDirectory(ResolvableItem item, ItemSource source) {
+    for (Process process : processes) {
+      Path directory = process.stagingDirectory(item, source);
+      if (directory != null) {
+        return directory;
+      }
+    }
+
+    return null;
+  }
+
   /**
    * Publishes a negative file for the item. This file is empty, but signals Savant not to attempt to fetch that
-   * specific item again, since it doesn't exist.
+   * specific item again, since it doesn't exist. Each process records the marker itself (see
+   * {@link Process#publishNegative(ResolvableItem, ItemSource)}).
    *
    * @param item   The item that the negative is being published for.
    * @param source The source to tag the negative marker with.
    */
   public void publishNegative(ResolvableItem item, ItemSource source) {
-    Path itemFile;
-    try {
-      File tempFile = File.createTempFile("savant-item", "neg");
-      tempFile.deleteOnExit();
-      itemFile = tempFile.toPath();
-    } catch (IOException e) {
-      // This is okay, because negatives are only for performance and if we can't create one, we'll just
-      // head out and try and fetch it again next time.
-      return;
-    }
-
     for (Process process : processes) {
       try {
-        ResolvableItem negItem = new ResolvableItem(item, item.item + ".neg");
-        process.publish(new FetchResult(itemFile, source, negItem));
+        process.publishNegative(item, source);
       } catch (ProcessFailureException e) {
-        // Continue since this is okay.
+        // This is okay, because negatives are only for performance and if we can't create one, we'll just
+        // head out and try and fetch it again next time.
       }
     }
   }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which remote process served the items of each group so that the {@link FetchWorkflow} can try that process
+ * first next time. Routes are only used for the exact group that was served. Other groups of the same organization are
+ * often published to different repositories, so they keep the configured order until they are served themselves.
+ * Processes are identified by their <code>toString</code>, which includes the repository URL.
+ * <p>
+ * If a file is given, the table is loaded from it and every change is written back to it, so the routes are kept across
+ * builds. The file is a properties file of group to process.
+ *
+ * @author Brian Pontarelli
+ */
+public class RoutingTable {
+  /**
+   * The properties file that the routes are persisted to or null if they are only kept in memory.
+   */
+  public final Path file;
+
+  private final Map<String, String> routes = new ConcurrentHashMap<>();
+
+  public RoutingTable(Path file) {
+    this.file = file;
+    if (file != null && Files.isRegularFile(file)) {
+      Properties properties = new Properties();
+      try (InputStream is = Files.newInputStream(file)) {
+        properties.load(is);
+        properties.stringPropertyNames().forEach((group) -> routes.put(group, properties.getProperty(group)));
+      } catch (IOException | IllegalArgumentException e) {
+        // A corrupt routing file only costs some extra requests, so start over
+        routes.clear();
+      }
+    }
+  }
+
+  /**
+   * Finds the process that most likely serves the given group.
+   *
+   * @param group The group of the item.
+   * @return The identifier of the process or null if there is no route for the group.
+   */
+  public String lookup(String group) {
+    return routes.get(group);
+  }
+
+  /**
+   * Records that the given process served an item of the given group.
+   *
+   * @param group   The group of the item.
+   * @param process The identifier of the process.
+   */
+  public void record(String group, String process) {
+    boolean changed = !process.equals(routes.put(group, process));
+    if (changed && file != null) {
+      save();
+    }
+  }
+
+  /**
+   * @return The number of routes.
+   */
+  public int size() {
+    return routes.size();
+  }
+
+  private synchronized void save() {
+    Properties properties = new Properties();
+    new TreeMap<>(routes).forEach(properties::setProperty);
+
+    try {
+      Path parent = file.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+      try {
+        try (OutputStream os = Files.newOutputStream(temp)) {
+          properties.store(os, "Savant repository routes");
+        }
+
+        try {
+          Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+          Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      // The routes are only an optimization, so they will be learned again next time
+    }
+  }
+}
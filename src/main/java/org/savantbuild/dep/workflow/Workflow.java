@@ -21,6 +21,11 @@ import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
 import org.savantbuild.dep.ArtifactTools;
 import org.savantbuild.dep.domain.Artifact;
@@ -41,26 +46,58 @@ import org.xml.sax.SAXException;
 
 /**
  * This class models a grouping of a fetch and publish workflow.
+ * <p>
+ * The fetch methods block the calling thread. The asynchronous variants run the same fetches on the Workflow's
+ * executor, which uses virtual threads when the JVM supports them (see {@link WorkflowExecutors}). The executor can be
+ * bounded (i.e. a fixed thread pool) to limit the number of fetches that are in flight. The processes run their
+ * downloads on the {@link #downloadExecutor} instead, because a fetch blocks until its downloads finish and would
+ * starve a bounded executor that it is running on.
+ * <p>
+ * Parsed ArtifactMetaData is kept in a {@link MetaDataCache}. By default, each Workflow has its own cache so that a
+ * build never sees meta-data from another build's repositories. Long-running processes that run many builds can pass
+ * {@link MetaDataCache#shared()} to reuse the parsed meta-data across Workflows. A null cache disables caching.
  *
  * @author Brian Pontarelli
  */
 public class Workflow {
+  /**
+   * The unbounded executor that the processes run their downloads on.
+   */
+  public final ExecutorService downloadExecutor = WorkflowExecutors.shared();
+
+  public final ExecutorService executor;
+
   public final FetchWorkflow fetchWorkflow;
 
   public final Map<String, Version> mappings = new HashMap<>();
 
+  public final MetaDataCache metaDataCache;
+
   public final Output output;
 
   public final PublishWorkflow publishWorkflow;
 
   public final Map<String, String> rangeMappings = new HashMap<>();
 
-  private final Map<String, POM> pomCache = new HashMap<>();
+  private final Set<String> missingSources = ConcurrentHashMap.newKeySet();
+
+  private final Map<String, POM> pomCache = new ConcurrentHashMap<>();
 
   public Workflow(FetchWorkflow fetchWorkflow, PublishWorkflow publishWorkflow, Output output) {
+    this(fetchWorkflow, publishWorkflow, output, WorkflowExecutors.shared());
+  }
+
+  public Workflow(FetchWorkflow fetchWorkflow, PublishWorkflow publishWorkflow, Output output, ExecutorService executor) {
+    this(fetchWorkflow, publishWorkflow, output, executor, new MetaDataCache(MetaDataCache.DefaultMaximumSize));
+  }
+
+  public Workflow(FetchWorkflow fetchWorkflow, PublishWorkflow publishWorkflow, Output output, ExecutorService executor,
+                  MetaDataCache metaDataCache) {
     this.fetchWorkflow = fetchWorkflow;
     this.publishWorkflow = publishWorkflow;
     this.output = output;
+    this.executor = executor;
+    this.metaDataCache = metaDataCache;
   }
 
   /**
@@ -80,13 +117,13 @@ public class Workflow {
     FetchResult result = null;
     if (artifact.nonSemanticVersion != null) {
       ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.nonSemanticVersion, artifact.getArtifactNonSemanticFile());
-      result = fetchWorkflow.fetchItem(item, publishWorkflow);
+      result = fetchWorkflow.fetchItem(item, publishWorkflow, downloadExecutor);
     }
 
     // Fall back to the semantic version
     if (result == null) {
       ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
-      result = fetchWorkflow.fetchItem(item, publishWorkflow);
+      result = fetchWorkflow.fetchItem(item, publishWorkflow, downloadExecutor);
     }
 
     if (result == null) {
@@ -96,10 +133,23 @@ public class Workflow {
     return result.file();
   }
 
+  /**
+   * Fetches the artifact on the Workflow's executor. See {@link #fetchArtifact(Artifact)}.
+   *
+   * @param artifact The artifact to fetch.
+   * @return A future that completes with the Path of the artifact or completes exceptionally with the exception that
+   *     {@link #fetchArtifact(Artifact)} throws.
+   */
+  public CompletableFuture<Path> fetchArtifactAsync(Artifact artifact) {
+    return CompletableFuture.supplyAsync(() -> fetchArtifact(artifact), executor);
+  }
+
   /**
    * Fetches the artifact metadata. Every artifact in Savant is required to have an AMD file. Otherwise, it is
    * considered a missing artifact entirely. Therefore, Savant never negative caches AMD files and this method will
    * always return an AMD file or throw an ArtifactMetaDataMissingException.
+   * <p>
+   * The parsed meta-data is cached in the Workflow's {@link MetaDataCache} unless the artifact is an integration build.
    *
    * @param artifact The artifact to fetch the metadata for.
    * @return The ArtifactMetaData object and never null.
@@ -109,63 +159,30 @@ public class Workflow {
    * @throws MD5Exception If the item's MD5 file did not match the item.
    */
   public ArtifactMetaData fetchMetaData(Artifact artifact) throws ArtifactMetaDataMissingException, ProcessFailureException, MD5Exception {
-    // Defined here in case an exception is thrown in the catch block below
-    ResolvableItem item = new ResolvableItem(
-        artifact.id.group, artifact.id.project, artifact.id.name,
-        artifact.version.toString(), artifact.getArtifactMetaDataFile(),
-        List.of(artifact.getArtifactPOMFile())
-    );
-
-    // Try the non-semantic version first since the POM lives under the real version directory on disk
-    // (AMD files don't exist under non-semantic version directories since AMD is a Savant concept)
-    try {
-      if (artifact.nonSemanticVersion != null) {
-        ResolvableItem nonSemanticItem = new ResolvableItem(
-            artifact.id.group, artifact.id.project, artifact.id.project,
-            artifact.nonSemanticVersion, artifact.getArtifactNonSemanticPOMFile()
-        );
-        FetchResult result = fetchWorkflow.fetchItem(nonSemanticItem, publishWorkflow);
-        if (result != null) {
-          try {
-            POM pom = loadPOM(artifact, result.file());
-            return translatePOM(pom);
-          } catch (Exception e) {
-            // POM processing failed (e.g. range dependencies without mappings, missing imports).
-            // Fall through to semantic AMD/POM lookup which may have an AMD file without these issues.
-            output.debugln("Non-semantic POM processing failed for [%s], falling back to semantic lookup: %s", artifact, e.getMessage());
-          }
-        }
-      }
-
-      // Fall back to semantic version — try AMD (primary) with POM as alternative
-      FetchResult result = fetchWorkflow.fetchItem(item, publishWorkflow);
-      if (result != null) {
-        if (result.item().item.endsWith(".amd")) {
-          return ArtifactTools.parseArtifactMetaData(result.file(), mappings);
-        } else {
-          // POM was found as alternative — process it through the POM pipeline
-          POM pom = loadPOM(artifact, result.file());
-          return translatePOM(pom);
-        }
-      }
+    // Integration builds change without their version changing, so they are always loaded
+    if (metaDataCache == null || artifact.isIntegrationBuild()) {
+      return loadMetaData(artifact);
+    }
 
-      // Neither AMD nor POM found — try loadPOM directly as last resort
-      POM pom = loadPOM(artifact);
-      if (pom != null) {
-        return translatePOM(pom);
-      }
+    return metaDataCache.get(artifact, mappingsFingerprint(), () -> loadMetaData(artifact));
+  }
 
-      throw new ArtifactMetaDataMissingException(artifact);
-    } catch (IllegalArgumentException | NullPointerException | SAXException | ParserConfigurationException |
-             IOException | VersionException e) {
-      throw new ProcessFailureException(item, e);
-    }
+  /**
+   * Fetches the artifact metadata on the Workflow's executor. See {@link #fetchMetaData(Artifact)}.
+   *
+   * @param artifact The artifact to fetch the metadata for.
+   * @return A future that completes with the ArtifactMetaData or completes exceptionally with the exception that
+   *     {@link #fetchMetaData(Artifact)} throws.
+   */
+  public CompletableFuture<ArtifactMetaData> fetchMetaDataAsync(Artifact artifact) {
+    return CompletableFuture.supplyAsync(() -> fetchMetaData(artifact), executor);
   }
 
   /**
    * Fetches the source of the artifact. If a source file is missing, this method stores a negative file in the cache so
    * that an attempt to download the source file isn't made each time. This is required so that offline work can be done
-   * by only hitting the local cache of dependencies.
+   * by only hitting the local cache of dependencies. Sources that are known to be missing are also remembered for the
+   * life of the Workflow, so later requests for them return immediately without touching the caches or the network.
    *
    * @param artifact The artifact to fetch the source for.
    * @return The Path of the source or null if it doesn't exist.
@@ -174,13 +191,19 @@ public class Workflow {
    * @throws MD5Exception If the item's MD5 file did not match the item.
    */
   public Path fetchSource(Artifact artifact) throws ProcessFailureException, MD5Exception {
+    // Integration builds can be republished with a source JAR, so they aren't remembered
+    String key = artifact.isIntegrationBuild() ? null : artifact.id + ":" + artifact.version + ":" + artifact.nonSemanticVersion;
+    if (key != null && missingSources.contains(key)) {
+      return null;
+    }
+
     try {
       // Try non-semantic version first (-sources.jar with original version) since it is the real version on disk
       FetchResult result = null;
       if (artifact.nonSemanticVersion != null) {
         ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name,
             artifact.nonSemanticVersion, artifact.getArtifactNonSemanticAlternativeSourceFile());
-        result = fetchWorkflow.fetchItem(item, publishWorkflow);
+        result = fetchWorkflow.fetchItem(item, publishWorkflow, downloadExecutor);
       }
 
       // Fall back to Savant-style source (-src.jar) with Maven-style alternative (-sources.jar)
@@ -190,7 +213,7 @@ public class Workflow {
             artifact.version.toString(), artifact.getArtifactSourceFile(),
             List.of(artifact.getArtifactAlternativeSourceFile())
         );
-        result = fetchWorkflow.fetchItem(item, publishWorkflow);
+        result = fetchWorkflow.fetchItem(item, publishWorkflow, downloadExecutor);
       }
 
       // Negative cache if not found
@@ -198,16 +221,111 @@ public class Workflow {
         ResolvableItem negItem = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name,
             artifact.version.toString(), artifact.getArtifactSourceFile());
         publishWorkflow.publishNegative(negItem, ItemSource.SAVANT);
+        rememberMissing(key);
       }
 
       return result != null ? result.file() : null;
     } catch (NegativeCacheException e) {
       // This is a short-circuit exit from the workflow. It is only thrown by the CacheProcess and indicates that the
       // search for the source JAR should stop immediately.
+      rememberMissing(key);
       return null;
     }
   }
 
+  /**
+   * Fetches the source of the artifact on the Workflow's executor. See {@link #fetchSource(Artifact)}.
+   *
+   * @param artifact The artifact to fetch the source for.
+   * @return A future that completes with the Path of the source (or null if it doesn't exist) or completes
+   *     exceptionally with the exception that {@link #fetchSource(Artifact)} throws.
+   */
+  public CompletableFuture<Path> fetchSourceAsync(Artifact artifact) {
+    return CompletableFuture.supplyAsync(() -> fetchSource(artifact), executor);
+  }
+
+  /**
+   * Returns a fingerprint of the semantic version mappings and the range mappings. Meta-data that was translated from a
+   * POM is only valid for the mappings it was translated with, so this is part of the keys that it is cached under.
+   *
+   * @return The fingerprint, which is empty if there are no mappings.
+   */
+  public String mappingsFingerprint() {
+    if (mappings.isEmpty() && rangeMappings.isEmpty()) {
+      return "";
+    }
+
+    return new TreeMap<>(mappings) + "|" + new TreeMap<>(rangeMappings);
+  }
+
+  private ArtifactMetaData loadMetaData(Artifact artifact) {
+    // Defined here in case an exception is thrown in the catch block below
+    ResolvableItem item = new ResolvableItem(
+        artifact.id.group, artifact.id.project, artifact.id.name,
+        artifact.version.toString(), artifact.getArtifactMetaDataFile(),
+        List.of(artifact.getArtifactPOMFile())
+    );
+
+    // Try the non-semantic version first since the POM lives under the real version directory on disk
+    // (AMD files don't exist under non-semantic version directories since AMD is a Savant concept)
+    try {
+      if (artifact.nonSemanticVersion != null) {
+        ResolvableItem nonSemanticItem = new ResolvableItem(
+            artifact.id.group, artifact.id.project, artifact.id.project,
+            artifact.nonSemanticVersion, artifact.getArtifactNonSemanticPOMFile()
+        );
+        FetchResult result = fetchWorkflow.fetchItem(nonSemanticItem, publishWorkflow, downloadExecutor);
+        if (result != null) {
+          try {
+            ArtifactMetaData amd = readBinaryMetaData(artifact, result.file());
+            if (amd == null) {
+              amd = translatePOM(loadPOM(artifact, result.file()));
+              writeBinaryMetaData(artifact, result.file(), amd);
+            }
+
+            return amd;
+          } catch (Exception e) {
+            // POM processing failed (e.g. range dependencies without mappings, missing imports).
+            // Fall through to semantic AMD/POM lookup which may have an AMD file without these issues.
+            output.debugln("Non-semantic POM processing failed for [%s], falling back to semantic lookup: %s", artifact, e.getMessage());
+          }
+        }
+      }
+
+      // Fall back to semantic version — try AMD (primary) with POM as alternative
+      FetchResult result = fetchWorkflow.fetchItem(item, publishWorkflow, downloadExecutor);
+      if (result != null) {
+        // The binary form is a lot faster to load than parsing the AMD or running the POM pipeline
+        ArtifactMetaData amd = readBinaryMetaData(artifact, result.file());
+        if (amd != null) {
+          return amd;
+        }
+
+        if (result.item().item.endsWith(".amd")) {
+          amd = ArtifactTools.parseArtifactMetaData(result.file(), mappings);
+        } else {
+          // POM was found as alternative — process it through the POM pipeline
+          POM pom = loadPOM(artifact, result.file());
+          amd = translatePOM(pom);
+        }
+
+        writeBinaryMetaData(artifact, result.file(), amd);
+        return amd;
+      }
+
+      // Neither AMD nor POM found — try loadPOM directly as last resort
+      POM pom = loadPOM(artifact);
+      if (pom != null) {
+        return translatePOM(pom);
+      }
+
+      throw new ArtifactMetaDataMissingException(artifact);
+    } catch (IllegalArgumentException | NullPointerException | SAXException | ParserConfigurationException |
+             IOException | VersionException e) {
+      throw new ProcessFailureException(item, e);
+    }
+  }
+
   private POM loadPOM(Artifact artifact) {
     String cacheKey = artifact.id.group + ":" + artifact.id.project + ":" + artifact.version;
     POM cached = pomCache.get(cacheKey);
@@ -242,13 +360,13 @@ public class Workflow {
     if (artifact.nonSemanticVersion != null) {
       output.debugln("[Looking for POM using non-semantic version]");
       ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.project, artifact.nonSemanticVersion, artifact.getArtifactNonSemanticPOMFile());
-      result = fetchWorkflow.fetchItem(item, publishWorkflow);
+      result = fetchWorkflow.fetchItem(item, publishWorkflow, downloadExecutor);
     }
 
     // Fall back to the semantic version
     if (result == null) {
       ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.project, artifact.version.toString(), artifact.getArtifactPOMFile());
-      result = fetchWorkflow.fetchItem(item, publishWorkflow);
+      result = fetchWorkflow.fetchItem(item, publishWorkflow, downloadExecutor);
     }
 
     return result != null ? result.file() : null;
@@ -300,7 +418,38 @@ public class Workflow {
     return pom;
   }
 
+  private ArtifactMetaData readBinaryMetaData(Artifact artifact, Path file) {
+    // Integration builds are overwritten in place, so they always use the AMD or POM
+    if (artifact.isIntegrationBuild()) {
+      return null;
+    }
+
+    return ArtifactTools.readBinaryMetaData(file, mappingsFingerprint());
+  }
+
+  private void rememberMissing(String key) {
+    if (key != null) {
+      missingSources.add(key);
+    }
+  }
+
   private ArtifactMetaData translatePOM(POM pom) {
     return new ArtifactMetaData(MavenTools.toSavantDependencies(pom, mappings), MavenTools.toSavantLicenses(pom));
   }
+
+  private void writeBinaryMetaData(Artifact artifact, Path file, ArtifactMetaData amd) {
+    // The binary form is only written into the caches that this workflow publishes to, never next to a read-only cache
+    // or a temporary download that wasn't published
+    if (artifact.isIntegrationBuild() || !publishWorkflow.owns(file)) {
+      return;
+    }
+
+    try {
+      ArtifactTools.writeBinaryMetaData(amd, file, mappingsFingerprint());
+    } catch (IOException e) {
+      // The binary form is only an optimization (and the directory might be read-only), so the next build will just
+      // parse the AMD or POM again
+      output.debugln("Unable to write the binary meta-data for [%s]. %s", file, e.getMessage());
+    }
+  }
 }
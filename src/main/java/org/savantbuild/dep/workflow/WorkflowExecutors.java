@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the executors that the {@link Workflow} uses to run fetches asynchronously. Fetches are blocking HTTP and disk
+ * calls, so when the JVM supports virtual threads (Java 21 and later) each fetch runs on its own virtual thread. Older
+ * JVMs fall back to a cached pool of daemon platform threads.
+ * <p>
+ * Savant still compiles against Java 17, which is why the virtual thread executor is looked up reflectively.
+ *
+ * @author Brian Pontarelli
+ */
+public final class WorkflowExecutors {
+  private static final Method VirtualThreadFactory = findVirtualThreadFactory();
+
+  private static volatile ExecutorService shared;
+
+  private WorkflowExecutors() {
+  }
+
+  /**
+   * Creates a new executor for fetches. This uses a virtual thread per task if the JVM supports it or a cached pool of
+   * daemon threads otherwise.
+   *
+   * @return The executor and never null.
+   */
+  public static ExecutorService newFetchExecutor() {
+    if (VirtualThreadFactory != null) {
+      try {
+        return (ExecutorService) VirtualThreadFactory.invoke(null);
+      } catch (ReflectiveOperationException e) {
+        // Fall through to platform threads
+      }
+    }
+
+    AtomicInteger count = new AtomicInteger();
+    return Executors.newCachedThreadPool((runnable) -> {
+      Thread thread = new Thread(runnable, "savant-fetch-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Returns the executor shared by all Workflows that weren't given an executor. It is created lazily and is never
+   * shut down, which is safe because it only uses daemon (or virtual) threads.
+   *
+   * @return The shared executor.
+   */
+  public static ExecutorService shared() {
+    ExecutorService result = shared;
+    if (result == null) {
+      synchronized (WorkflowExecutors.class) {
+        result = shared;
+        if (result == null) {
+          result = shared = newFetchExecutor();
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * @return True if the JVM supports virtual threads and {@link #newFetchExecutor()} uses them.
+   */
+  public static boolean virtualThreadsAvailable() {
+    return VirtualThreadFactory != null;
+  }
+
+  private static Method findVirtualThreadFactory() {
+    try {
+      return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+}
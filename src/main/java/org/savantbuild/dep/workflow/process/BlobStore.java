@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * A content-addressable store for the files in the local caches. Each file is stored once under the SHA-256 of its
+ * contents (<code>directory/ab/cdef...</code>) and the group/project/version paths of the caches are hard links to the
+ * blob. The same bytes that are published to several caches (i.e. the Savant and Maven caches or the integration
+ * directories) therefore only take up space once, and publishing a file that is already in the store only creates a
+ * link.
+ * <p>
+ * If a link can't be created (i.e. the cache is on a different file system than the store or the file system doesn't
+ * support hard links), the file is copied instead.
+ *
+ * @author Brian Pontarelli
+ */
+public class BlobStore {
+  /**
+   * The number of times that a blob is stored again when it was deleted before the target could be linked to it.
+   */
+  public static final int MaxAttempts = 3;
+
+  /**
+   * The directory that holds the blobs.
+   */
+  public final Path directory;
+
+  public BlobStore(Path directory) {
+    this.directory = Objects.requireNonNull(directory, "The directory is required");
+  }
+
+  /**
+   * Returns the location of the blob for the given hash. The blob might not exist.
+   *
+   * @param hash The SHA-256 of the contents as a hex string.
+   * @return The blob file.
+   */
+  public Path blob(String hash) {
+    return directory.resolve(hash.substring(0, 2)).resolve(hash.substring(2));
+  }
+
+  /**
+   * Calculates the SHA-256 of the given file.
+   *
+   * @param file The file.
+   * @return The hash as a hex string.
+   * @throws IOException If the file can't be read.
+   */
+  public static String hash(Path file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+
+    try (InputStream is = Files.newInputStream(file)) {
+      byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+
+    return HexFormat.of().formatHex(digest.digest());
+  }
+
+  /**
+   * Stores the contents of the source file in the store and links the target file to the blob. The target is replaced
+   * atomically if it exists.
+   * <p>
+   * The {@link CacheCollector} deletes blobs that nothing links to, so a blob can disappear before the target is linked
+   * to it. The source is therefore only deleted once the target is linked, and the blob is stored again from the source
+   * if it disappeared.
+   *
+   * @param source The file to store.
+   * @param target The location in the cache that is linked to the blob.
+   * @param owned  True if the source file belongs to the caller, in which case it is linked into the store (rather than
+   *               copied) when the blob doesn't exist yet and it is deleted once the target is linked.
+   * @throws IOException If the file couldn't be stored or linked.
+   */
+  public void store(Path source, Path target, boolean owned) throws IOException {
+    Path blob = blob(hash(source));
+    for (int attempt = 1; ; attempt++) {
+      if (!Files.isRegularFile(blob)) {
+        // Another build might store the same blob in the meantime, in which case the contents are identical
+        if (owned) {
+          CacheFiles.link(source, blob);
+        } else {
+          CacheFiles.copy(source, blob);
+        }
+      }
+
+      try {
+        CacheFiles.link(blob, target);
+        break;
+      } catch (NoSuchFileException e) {
+        if (attempt >= MaxAttempts) {
+          throw e;
+        }
+      }
+    }
+
+    if (owned) {
+      Files.deleteIfExists(source);
+    }
+  }
+}
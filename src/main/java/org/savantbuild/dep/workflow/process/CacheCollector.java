@@ -0,0 +1,399 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.savantbuild.dep.domain.Artifact;
+import org.savantbuild.dep.workflow.WorkflowExecutors;
+import org.savantbuild.output.Output;
+
+/**
+ * Evicts the least recently used artifacts from the local caches (the Savant cache, the integration directory and the
+ * Maven cache) until they fit in a size budget. The unit of eviction is a group/project/version directory, so an
+ * artifact, its MD5, its source JAR, its AMD file and its negative markers are always evicted together. Only the files
+ * that were scanned in the directory are deleted. A directory that has subdirectories (i.e. a group/project directory
+ * with Maven metadata files next to its version directories) is never evicted, so evicting a directory can't take the
+ * versions below it with it.
+ * <p>
+ * The last use of a directory is the latest modification time of its files or, if the cache has a {@link CacheIndex},
+ * the latest time the {@link CacheProcess} found one of its files in the index. Without the index, artifacts that are
+ * only ever read from the cache therefore age from when they were written. The directories of the pinned artifacts
+ * (i.e. the resolution set of the current build or a lock file) are never evicted. Once the caches are over the budget,
+ * every directory that was used less recently than the last directory that had to be evicted is evicted as well, which
+ * removes directories that only contain negative markers.
+ * <p>
+ * The size of the caches is the size of the files on disk. A file that is hard linked from several caches (i.e. by a
+ * {@link BlobStore}) is counted once and only counts as freed once all of its links are evicted. If there is a
+ * BlobStore, the blobs are counted as well, and a blob that was stored recently isn't counted as freed because it is
+ * kept.
+ * <p>
+ * The directories are deleted in parallel while holding the {@link CacheLocks} of their files, so that a build that is
+ * publishing one of the files doesn't race the deletion. Temporary files left behind by builds that were killed are
+ * always deleted and, if there is a {@link BlobStore}, blobs that are no longer linked from any cache are deleted
+ * afterward. Blobs that were stored recently are kept, since the build that stored them links them right after.
+ *
+ * @author Brian Pontarelli
+ */
+public class CacheCollector {
+  /**
+   * The age below which an unused blob is kept, because the build that stored it might not have linked it yet.
+   */
+  public static final long RecentBlobMillis = TimeUnit.MINUTES.toMillis(10);
+
+  /**
+   * The age after which a temporary file in the cache is assumed to belong to a build that was killed.
+   */
+  public static final long StaleTempMillis = TimeUnit.DAYS.toMillis(1);
+
+  /**
+   * The store that the caches are linked to or null if the files are stored directly.
+   */
+  public final BlobStore blobStore;
+
+  /**
+   * The size in bytes that the caches are reduced to.
+   */
+  public final long budget;
+
+  public final Output output;
+
+  public CacheCollector(Output output, long budget) {
+    this(output, budget, null);
+  }
+
+  public CacheCollector(Output output, long budget, BlobStore blobStore) {
+    if (budget < 0) {
+      throw new IllegalArgumentException("The budget must be zero or more bytes");
+    }
+
+    this.output = output;
+    this.budget = budget;
+    this.blobStore = blobStore;
+  }
+
+  /**
+   * Collects the given cache directories. The budget applies to all of the directories together.
+   *
+   * @param roots  The cache directories. Directories that don't exist are skipped.
+   * @param pinned The artifacts that must stay in the caches.
+   * @return The result.
+   * @throws IOException If a cache directory can't be read or a directory couldn't be deleted.
+   */
+  public Result collect(Collection<Path> roots, Collection<Artifact> pinned) throws IOException {
+    Set<String> pinnedDirectories = new HashSet<>();
+    for (Artifact artifact : pinned) {
+      String prefix = artifact.id.group.replace('.', '/') + "/" + artifact.id.project + "/";
+      pinnedDirectories.add(prefix + artifact.version);
+      if (artifact.nonSemanticVersion != null) {
+        pinnedDirectories.add(prefix + artifact.nonSemanticVersion);
+      }
+    }
+
+    // The files are counted by their file key, so the hard links to a file are only counted once
+    Map<Object, Inode> inodes = new HashMap<>();
+    List<Usage> usages = new ArrayList<>();
+    for (Path root : roots) {
+      if (Files.isDirectory(root)) {
+        usages.addAll(scan(root, inodes));
+      }
+    }
+
+    if (blobStore != null && Files.isDirectory(blobStore.directory)) {
+      scanBlobs(inodes);
+    }
+
+    long sizeBefore = inodes.values().stream().mapToLong((inode) -> inode.size).sum();
+    long size = inodes.values().stream().filter(Inode::retained).mapToLong((inode) -> inode.size).sum();
+    List<Usage> evict = new ArrayList<>();
+    usages.sort(Comparator.comparingLong(Usage::lastUsed));
+    for (Usage usage : usages) {
+      if (size <= budget) {
+        break;
+      }
+
+      if (usage.parent || pinnedDirectories.contains(usage.path)) {
+        continue;
+      }
+
+      evict.add(usage);
+      for (Inode inode : usage.inodes) {
+        inode.links--;
+        if (inode.links == 0 && !inode.recentBlob) {
+          size -= inode.size;
+        }
+      }
+    }
+
+    delete(evict);
+
+    if (blobStore != null && Files.isDirectory(blobStore.directory)) {
+      collectBlobs();
+    }
+
+    output.debugln("Evicted [%d] directories from the caches, which reduced them from [%d] to [%d] bytes", evict.size(), sizeBefore, size);
+    return new Result(sizeBefore, size, evict.size());
+  }
+
+  private void collectBlobs() throws IOException {
+    Files.walkFileTree(blobStore.directory, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+        if (isStaleTemp(file, attributes)) {
+          Files.deleteIfExists(file);
+          return FileVisitResult.CONTINUE;
+        }
+
+        // A blob that was just stored might not be linked from the cache yet
+        if (System.currentTimeMillis() - attributes.lastModifiedTime().toMillis() < RecentBlobMillis) {
+          return FileVisitResult.CONTINUE;
+        }
+
+        try {
+          // A blob that only has the link from the store isn't used by any cache
+          if (((Number) Files.getAttribute(file, "unix:nlink")).intValue() == 1) {
+            output.debugln("Deleting the unused blob [%s]", file);
+            Files.deleteIfExists(file);
+          }
+        } catch (UnsupportedOperationException | IllegalArgumentException e) {
+          // The file system doesn't report the number of links, so the blobs are kept
+          return FileVisitResult.TERMINATE;
+        }
+
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private void delete(List<Usage> evict) throws IOException {
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (Usage usage : evict) {
+      output.debugln("Evicting [%s] from the cache [%s]", usage.path, usage.root);
+      futures.add(CompletableFuture.runAsync(() -> {
+        // The files are locked in order, like the CacheProcess locks them, so that builds never wait on each other
+        CacheLocks cacheLocks = CacheLocks.forRoot(usage.root);
+        List<CacheLocks.Lock> locks = new ArrayList<>();
+        try {
+          Set<String> files = new TreeSet<>(usage.files);
+          for (String file : files) {
+            locks.add(cacheLocks.lock(usage.path + "/" + file));
+          }
+
+          // Only the files that were scanned are deleted, since other files might have been published since
+          Path directory = usage.root.resolve(usage.path);
+          for (String file : files) {
+            Files.deleteIfExists(directory.resolve(file));
+          }
+        } catch (IOException e) {
+          throw new CompletionException(e);
+        } finally {
+          for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).close();
+          }
+        }
+      }, WorkflowExecutors.shared()));
+    }
+
+    try {
+      CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof IOException io) {
+        throw io;
+      }
+
+      throw e;
+    }
+
+    for (Usage usage : evict) {
+      if (usage.index != null) {
+        usage.files.forEach((file) -> usage.index.remove(usage.path + "/" + file));
+        usage.index.remove(usage.path + "/");
+      }
+
+      // Remove the version, project and group directories that are now empty
+      Path parent = usage.root.resolve(usage.path);
+      while (parent != null && !parent.equals(usage.root)) {
+        try {
+          Files.delete(parent);
+        } catch (DirectoryNotEmptyException | NoSuchFileException e) {
+          break;
+        }
+
+        parent = parent.getParent();
+      }
+    }
+  }
+
+  private static boolean isStaleTemp(Path file, BasicFileAttributes attributes) {
+    return file.getFileName().toString().endsWith(".tmp") &&
+        System.currentTimeMillis() - attributes.lastModifiedTime().toMillis() > StaleTempMillis;
+  }
+
+  private static Inode inode(Map<Object, Inode> inodes, Path file, BasicFileAttributes attributes) {
+    // File systems that don't have file keys don't have hard links either
+    Object key = attributes.fileKey() != null ? attributes.fileKey() : file;
+    return inodes.computeIfAbsent(key, (k) -> new Inode(attributes.size()));
+  }
+
+  private List<Usage> scan(Path root, Map<Object, Inode> inodes) throws IOException {
+    Path absolute = root.toAbsolutePath().normalize();
+    CacheIndex index = Files.isRegularFile(absolute.resolve(CacheIndex.FileName)) ? CacheIndex.forRoot(absolute) : null;
+    Map<Path, Usage> usages = new LinkedHashMap<>();
+    Set<Path> parents = new HashSet<>();
+    Files.walkFileTree(absolute, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+        parents.add(directory.getParent());
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+        Path directory = file.getParent();
+        if (directory.equals(absolute)) {
+          // The index and other files at the top of the cache aren't artifacts
+          return FileVisitResult.CONTINUE;
+        }
+
+        if (isStaleTemp(file, attributes)) {
+          output.debugln("Deleting the stale temporary file [%s]", file);
+          Files.deleteIfExists(file);
+          return FileVisitResult.CONTINUE;
+        }
+
+        String path = absolute.relativize(directory).toString().replace('\\', '/');
+        String name = file.getFileName().toString();
+        long lastUsed = attributes.lastModifiedTime().toMillis();
+        if (index != null) {
+          CacheIndex.Entry entry = index.lookup(path + "/" + name);
+          if (entry != null) {
+            lastUsed = Math.max(lastUsed, entry.accessed());
+          }
+        }
+
+        Usage usage = usages.computeIfAbsent(directory, (key) -> new Usage(absolute, path, index));
+        Inode inode = inode(inodes, file, attributes);
+        inode.links++;
+        usage.files.add(name);
+        usage.inodes.add(inode);
+        usage.lastUsed = Math.max(usage.lastUsed, lastUsed);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    usages.forEach((directory, usage) -> usage.parent = parents.contains(directory));
+    return new ArrayList<>(usages.values());
+  }
+
+  private void scanBlobs(Map<Object, Inode> inodes) throws IOException {
+    long now = System.currentTimeMillis();
+    Files.walkFileTree(blobStore.directory, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+        // Temporary files are deleted or moved into place by the builds that wrote them
+        if (!file.getFileName().toString().endsWith(".tmp")) {
+          inode(inodes, file, attributes).recentBlob = now - attributes.lastModifiedTime().toMillis() < RecentBlobMillis;
+        }
+
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  /**
+   * The result of a collection.
+   *
+   * @param sizeBefore The size in bytes of the caches before the collection.
+   * @param sizeAfter  The size in bytes of the caches after the collection.
+   * @param evicted    The number of group/project/version directories that were evicted.
+   */
+  public record Result(long sizeBefore, long sizeAfter, int evicted) {
+  }
+
+  /**
+   * A file on disk, which can have several links in the caches.
+   */
+  private static class Inode {
+    final long size;
+
+    /**
+     * The number of links from the caches that haven't been evicted.
+     */
+    int links;
+
+    /**
+     * True if the file is a blob that is kept even if no cache links to it.
+     */
+    boolean recentBlob;
+
+    Inode(long size) {
+      this.size = size;
+    }
+
+    boolean retained() {
+      return links > 0 || recentBlob;
+    }
+  }
+
+  private static class Usage {
+    final List<String> files = new ArrayList<>();
+
+    final CacheIndex index;
+
+    final List<Inode> inodes = new ArrayList<>();
+
+    final String path;
+
+    final Path root;
+
+    long lastUsed;
+
+    /**
+     * True if the directory has subdirectories, which means that it isn't a version directory and can't be evicted.
+     */
+    boolean parent;
+
+    Usage(Path root, String path, CacheIndex index) {
+      this.root = root;
+      this.path = path;
+      this.index = index;
+    }
+
+    long lastUsed() {
+      return lastUsed;
+    }
+  }
+}
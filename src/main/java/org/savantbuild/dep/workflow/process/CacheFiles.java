@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * File operations for the local caches. Files in the caches are always replaced with a rename and never written in
+ * place, so readers never see a partial file and cached files can safely be hard linked to each other.
+ *
+ * @author Brian Pontarelli
+ */
+final class CacheFiles {
+  private static Path empty;
+
+  private CacheFiles() {
+  }
+
+  /**
+   * Copies the source to a temporary file next to the target and renames it over the target.
+   */
+  static void copy(Path source, Path target) throws IOException {
+    Path temp = temporary(target);
+    try {
+      Files.copy(source, temp);
+      move(temp, target);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /**
+   * Returns an empty file that is shared by the JVM and deleted when it exits. This is published by the processes that
+   * don't write negative markers themselves.
+   */
+  static synchronized Path empty() throws IOException {
+    if (empty == null || !Files.isRegularFile(empty) || Files.size(empty) != 0) {
+      Path file = Files.createTempFile("savant-item", ".neg");
+      file.toFile().deleteOnExit();
+      empty = file;
+    }
+
+    return empty;
+  }
+
+  /**
+   * Hard links the target to the source, replacing the target with a rename. If the link can't be created (i.e. the
+   * files are on different file systems), the source is copied instead.
+   *
+   * @return True if the target was linked and false if it was copied.
+   */
+  static boolean link(Path source, Path target) throws IOException {
+    Path temp = temporary(target);
+    boolean linked = true;
+    try {
+      try {
+        Files.createLink(temp, source);
+      } catch (FileAlreadyExistsException e) {
+        throw e;
+      } catch (FileSystemException | UnsupportedOperationException e) {
+        Files.copy(source, temp);
+        linked = false;
+      }
+
+      move(temp, target);
+    } finally {
+      // If the target was already a link to the source, the rename does nothing and the temporary link remains
+      Files.deleteIfExists(temp);
+    }
+
+    return linked;
+  }
+
+  /**
+   * Moves the source over the target with an atomic rename if the file system supports it.
+   */
+  static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  private static Path temporary(Path target) throws IOException {
+    Files.createDirectories(target.toAbsolutePath().getParent());
+    return target.resolveSibling(target.getFileName() + "." + Long.toHexString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+  }
+}
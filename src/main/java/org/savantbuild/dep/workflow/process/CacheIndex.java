@@ -0,0 +1,756 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.savantbuild.security.MD5;
+
+/**
+ * A persistent index of the files in a cache directory. The index is a memory-mapped hash table (open addressing with
+ * linear probing) in the file {@link #FileName} at the root of the cache. It maps the path of each file in the cache
+ * (<code>group/project/version/item</code>) to its size, modification time, MD5 (if known) and whether it is a
+ * negative marker. Lookups are answered from the mapped memory without reading directories. The index also records
+ * when each file was last used, which the {@link CacheCollector} uses to evict the least recently used artifacts.
+ * <p>
+ * The cache can be changed outside the build (i.e. by Maven writing to <code>~/.m2/repository</code> or by hand), so
+ * the entries are stamped with a generation. When all the files of a directory are indexed, the directory itself is
+ * added under its path with a trailing slash (<code>group/project/version/</code>) and the modification time of the
+ * directory is the generation of the directory and of each of its files. Adding, removing or renaming a file changes
+ * the modification time of the directory, so the {@link CacheProcess} only stats the directory and, if it still has the
+ * indexed modification time, answers the lookups from the entries with that generation without reading the directory
+ * or the files. Otherwise, the directory is indexed again with {@link #putDirectory(String, long, Collection)}. Entries
+ * that were added one at a time have a generation of zero and are never trusted this way. A corrupt or unknown index
+ * file is replaced with an empty one and {@link #rebuild()} repopulates the index from the files in the cache.
+ * <p>
+ * Each slot is 72 bytes:
+ * <pre>
+ *   0  key (128-bit hash of the path)
+ *   16 size
+ *   24 modification time (millis)
+ *   32 MD5 (all zeros if unknown)
+ *   48 flags
+ *   52 last access (minutes since the epoch)
+ *   56 generation (the modification time of the directory in millis or zero)
+ *   64 check (detects slots that were torn by a concurrent writer in another process)
+ * </pre>
+ * The last access time isn't covered by the check, so it is updated in place without taking the lock. Writes are
+ * serialized within the JVM and across builds with a file lock on a channel that is kept open with the mapping. When
+ * the table fills up, it is copied into a larger file that is renamed over the old one and the old one is marked as
+ * retired so that other builds reopen it.
+ *
+ * @author Brian Pontarelli
+ */
+public class CacheIndex {
+  /**
+   * The name of the index file at the root of the cache.
+   */
+  public static final String FileName = ".savant-index";
+
+  private static final int FlagPresent = 1;
+
+  private static final int FlagNegative = 2;
+
+  private static final int FlagRemoved = 4;
+
+  private static final int FlagDirectory = 8;
+
+  private static final int HeaderSize = 64;
+
+  private static final int InitialCapacity = 1 << 14;
+
+  private static final int Magic = 0x53564958;
+
+  private static final int SlotSize = 72;
+
+  private static final int FormatVersion = 3;
+
+  private static final Map<Path, CacheIndex> indexes = new ConcurrentHashMap<>();
+
+  /**
+   * The index file.
+   */
+  public final Path file;
+
+  /**
+   * The root directory of the cache.
+   */
+  public final Path root;
+
+  private volatile Table table;
+
+  public CacheIndex(Path root) {
+    this.root = root.toAbsolutePath().normalize();
+    this.file = this.root.resolve(FileName);
+    this.table = open();
+  }
+
+  /**
+   * Returns the shared index for the given cache directory, so that all the processes for a cache use the same
+   * mapping.
+   *
+   * @param root The root directory of the cache.
+   * @return The index.
+   */
+  public static CacheIndex forRoot(Path root) {
+    return indexes.computeIfAbsent(root.toAbsolutePath().normalize(), CacheIndex::new);
+  }
+
+  /**
+   * Looks up the given file.
+   *
+   * @param path The path of the file relative to the root of the cache, using forward slashes.
+   * @return The entry or null if the index doesn't have the file.
+   */
+  public Entry lookup(String path) {
+    return lookup(path, false);
+  }
+
+  /**
+   * Looks up the given file and, if requested, records that it was used. The use is recorded in the slot that the lookup
+   * found, which is a single write to the mapped memory at most once a minute. Files that were never used since they
+   * were indexed have an access time of zero, in which case the modification time is the last use.
+   *
+   * @param path The path of the file or of a directory with a trailing slash, relative to the root of the cache and
+   *             using forward slashes.
+   * @param use  True to record that the file was used.
+   * @return The entry or null if the index doesn't have the file.
+   */
+  public Entry lookup(String path, boolean use) {
+    long[] key = key(path);
+    Table current = current();
+    int slot = current.find(key[0], key[1]);
+    if (slot < 0) {
+      return null;
+    }
+
+    Entry entry = current.entry(slot);
+    if (use) {
+      current.touch(slot, System.currentTimeMillis());
+    }
+
+    return entry;
+  }
+
+  /**
+   * Adds or replaces the entry for the given file.
+   *
+   * @param path     The path of the file relative to the root of the cache, using forward slashes.
+   * @param size     The size of the file.
+   * @param modified The modification time of the file in milliseconds.
+   * @param md5      The MD5 of the file or null if it isn't known.
+   * @param negative True if the file is a negative marker.
+   */
+  public void put(String path, long size, long modified, byte[] md5, boolean negative) {
+    long[] key = key(path);
+    write((current) -> insert(current, key, size, modified, md5, flags(negative), 0));
+  }
+
+  /**
+   * Indexes the given files of a directory and the directory itself in a single write. The entries are stamped with the
+   * modification time of the directory, which the caller read before it listed the directory, so that lookups can trust
+   * them for as long as the directory doesn't change. If the modification time is so recent that another change could
+   * have happened within the same clock tick, the files are indexed without the directory.
+   *
+   * @param directory The path of the directory relative to the root of the cache with a trailing slash.
+   * @param modified  The modification time of the directory in milliseconds.
+   * @param names     The names of the files in the directory.
+   */
+  public void putDirectory(String directory, long modified, Collection<String> names) {
+    IndexedDirectory indexed = read(directory, modified, names);
+    write((current) -> insertDirectory(current, indexed));
+  }
+
+  /**
+   * Adds or replaces the entry for the given file using the attributes of the file. If the file is an item that has an
+   * MD5 file next to it, the MD5 is stored as well.
+   *
+   * @param path The path of the file relative to the root of the cache, using forward slashes.
+   */
+  public void putFile(String path) {
+    CachedFile cached = read(path);
+    if (cached != null) {
+      put(path, cached.size, cached.modified, cached.md5, cached.negative);
+    } else {
+      // The file was removed or can't be read, so it isn't indexed
+      remove(path);
+    }
+  }
+
+  /**
+   * Rebuilds the index from the files in the cache. The subdirectories of every directory are listed and their files
+   * are read in parallel, so large groups like <code>org</code> and <code>com</code> in a Maven cache are split up
+   * too, and then the index is replaced in a single write. Each directory is indexed with its modification time like
+   * {@link #putDirectory(String, long, Collection)}.
+   *
+   * @return The number of files in the index.
+   */
+  public int rebuild() {
+    List<IndexedDirectory> directories = scan(root);
+    write((current) -> {
+      current.clear();
+      for (IndexedDirectory directory : directories) {
+        if (!insertDirectory(current, directory)) {
+          return false;
+        }
+      }
+
+      return true;
+    });
+
+    return directories.stream().mapToInt((directory) -> directory.files.size()).sum();
+  }
+
+  /**
+   * Removes the entry for the given file if there is one.
+   *
+   * @param path The path of the file relative to the root of the cache, using forward slashes.
+   */
+  public void remove(String path) {
+    long[] key = key(path);
+    write((current) -> {
+      int slot = current.find(key[0], key[1]);
+      if (slot >= 0) {
+        current.write(slot, key[0], key[1], 0, 0, null, FlagRemoved, 0);
+      }
+
+      return true;
+    });
+  }
+
+  /**
+   * @return The number of slots in use, including removed entries that haven't been reclaimed by a resize.
+   */
+  public int size() {
+    return current().count();
+  }
+
+  private static int flags(boolean negative) {
+    return FlagPresent | (negative ? FlagNegative : 0);
+  }
+
+  private static long[] key(String path) {
+    try {
+      byte[] hash = MessageDigest.getInstance("MD5").digest(path.getBytes(StandardCharsets.UTF_8));
+      long high = 0;
+      long low = 0;
+      for (int i = 0; i < 8; i++) {
+        high = (high << 8) | (hash[i] & 0xFF);
+        low = (low << 8) | (hash[i + 8] & 0xFF);
+      }
+
+      // Zero marks an empty slot
+      return new long[]{high == 0 ? 1 : high, low};
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Adds or replaces the entry for the key. This must be called while holding the lock.
+   *
+   * @return False if the table is full.
+   */
+  private static boolean insert(Table current, long[] key, long size, long modified, byte[] md5, int flags,
+                                long generation) {
+    int slot = current.find(key[0], key[1]);
+    if (slot < 0) {
+      if ((current.count() + 1) * 10L > current.capacity * 7L) {
+        return false;
+      }
+
+      slot = current.insertionSlot(key[0], key[1]);
+      if (current.buffer.getLong(current.offset(slot)) == 0) {
+        current.count(current.count() + 1);
+      }
+
+      // A reused slot might have the access time of a removed file
+      current.touch(slot, 0);
+    }
+
+    current.write(slot, key[0], key[1], size, modified, md5, flags, generation);
+    return true;
+  }
+
+  /**
+   * Adds the files of the directory and then the directory, so that the directory is never trusted before its files are
+   * in the index. A directory that was modified too recently to be trusted only has its files added with a generation
+   * of zero. This must be called while holding the lock.
+   *
+   * @return False if the table is full.
+   */
+  private static boolean insertDirectory(Table current, IndexedDirectory directory) {
+    boolean racy = System.currentTimeMillis() - directory.modified < DirectoryListings.RacyWindowMillis;
+    long generation = racy ? 0 : directory.modified;
+    for (CachedFile file : directory.files) {
+      if (!insert(current, key(file.path), file.size, file.modified, file.md5, flags(file.negative), generation)) {
+        return false;
+      }
+    }
+
+    return racy || insert(current, key(directory.path), directory.files.size(), directory.modified, null,
+        FlagPresent | FlagDirectory, generation);
+  }
+
+  /**
+   * Reads the attributes of the given file and, if it is an item, the MD5 from the MD5 file next to it.
+   *
+   * @return The file or null if it was removed, can't be read or isn't a regular file.
+   */
+  private CachedFile read(String path) {
+    Path cacheFile = root.resolve(path);
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(cacheFile, BasicFileAttributes.class);
+      if (!attributes.isRegularFile()) {
+        return null;
+      }
+
+      byte[] md5 = null;
+      if (!path.endsWith(".md5") && !path.endsWith(".neg")) {
+        try {
+          MD5 loaded = MD5.load(cacheFile.resolveSibling(cacheFile.getFileName() + ".md5"));
+          md5 = loaded != null ? loaded.bytes : null;
+        } catch (IOException e) {
+          // The MD5 file is invalid, so the MD5 isn't indexed
+        }
+      }
+
+      return new CachedFile(path, attributes.size(), attributes.lastModifiedTime().toMillis(), md5, path.endsWith(".neg"));
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Lists the directory and reads its files, and does the same for its subdirectories in parallel. The files at the
+   * root of the cache (i.e. the index and the lock file) aren't indexed.
+   */
+  private List<IndexedDirectory> scan(Path directory) {
+    List<Path> subdirectories = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+    long modified;
+    try {
+      // The modification time is read before the listing, so a change during the listing is caught by the next lookup
+      modified = Files.getLastModifiedTime(directory).toMillis();
+      try (DirectoryStream<Path> children = Files.newDirectoryStream(directory)) {
+        for (Path child : children) {
+          if (Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+            subdirectories.add(child);
+          } else if (Files.isRegularFile(child)) {
+            names.add(child.getFileName().toString());
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    List<IndexedDirectory> directories = subdirectories.parallelStream()
+                                                       .map(this::scan)
+                                                       .flatMap(List::stream)
+                                                       .collect(Collectors.toCollection(ArrayList::new));
+    if (!directory.equals(root) && !names.isEmpty()) {
+      directories.add(read(root.relativize(directory).toString().replace('\\', '/') + "/", modified, names));
+    }
+
+    return directories;
+  }
+
+  /**
+   * Reads the files of a directory, skipping temporary files.
+   */
+  private IndexedDirectory read(String directory, long modified, Collection<String> names) {
+    List<CachedFile> files = names.stream()
+                                  .filter((name) -> !name.endsWith(".tmp"))
+                                  .map((name) -> read(directory + name))
+                                  .filter(Objects::nonNull)
+                                  .collect(Collectors.toList());
+    return new IndexedDirectory(directory, modified, files);
+  }
+
+  /**
+   * Returns the current table, reopening the file if another build replaced it.
+   */
+  private Table current() {
+    Table current = table;
+    if (current.retired()) {
+      synchronized (this) {
+        if (table == current) {
+          table = open();
+          current.close();
+        }
+
+        current = table;
+      }
+    }
+
+    return current;
+  }
+
+  /**
+   * Creates an empty table in the given file. The caller closes the table.
+   */
+  private Table create(Path target, int capacity) throws IOException {
+    FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      Table created = new Table(channel, null, capacity);
+      created.buffer.putInt(0, Magic);
+      created.buffer.putInt(4, FormatVersion);
+      created.buffer.putInt(8, capacity);
+      return created;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private Table open() {
+    try {
+      Files.createDirectories(root);
+      FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+      try {
+        long size = channel.size();
+        if (size >= HeaderSize) {
+          Table existing = new Table(channel, fileKey(), (int) Math.min(Integer.MAX_VALUE, (size - HeaderSize) / SlotSize));
+          MappedByteBuffer buffer = existing.buffer;
+          int capacity = buffer.getInt(8);
+          if (buffer.getInt(0) == Magic && buffer.getInt(4) == FormatVersion && capacity == existing.capacity && Integer.bitCount(capacity) == 1) {
+            return existing;
+          }
+        }
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+
+      channel.close();
+
+      // The index is new, corrupt or from another version, so start over
+      Path temp = Files.createTempFile(root, FileName, ".tmp");
+      try {
+        create(temp, InitialCapacity).close();
+        CacheFiles.move(temp, file);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+
+      return reopen(InitialCapacity);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to open the cache index [" + file + "]", e);
+    }
+  }
+
+  /**
+   * Copies the entries into a table twice the size and replaces the index file with it. This must be called while
+   * holding the lock.
+   */
+  private void resize(Table current) throws IOException {
+    Path temp = Files.createTempFile(root, FileName, ".tmp");
+    Table larger = null;
+    try {
+      larger = create(temp, current.capacity * 2);
+      int count = 0;
+      for (int slot = 0; slot < current.capacity; slot++) {
+        long high = current.buffer.getLong(current.offset(slot));
+        int flags = current.flags(slot);
+        if (high != 0 && (flags & FlagPresent) != 0 && current.valid(slot)) {
+          long low = current.buffer.getLong(current.offset(slot) + 8);
+          Entry entry = current.entry(slot);
+          int slotInLarger = larger.insertionSlot(high, low);
+          larger.write(slotInLarger, high, low, entry.size, entry.modified, entry.md5, flags, entry.generation);
+          larger.touch(slotInLarger, entry.accessed);
+          count++;
+        }
+      }
+
+      larger.count(count);
+      larger.buffer.force();
+      CacheFiles.move(temp, file);
+    } finally {
+      if (larger != null) {
+        larger.close();
+      }
+
+      Files.deleteIfExists(temp);
+    }
+
+    // The lock on the channel of the old table is released when the channel is closed
+    current.retire();
+    table = reopen(current.capacity * 2);
+    current.close();
+  }
+
+  private Object fileKey() throws IOException {
+    return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+  }
+
+  /**
+   * @return True if the index file was removed or is a different file than the one that the table was opened on.
+   */
+  private boolean replaced(Table current) {
+    try {
+      Object key = fileKey();
+      return key != null && !key.equals(current.fileKey);
+    } catch (IOException e) {
+      return true;
+    }
+  }
+
+  private Table reopen(int capacity) throws IOException {
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      return new Table(channel, fileKey(), capacity);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private synchronized void write(Update update) {
+    while (true) {
+      Table current = current();
+      FileLock lock = null;
+      try {
+        lock = current.channel.lock();
+
+        // Another build might have replaced or removed the file before the lock was acquired
+        if (current.retired() || replaced(current)) {
+          table = open();
+          current.close();
+          continue;
+        }
+
+        if (update.apply(current)) {
+          return;
+        }
+
+        resize(current);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Unable to update the cache index [" + file + "]", e);
+      } finally {
+        // A resize closes the channel, which already released the lock
+        if (lock != null && lock.isValid()) {
+          try {
+            lock.release();
+          } catch (IOException e) {
+            // The lock is released when the channel is closed
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * An entry in the index.
+   *
+   * @param size     The size of the file.
+   * @param modified The modification time of the file in milliseconds.
+   * @param md5        The MD5 of the file or null if it isn't known.
+   * @param negative   True if the file is a negative marker.
+   * @param accessed   The time that the file was last used in milliseconds (with a resolution of a minute).
+   * @param generation The modification time of the directory when the file was indexed with its directory or zero if
+   *                   the entry was added on its own.
+   */
+  public record Entry(long size, long modified, byte[] md5, boolean negative, long accessed, long generation) {
+  }
+
+  private record CachedFile(String path, long size, long modified, byte[] md5, boolean negative) {
+  }
+
+  private record IndexedDirectory(String path, long modified, List<CachedFile> files) {
+  }
+
+  private interface Update {
+    /**
+     * @return False if the table is full and must be resized before the update is applied again.
+     */
+    boolean apply(Table table) throws IOException;
+  }
+
+  /**
+   * The mapped hash table of one index file. The channel is kept open for the file lock.
+   */
+  private static class Table {
+    final MappedByteBuffer buffer;
+
+    final int capacity;
+
+    final FileChannel channel;
+
+    /**
+     * The key of the file that the channel was opened on (i.e. the inode) or null if the file system doesn't have one.
+     */
+    final Object fileKey;
+
+    Table(FileChannel channel, Object fileKey, int capacity) throws IOException {
+      this.capacity = capacity;
+      this.channel = channel;
+      this.fileKey = fileKey;
+      this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HeaderSize + (long) capacity * SlotSize);
+    }
+
+    void close() {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // The mapping stays valid after the channel is closed
+      }
+    }
+
+    void clear() {
+      for (int slot = 0; slot < capacity; slot++) {
+        buffer.putLong(offset(slot), 0);
+      }
+
+      count(0);
+    }
+
+    int count() {
+      return buffer.getInt(12);
+    }
+
+    void count(int count) {
+      buffer.putInt(12, count);
+    }
+
+    Entry entry(int slot) {
+      int offset = offset(slot);
+      byte[] md5 = new byte[16];
+      buffer.get(offset + 32, md5);
+      boolean known = false;
+      for (byte b : md5) {
+        known |= b != 0;
+      }
+
+      return new Entry(buffer.getLong(offset + 16), buffer.getLong(offset + 24), known ? md5 : null, (flags(slot) & FlagNegative) != 0,
+          TimeUnit.MINUTES.toMillis(buffer.getInt(offset + 52)), buffer.getLong(offset + 56));
+    }
+
+    /**
+     * @return The slot of the present entry with the key or -1.
+     */
+    int find(long high, long low) {
+      int mask = capacity - 1;
+      for (int i = 0, slot = (int) (low & mask); i < capacity; i++, slot = (slot + 1) & mask) {
+        int offset = offset(slot);
+        long slotHigh = buffer.getLong(offset);
+        if (slotHigh == 0) {
+          return -1;
+        }
+
+        if (slotHigh == high && buffer.getLong(offset + 8) == low) {
+          return (flags(slot) & FlagPresent) != 0 && valid(slot) ? slot : -1;
+        }
+      }
+
+      return -1;
+    }
+
+    int flags(int slot) {
+      return buffer.getInt(offset(slot) + 48);
+    }
+
+    /**
+     * @return The slot that a new key is written to. This reuses the slot of a removed entry with the same key or the
+     *     first empty slot.
+     */
+    int insertionSlot(long high, long low) {
+      int mask = capacity - 1;
+      int slot = (int) (low & mask);
+      while (true) {
+        int offset = offset(slot);
+        long slotHigh = buffer.getLong(offset);
+        if (slotHigh == 0 || (slotHigh == high && buffer.getLong(offset + 8) == low)) {
+          return slot;
+        }
+
+        slot = (slot + 1) & mask;
+      }
+    }
+
+    int offset(int slot) {
+      return HeaderSize + slot * SlotSize;
+    }
+
+    void retire() {
+      buffer.putInt(16, 1);
+    }
+
+    boolean retired() {
+      return buffer.getInt(16) != 0;
+    }
+
+    void touch(int slot, long accessed) {
+      int offset = offset(slot);
+      int minutes = (int) TimeUnit.MILLISECONDS.toMinutes(accessed);
+      if (buffer.getInt(offset + 52) != minutes) {
+        buffer.putInt(offset + 52, minutes);
+      }
+    }
+
+    boolean valid(int slot) {
+      int offset = offset(slot);
+      return buffer.getLong(offset + 64) == check(offset);
+    }
+
+    void write(int slot, long high, long low, long size, long modified, byte[] md5, int flags, long generation) {
+      int offset = offset(slot);
+      // Clear the check first so that readers in other builds ignore the slot until it is complete
+      buffer.putLong(offset + 64, 0);
+      buffer.putLong(offset + 16, size);
+      buffer.putLong(offset + 24, modified);
+      buffer.put(offset + 32, md5 != null ? md5 : new byte[16]);
+      buffer.putInt(offset + 48, flags);
+      buffer.putLong(offset + 56, generation);
+      buffer.putLong(offset + 8, low);
+      buffer.putLong(offset, high);
+      buffer.putLong(offset + 64, check(offset));
+    }
+
+    private long check(int offset) {
+      long check = 0x9E3779B97F4A7C15L;
+      for (int i = 0; i < 48; i += 8) {
+        check = (check ^ buffer.getLong(offset + i)) * 0x100000001B3L;
+      }
+
+      check = (check ^ buffer.getInt(offset + 48)) * 0x100000001B3L;
+      check = (check ^ buffer.getLong(offset + 56)) * 0x100000001B3L;
+
+      return check == 0 ? 1 : check;
+    }
+  }
+}
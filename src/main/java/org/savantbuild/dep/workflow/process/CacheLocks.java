@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Advisory locks for the items in a cache directory that are shared by all the builds on the machine. Builds that use
+ * the same cache hold the lock for an item while they fetch and publish it, so that only one of them downloads it and
+ * the others find it in the cache once the lock is released.
+ * <p>
+ * Each item is a one byte region of the file {@link #FileName} at the root of the cache, at an offset that is the hash
+ * of the path of the item, so there is a single lock file no matter how many items are locked. The regions are locked
+ * with {@link FileChannel#tryLock(long, long, boolean)}, which the operating system releases if the build is killed.
+ * While another build holds a region, the lock is tried again with a backoff. A blocking lock isn't used, because the
+ * kernel's deadlock detection works on processes rather than threads and fails blocking locks with "Resource deadlock
+ * avoided" (EDEADLK) when several threads of two builds wait on each other's regions. The file locks are held by the
+ * JVM rather than by threads, so each region is also guarded by a lock within the JVM, which makes the locks reentrant
+ * and lets the fetches of a build wait for each other. The lock within the JVM is dropped once no thread holds or waits
+ * for it, so a long-running process doesn't keep a lock for every item it ever fetched.
+ * <p>
+ * The lock file is created when the first item is locked, so only the caches that are written to should be locked.
+ * <p>
+ * Readers don't need the lock, because the files in the caches are only ever replaced with a rename (see
+ * {@link CacheFiles}).
+ *
+ * @author Brian Pontarelli
+ */
+public class CacheLocks {
+  /**
+   * The name of the lock file at the root of the cache.
+   */
+  public static final String FileName = ".savant-locks";
+
+  /**
+   * The longest wait between two attempts to lock a region that another build holds.
+   */
+  private static final long MaxBackoffMillis = 100;
+
+  private static final Map<Path, CacheLocks> locks = new ConcurrentHashMap<>();
+
+  /**
+   * The lock file.
+   */
+  public final Path file;
+
+  private final Map<Long, Region> regions = new ConcurrentHashMap<>();
+
+  private FileChannel channel;
+
+  public CacheLocks(Path root) {
+    this.file = root.toAbsolutePath().normalize().resolve(FileName);
+  }
+
+  /**
+   * Returns the shared locks for the given cache directory. The file locks of a JVM must all be taken through the same
+   * channel, because closing any channel to the lock file releases them.
+   *
+   * @param root The root directory of the cache.
+   * @return The locks.
+   */
+  public static CacheLocks forRoot(Path root) {
+    return locks.computeIfAbsent(root.toAbsolutePath().normalize(), CacheLocks::new);
+  }
+
+  /**
+   * Locks the given item, waiting for other threads and builds that hold the lock.
+   *
+   * @param path The path of the item relative to the root of the cache, using forward slashes.
+   * @return The lock, which must be closed to release it.
+   */
+  public Lock lock(String path) {
+    long position = position(path);
+    // The users are counted within the map's compute, so a region is never removed while another thread is using it
+    Region region = regions.compute(position, (key, existing) -> {
+      Region result = existing != null ? existing : new Region();
+      result.users++;
+      return result;
+    });
+    region.lock.lock();
+    if (region.lock.getHoldCount() > 1) {
+      return () -> unlock(position, region);
+    }
+
+    try {
+      region.fileLock = lockRegion(position);
+    } catch (IOException e) {
+      unlock(position, region);
+      throw new UncheckedIOException("Unable to lock [" + path + "] in [" + file + "]", e);
+    }
+
+    return () -> {
+      try {
+        FileLock fileLock = region.fileLock;
+        region.fileLock = null;
+        if (fileLock.isValid()) {
+          fileLock.release();
+        }
+      } catch (IOException e) {
+        // The channel was closed, which released the lock already
+      } finally {
+        unlock(position, region);
+      }
+    };
+  }
+
+  /**
+   * @return The number of items that are locked or waited for by the threads of this JVM.
+   */
+  int size() {
+    return regions.size();
+  }
+
+  private synchronized FileChannel channel(FileChannel closed) throws IOException {
+    if (channel == null || channel == closed) {
+      Files.createDirectories(file.getParent());
+      channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    return channel;
+  }
+
+  private FileLock lockRegion(long position) throws IOException {
+    long backoff = 1;
+    while (true) {
+      FileLock fileLock = tryLockRegion(position);
+      if (fileLock != null) {
+        return fileLock;
+      }
+
+      // Another build holds the region
+      try {
+        Thread.sleep(backoff);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the lock [" + position + "] in [" + file + "]");
+      }
+
+      backoff = Math.min(backoff * 2, MaxBackoffMillis);
+    }
+  }
+
+  private FileLock tryLockRegion(long position) throws IOException {
+    FileChannel current = channel(null);
+    try {
+      return current.tryLock(position, 1, false);
+    } catch (ClosedChannelException e) {
+      if (Thread.currentThread().isInterrupted()) {
+        throw e;
+      }
+
+      // Another thread was interrupted while it used the channel, which closed the channel and released the locks of
+      // this JVM. The lock is taken again through a new channel
+      return channel(current).tryLock(position, 1, false);
+    }
+  }
+
+  private void unlock(long position, Region region) {
+    region.lock.unlock();
+    regions.computeIfPresent(position, (key, existing) -> --existing.users == 0 ? null : existing);
+  }
+
+  private static long position(String path) {
+    // FNV-1a, which is stable across JVMs (unlike String.hashCode, which is too small to avoid collisions)
+    long hash = 0xCBF29CE484222325L;
+    for (byte b : path.getBytes(StandardCharsets.UTF_8)) {
+      hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+    }
+
+    return hash & 0x3FFFFFFFFFFFFFFFL;
+  }
+
+  /**
+   * A held lock.
+   */
+  public interface Lock extends AutoCloseable {
+    @Override
+    void close();
+  }
+
+  private static class Region {
+    final ReentrantLock lock = new ReentrantLock();
+
+    volatile FileLock fileLock;
+
+    /**
+     * The number of locks that are held or waited for, which is only changed within the map's compute.
+     */
+    int users;
+  }
+}
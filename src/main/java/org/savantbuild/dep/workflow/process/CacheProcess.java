@@ -16,9 +16,14 @@
 package org.savantbuild.dep.workflow.process;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import org.savantbuild.dep.domain.ResolvableItem;
 import org.savantbuild.dep.workflow.PublishWorkflow;
@@ -29,10 +34,25 @@ import org.savantbuild.output.Output;
  * This is an implementation of the Process that uses local caches to fetch and publish artifacts.
  * It manages up to three cache directories: one for Savant-sourced artifacts, one for integration-version
  * artifacts, and one for Maven-sourced artifacts. Any directory can be null to disable that cache.
+ * <p>
+ * If a {@link BlobStore} is given, the files in the caches are hard links to the blobs in the store, so identical files
+ * are only stored once. If the caches are indexed, each cache directory has a {@link CacheIndex} that is checked before
+ * the directory is read. Builds that share the caches coordinate through {@link CacheLocks}, and files are only ever
+ * replaced with a rename, so a build never reads a partial file that another build is writing.
  *
  * @author Brian Pontarelli
  */
 public class CacheProcess implements Process {
+  /**
+   * The content-addressable store that the cached files are linked to or null if the files are stored directly.
+   */
+  public final BlobStore blobStore;
+
+  /**
+   * True if each cache directory has a {@link CacheIndex} that lookups are answered from.
+   */
+  public final boolean indexed;
+
   public final String integrationDir;
 
   public final String mavenDir;
@@ -41,13 +61,90 @@ public class CacheProcess implements Process {
 
   public final String savantDir;
 
+  private final DirectoryListings listings = DirectoryListings.shared;
+
   private record CacheHit(Path file, String matchedItem) {}
 
   public CacheProcess(Output output, String savantDir, String integrationDir, String mavenDir) {
+    this(output, savantDir, integrationDir, mavenDir, null);
+  }
+
+  public CacheProcess(Output output, String savantDir, String integrationDir, String mavenDir, BlobStore blobStore) {
+    this(output, savantDir, integrationDir, mavenDir, blobStore, false);
+  }
+
+  public CacheProcess(Output output, String savantDir, String integrationDir, String mavenDir, BlobStore blobStore,
+                      boolean indexed) {
     this.output = output;
+    this.indexed = indexed;
     this.savantDir = savantDir;
     this.integrationDir = integrationDir;
     this.mavenDir = mavenDir;
+    this.blobStore = blobStore;
+  }
+
+  /**
+   * Locks the item in the cache directories that it can be published to, so that other builds that share the caches
+   * wait for this build to fetch and publish it rather than downloading it themselves. The directories are always
+   * locked in the same order. This creates the lock file in each directory, so it is only used for the caches that are
+   * published to.
+   *
+   * @param item The item.
+   * @return The lock, which must be closed to release it.
+   */
+  public CacheLocks.Lock lock(ResolvableItem item) {
+    String path = String.join("/", item.group.replace('.', '/'), item.project, item.version, item.item);
+    boolean integration = integrationDir != null && item.version.endsWith(Version.INTEGRATION);
+    List<CacheLocks.Lock> locks = new ArrayList<>(2);
+    try {
+      for (String dir : integration ? new String[]{integrationDir} : new String[]{savantDir, mavenDir}) {
+        if (dir != null) {
+          locks.add(CacheLocks.forRoot(Paths.get(dir)).lock(path));
+        }
+      }
+    } catch (RuntimeException e) {
+      locks.forEach(CacheLocks.Lock::close);
+      throw e;
+    }
+
+    return () -> {
+      for (int i = locks.size() - 1; i >= 0; i--) {
+        locks.get(i).close();
+      }
+    };
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean owns(Path file) {
+    Path absolute = file.toAbsolutePath().normalize();
+    for (String dir : new String[]{integrationDir, savantDir, mavenDir}) {
+      if (dir != null && absolute.startsWith(Paths.get(dir).toAbsolutePath().normalize())) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * Rebuilds the indexes of all the cache directories from the files in them. This is used when the index doesn't exist
+   * yet for a large cache (i.e. an existing <code>~/.m2/repository</code>) or after the cache was changed by hand.
+   *
+   * @return The number of files that were indexed.
+   */
+  public int rebuildIndexes() {
+    int count = 0;
+    for (String dir : new String[]{integrationDir, savantDir, mavenDir}) {
+      if (dir != null) {
+        output.debugln("Rebuilding the cache index for [%s]", dir);
+        count += CacheIndex.forRoot(Paths.get(dir)).rebuild();
+      }
+    }
+
+    return count;
   }
 
   /**
@@ -97,6 +194,11 @@ public class CacheProcess implements Process {
    * Publishes the given artifact item into the appropriate cache. Items are routed based on the
    * FetchResult's source: SAVANT items go to savantDir, MAVEN items go to mavenDir. Returns null
    * if the relevant directory is null or the source doesn't match either cache.
+   * <p>
+   * This uses the cheapest safe strategy. Owned files are moved into the cache with an atomic rename when possible.
+   * Cached files are hard linked when they are on the same file system. Other files are copied. Files are always
+   * written next to the cache file and renamed over it, so the cache never contains a partial file. If there is a blob
+   * store, the file is stored there instead and the cache file is linked to the blob.
    *
    * @param fetchResult The fetch result containing the item, file, and source.
    * @return The path to the published file, or null if the source doesn't match.
@@ -104,18 +206,8 @@ public class CacheProcess implements Process {
    */
   @Override
   public Path publish(FetchResult fetchResult) throws ProcessFailureException {
-    String dir;
     ResolvableItem item = fetchResult.item();
-    if (integrationDir != null && item.version.endsWith(Version.INTEGRATION)) {
-      dir = integrationDir;
-    } else if (fetchResult.source() == ItemSource.SAVANT) {
-      dir = savantDir;
-    } else if (fetchResult.source() == ItemSource.MAVEN) {
-      dir = mavenDir;
-    } else {
-      return null;
-    }
-
+    String dir = cacheDirectory(item, fetchResult.source());
     if (dir == null) {
       return null;
     }
@@ -127,38 +219,90 @@ public class CacheProcess implements Process {
       throw new ProcessFailureException("Your local artifact cache location is a directory [" + cacheFile.toAbsolutePath() + "]");
     }
 
-    if (Files.isRegularFile(cacheFile)) {
-      try {
-        Files.delete(cacheFile);
-      } catch (IOException e) {
-        throw new ProcessFailureException("Unable to delete old file in the local cache to replace [" + cacheFile.toAbsolutePath() + "]", e);
-      }
-    } else if (!Files.exists(cacheFile)) {
-      try {
+    // The file is replaced with a rename, so readers never see a partial file, and the lock keeps other builds from
+    // replacing it at the same time
+    String path = String.join("/", item.group.replace('.', '/'), item.project, item.version, item.item);
+    CacheLocks.Lock lock = null;
+    try {
+      lock = CacheLocks.forRoot(Paths.get(dir)).lock(path);
+      if (blobStore != null) {
+        blobStore.store(itemFile, cacheFile, fetchResult.owned());
+      } else if (fetchResult.owned()) {
         Files.createDirectories(cacheFile.getParent());
-      } catch (IOException e) {
-        throw new ProcessFailureException("Unable to create cache directory [" + cacheFile.getParent().toAbsolutePath() + "]");
+        CacheFiles.move(itemFile, cacheFile);
+      } else if (fetchResult.cached()) {
+        CacheFiles.link(itemFile, cacheFile);
+      } else {
+        CacheFiles.copy(itemFile, cacheFile);
+      }
+
+      if (indexed) {
+        CacheIndex.forRoot(Paths.get(dir)).putFile(path);
+      }
+    } catch (IOException | UncheckedIOException e) {
+      throw new ProcessFailureException(item, e);
+    } finally {
+      if (lock != null) {
+        lock.close();
       }
     }
 
+    output.debugln("Cached at [%s]", cacheFile);
+    return cacheFile;
+  }
+
+  /**
+   * Creates the negative marker for the item directly as an empty file in the cache that the source maps to and adds it
+   * to the index.
+   *
+   * @param item   The item that doesn't exist.
+   * @param source The source to tag the negative marker with.
+   * @throws ProcessFailureException If the marker can't be created.
+   */
+  @Override
+  public void publishNegative(ResolvableItem item, ItemSource source) throws ProcessFailureException {
+    String dir = cacheDirectory(item, source);
+    if (dir == null) {
+      return;
+    }
+
+    String path = String.join("/", item.group.replace('.', '/'), item.project, item.version, item.item + ".neg");
+    Path marker = Paths.get(dir, path);
     try {
-      Files.copy(itemFile, cacheFile);
-    } catch (IOException e) {
-      // Clean up the artifact if it was a partial copy
-      if (Files.exists(cacheFile)) {
-        try {
-          Files.delete(cacheFile);
-        } catch (IOException e1) {
-          // Smother since we are already in a failure state
-        }
+      // The marker is created atomically and never replaced, so it doesn't need the lock
+      Files.createDirectories(marker.getParent());
+      try {
+        Files.createFile(marker);
+      } catch (FileAlreadyExistsException e) {
+        // Another build recorded it first
       }
 
+      if (indexed) {
+        CacheIndex.forRoot(Paths.get(dir)).putFile(path);
+      }
+    } catch (IOException | UncheckedIOException e) {
       throw new ProcessFailureException(item, e);
     }
 
-    output.debugln("Cached at [%s]", cacheFile);
+    output.debugln("Cached negative marker at [%s]", marker);
+  }
 
-    return cacheFile;
+  /**
+   * Returns the directory in the cache that the item is published to, so that downloads can be written there and moved
+   * into place. The directory isn't created here, since most of the items that are probed for don't exist.
+   *
+   * @param item   The item being fetched.
+   * @param source The source that the item is being fetched from.
+   * @return The directory or null if the item isn't published to this cache.
+   */
+  @Override
+  public Path stagingDirectory(ResolvableItem item, ItemSource source) {
+    String dir = cacheDirectory(item, source);
+    if (dir == null) {
+      return null;
+    }
+
+    return Paths.get(String.join("/", dir, item.group.replace('.', '/'), item.project, item.version));
   }
 
   @Override
@@ -166,35 +310,139 @@ public class CacheProcess implements Process {
     return "Cache(savant=" + savantDir + ", integration=" + integrationDir + ", maven=" + mavenDir + ")";
   }
 
+  private String cacheDirectory(ResolvableItem item, ItemSource source) {
+    if (integrationDir != null && item.version.endsWith(Version.INTEGRATION)) {
+      return integrationDir;
+    } else if (source == ItemSource.SAVANT) {
+      return savantDir;
+    } else if (source == ItemSource.MAVEN) {
+      return mavenDir;
+    }
+
+    return null;
+  }
+
   private CacheHit tryFetchCandidate(ResolvableItem item, String cacheDir) {
+    // The candidates are checked against the index or the listing of the directory rather than with a stat each
+    Path directory = Paths.get(cacheDir, item.group.replace('.', '/'), item.project, item.version);
+    output.debugln("      - Directory [" + directory + "]");
+    Lookup lookup = new Lookup(cacheDir, directory, item);
+
     // Try primary item
-    String path = String.join("/", cacheDir, item.group.replace('.', '/'), item.project, item.version, item.item);
-    output.debugln("      - File [" + path + "]");
-    Path file = Paths.get(path);
-    if (Files.isRegularFile(file)) {
-      output.debugln("      - Found");
-      return new CacheHit(file, item.item);
+    if (lookup.exists(item.item)) {
+      output.debugln("      - Found [" + item.item + "]");
+      return new CacheHit(directory.resolve(item.item), item.item);
     }
 
     // Check negative cache marker (only for primary item)
-    Path negFile = Paths.get(path + ".neg");
-    if (Files.isRegularFile(negFile)) {
+    if (lookup.exists(item.item + ".neg")) {
       output.debugln("      - Found negative marker");
       throw new NegativeCacheException(item);
     }
 
     // Try alternative items
     for (String alt : item.alternativeItems) {
-      String altPath = String.join("/", cacheDir, item.group.replace('.', '/'), item.project, item.version, alt);
-      output.debugln("      - File [" + altPath + "] (alternative)");
-      Path altFile = Paths.get(altPath);
-      if (Files.isRegularFile(altFile)) {
-        output.debugln("      - Found (alternative)");
-        return new CacheHit(altFile, alt);
+      if (lookup.exists(alt)) {
+        output.debugln("      - Found [" + alt + "] (alternative)");
+        return new CacheHit(directory.resolve(alt), alt);
       }
     }
 
     output.debugln("      - Not found");
     return null;
   }
+
+  /**
+   * Checks the files of one directory. If the cache is indexed, the modification time of the directory is read once and
+   * compared with the one that the index recorded when it indexed the directory. If it matches, the lookups (hits and
+   * misses) are answered from the index alone without reading the files or listing the directory. If the directory
+   * changed, it is listed and indexed again. A directory that changed within the last couple of seconds can't be
+   * trusted yet, so its lookups are answered from the listing. Each hit is recorded in the index as a use of the file
+   * for the {@link CacheCollector}.
+   * <p>
+   * Files in the caches are only ever replaced with a rename, which changes the modification time of the directory. A
+   * file that is rewritten in place outside the build isn't detected until something else in its directory changes.
+   */
+  private class Lookup {
+    final Path directory;
+
+    final CacheIndex index;
+
+    final String prefix;
+
+    boolean checked;
+
+    /**
+     * The modification time of the directory that the index entries are trusted for or zero if they can't be trusted.
+     */
+    long generation;
+
+    boolean missing;
+
+    Set<String> names;
+
+    Lookup(String cacheDir, Path directory, ResolvableItem item) {
+      this.directory = directory;
+      this.index = indexed ? CacheIndex.forRoot(Paths.get(cacheDir)) : null;
+      this.prefix = String.join("/", item.group.replace('.', '/'), item.project, item.version) + "/";
+    }
+
+    boolean exists(String name) {
+      if (index != null) {
+        if (!checked) {
+          check();
+        }
+
+        if (missing) {
+          return false;
+        }
+
+        if (generation != 0) {
+          // Entries from an older generation are files that were removed since
+          CacheIndex.Entry entry = index.lookup(prefix + name, true);
+          return entry != null && entry.generation() == generation;
+        }
+      }
+
+      if (names == null) {
+        names = listings.names(directory);
+      }
+
+      boolean exists = names.contains(name);
+      if (exists && index != null && index.lookup(prefix + name, true) == null) {
+        index.putFile(prefix + name);
+      }
+
+      return exists;
+    }
+
+    /**
+     * Stats the directory and indexes it again if it changed since it was indexed.
+     */
+    private void check() {
+      checked = true;
+
+      long modified;
+      try {
+        modified = Files.getLastModifiedTime(directory).toMillis();
+      } catch (IOException e) {
+        missing = true;
+        return;
+      }
+
+      CacheIndex.Entry indexed = index.lookup(prefix);
+      if (indexed != null && indexed.generation() == modified) {
+        generation = modified;
+        return;
+      }
+
+      if (System.currentTimeMillis() - modified < DirectoryListings.RacyWindowMillis) {
+        return;
+      }
+
+      names = listings.names(directory);
+      index.putDirectory(prefix, modified, names);
+      generation = modified;
+    }
+  }
 }
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.savantbuild.output.Output;
+import org.savantbuild.security.MD5;
+
+/**
+ * Verifies the files in the local caches against their MD5 files to find bit rot and truncated files before a build
+ * trips over them. The files are hashed in parallel on a small pool of low priority threads so that the scan can run
+ * on a build agent while it is idle without slowing down builds that start in the meantime.
+ * <p>
+ * A file that doesn't match its MD5 (or whose MD5 file is invalid) is checked again while holding the item's
+ * {@link CacheLocks lock}, since a build might have replaced it during the scan. If it still doesn't match, the file and
+ * its MD5 file are moved to the quarantine directory and removed from the {@link CacheIndex}, which repairs the cache
+ * because the next build that needs the item downloads it again. Without a quarantine directory, the bad files are
+ * only reported.
+ * <p>
+ * A file can be hard linked from several caches and from the {@link BlobStore}, in which case all of the links share the
+ * corrupt contents. Once the caches are scanned, the other links to a corrupt file (including its blob) are quarantined
+ * or reported as well, even if they don't have an MD5 file.
+ * <p>
+ * Files without an MD5 file (i.e. negative markers, POMs from a Maven cache that were fetched without checksums) are
+ * skipped and counted as unverified.
+ *
+ * @author Brian Pontarelli
+ */
+public class CacheScanner {
+  /**
+   * The store that the caches are linked to or null if the files are stored directly.
+   */
+  public final BlobStore blobStore;
+
+  public final Output output;
+
+  /**
+   * The number of files that are hashed at the same time.
+   */
+  public final int parallelism;
+
+  /**
+   * The directory that corrupt files are moved to or null to only report them.
+   */
+  public final Path quarantine;
+
+  public CacheScanner(Output output, Path quarantine) {
+    this(output, quarantine, Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+  }
+
+  public CacheScanner(Output output, Path quarantine, int parallelism) {
+    this(output, quarantine, parallelism, null);
+  }
+
+  public CacheScanner(Output output, Path quarantine, int parallelism, BlobStore blobStore) {
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("The parallelism must be at least 1");
+    }
+
+    this.output = output;
+    this.quarantine = quarantine;
+    this.parallelism = parallelism;
+    this.blobStore = blobStore;
+  }
+
+  /**
+   * Scans the given cache directories.
+   *
+   * @param roots The cache directories. Directories that don't exist are skipped.
+   * @return The result.
+   * @throws IOException If a cache directory can't be read or a corrupt file couldn't be quarantined.
+   */
+  public Result scan(Collection<Path> roots) throws IOException {
+    long start = System.nanoTime();
+    AtomicLong bytes = new AtomicLong();
+    AtomicInteger verified = new AtomicInteger();
+    AtomicInteger unverified = new AtomicInteger();
+    List<Path> corrupt = Collections.synchronizedList(new ArrayList<>());
+    Set<Object> corruptKeys = ConcurrentHashMap.newKeySet();
+
+    // The hard links to each file, so that the other links to a corrupt file can be found
+    Map<Object, List<Link>> links = new HashMap<>();
+    if (blobStore != null && Files.isDirectory(blobStore.directory)) {
+      Path directory = blobStore.directory.toAbsolutePath().normalize();
+      files(directory, false).forEach((file, key) -> links.computeIfAbsent(key, (k) -> new ArrayList<>()).add(new Link(directory, file, true)));
+    }
+
+    AtomicInteger count = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, (runnable) -> {
+      Thread thread = new Thread(runnable, "savant-cache-scanner-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    });
+
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (Path root : roots) {
+        if (!Files.isDirectory(root)) {
+          continue;
+        }
+
+        Path absolute = root.toAbsolutePath().normalize();
+        Map<Path, Object> files = files(absolute, true);
+        files.forEach((file, key) -> links.computeIfAbsent(key, (k) -> new ArrayList<>()).add(new Link(absolute, file, false)));
+        for (Map.Entry<Path, Object> entry : files.entrySet()) {
+          Path file = entry.getKey();
+          Path md5File = file.resolveSibling(file.getFileName() + ".md5");
+          if (!Files.isRegularFile(md5File)) {
+            unverified.incrementAndGet();
+            continue;
+          }
+
+          futures.add(executor.submit(() -> {
+            try {
+              bytes.addAndGet(Files.size(file));
+              if (!verify(absolute, file, md5File)) {
+                corrupt.add(file);
+                corruptKeys.add(entry.getValue());
+              }
+
+              verified.incrementAndGet();
+            } catch (NoSuchFileException e) {
+              // The file was evicted or replaced during the scan
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+          }));
+        }
+      }
+
+      for (Future<?> future : futures) {
+        await(future);
+      }
+
+      for (Object key : corruptKeys) {
+        for (Link link : links.getOrDefault(key, List.of())) {
+          if (!corrupt.contains(link.file) && isLink(link.file, key)) {
+            corrupt.add(link.file);
+            handleLink(link);
+          }
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    Result result = new Result(verified.get(), unverified.get(), bytes.get(), List.copyOf(corrupt), elapsed);
+    output.infoln("Verified [%d] files in the caches ([%d] bytes in [%d] ms at [%d] bytes per second). [%d] were corrupt and [%d] didn't have an MD5 file.",
+        result.verified, result.bytes, result.elapsedMillis, result.bytesPerSecond(), result.corrupt.size(), result.unverified);
+    return result;
+  }
+
+  private static void await(Future<?> future) throws IOException {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while scanning the caches", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UncheckedIOException unchecked) {
+        throw unchecked.getCause();
+      } else if (e.getCause() instanceof RuntimeException runtime) {
+        throw runtime;
+      }
+
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  /**
+   * Lists the files of a cache or the blob store along with their file keys, which are the same for all the hard links
+   * to a file.
+   */
+  private static Map<Path, Object> files(Path root, boolean cache) throws IOException {
+    Map<Path, Object> files = new LinkedHashMap<>();
+    Files.walkFileTree(root, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+        String name = file.getFileName().toString();
+        // The index, the lock file and other files at the top of the cache aren't artifacts
+        boolean artifact = !cache || (!file.getParent().equals(root) && !name.endsWith(".md5") && !name.endsWith(".neg"));
+        if (artifact && !name.endsWith(".tmp")) {
+          files.put(file, attributes.fileKey() != null ? attributes.fileKey() : file);
+        }
+
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    return files;
+  }
+
+  /**
+   * Quarantines or reports another link to a corrupt file.
+   */
+  private void handleLink(Link link) throws IOException {
+    if (quarantine == null) {
+      output.warningln("The cached file [%s] is a link to a corrupt file.", link.file);
+      return;
+    }
+
+    output.warningln("The cached file [%s] is a link to a corrupt file. It was moved to [%s].", link.file, quarantine);
+    String path = link.root.relativize(link.file).toString().replace('\\', '/');
+    if (link.blob) {
+      // The blob store isn't locked, since a blob is only ever replaced with a rename
+      Path target = quarantine.resolve(link.root.getFileName().toString()).resolve(path);
+      Files.createDirectories(target.getParent());
+      Files.move(link.file, target, StandardCopyOption.REPLACE_EXISTING);
+      return;
+    }
+
+    CacheLocks.Lock lock = CacheLocks.forRoot(link.root).lock(path);
+    try {
+      quarantine(link.root, path, link.file, link.file.resolveSibling(link.file.getFileName() + ".md5"));
+    } finally {
+      lock.close();
+    }
+  }
+
+  private static boolean isLink(Path file, Object key) throws IOException {
+    try {
+      Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+      return key.equals(fileKey != null ? fileKey : file);
+    } catch (NoSuchFileException e) {
+      // The link was quarantined, evicted or replaced
+      return false;
+    }
+  }
+
+  private static boolean matches(Path file, Path md5File) throws IOException {
+    MD5 expected;
+    try {
+      expected = MD5.load(md5File);
+    } catch (IOException e) {
+      // The MD5 file is invalid
+      return false;
+    }
+
+    MD5 actual = MD5.forPath(file);
+    return actual == null || actual.equals(expected);
+  }
+
+  private void quarantine(Path root, String path, Path file, Path md5File) throws IOException {
+    Path directory = quarantine.resolve(root.getFileName().toString()).resolve(path).getParent();
+    Files.createDirectories(directory);
+    Files.move(file, directory.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+    if (Files.exists(md5File)) {
+      Files.move(md5File, directory.resolve(md5File.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    if (Files.isRegularFile(root.resolve(CacheIndex.FileName))) {
+      CacheIndex index = CacheIndex.forRoot(root);
+      index.remove(path);
+      index.remove(path + ".md5");
+    }
+  }
+
+  private boolean verify(Path root, Path file, Path md5File) throws IOException {
+    if (matches(file, md5File)) {
+      return true;
+    }
+
+    // A build might have replaced the file while it was being read, so it is checked again while holding its lock
+    String path = root.relativize(file).toString().replace('\\', '/');
+    CacheLocks.Lock lock = CacheLocks.forRoot(root).lock(path);
+    try {
+      if (!Files.isRegularFile(file) || !Files.isRegularFile(md5File) || matches(file, md5File)) {
+        return true;
+      }
+
+      if (quarantine != null) {
+        output.warningln("The cached file [%s] doesn't match its MD5. It was moved to [%s] and will be downloaded again.", file, quarantine);
+        quarantine(root, path, file, md5File);
+      } else {
+        output.warningln("The cached file [%s] doesn't match its MD5.", file);
+      }
+    } finally {
+      lock.close();
+    }
+
+    return false;
+  }
+
+  /**
+   * The result of a scan.
+   *
+   * @param verified      The number of files that were checked against their MD5 files.
+   * @param unverified    The number of files that were skipped because they don't have an MD5 file.
+   * @param bytes         The number of bytes that were hashed.
+   * @param corrupt       The files that didn't match their MD5 files and the other links to them.
+   * @param elapsedMillis The time that the scan took.
+   */
+  public record Result(int verified, int unverified, long bytes, List<Path> corrupt, long elapsedMillis) {
+    /**
+     * @return The throughput of the scan.
+     */
+    public long bytesPerSecond() {
+      return elapsedMillis > 0 ? bytes * 1000 / elapsedMillis : bytes;
+    }
+  }
+
+  /**
+   * A hard link to a file in a cache or the blob store.
+   *
+   * @param root The root of the cache or the blob store directory.
+   * @param file The link.
+   * @param blob True if the link is in the blob store.
+   */
+  private record Link(Path root, Path file, boolean blob) {
+  }
+}
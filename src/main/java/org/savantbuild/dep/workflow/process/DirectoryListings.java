@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Caches the names of the files in the group/project/version directories of the local caches. Each directory is listed
+ * once and all the lookups for the items in it (the item, its MD5, its negative marker and its alternatives) are then
+ * answered from memory rather than with a stat per file. The listings are shared by all the {@link CacheProcess}
+ * instances, because the fetch and publish workflows usually have separate instances for the same directories.
+ * <p>
+ * A listing is validated with a single stat of the directory. Adding or removing a file changes the modification time
+ * of the directory, so changes made by this build, by other builds or by hand are all picked up. A listing that was
+ * taken within a couple of seconds of the directory changing isn't trusted, since the file system might not have
+ * recorded a second change that happened in the same clock tick, so the directory is listed again.
+ * <p>
+ * The number of listings is bounded. When it is full, the oldest listings are evicted first.
+ *
+ * @author Brian Pontarelli
+ */
+final class DirectoryListings {
+  /**
+   * The default maximum number of listings.
+   */
+  static final int DefaultMaximumSize = 10_000;
+
+  static final DirectoryListings shared = new DirectoryListings(DefaultMaximumSize);
+
+  /**
+   * The window after a change to a directory where a listing isn't trusted. This covers file systems with coarse
+   * timestamps.
+   */
+  static final long RacyWindowMillis = 2_000;
+
+  final int maximumSize;
+
+  private final Queue<Path> insertionOrder = new ConcurrentLinkedQueue<>();
+
+  private final Map<Path, Listing> listings = new ConcurrentHashMap<>();
+
+  DirectoryListings(int maximumSize) {
+    if (maximumSize < 1) {
+      throw new IllegalArgumentException("The maximum size of the DirectoryListings must be positive");
+    }
+
+    this.maximumSize = maximumSize;
+  }
+
+  /**
+   * Returns the names of the files in the directory.
+   *
+   * @param directory The directory.
+   * @return The names, which are empty if the directory doesn't exist.
+   */
+  Set<String> names(Path directory) {
+    Path absolute = directory.toAbsolutePath().normalize();
+    FileTime modified = modified(absolute);
+    Listing listing = listings.get(absolute);
+    if (listing != null && !listing.racy && Objects.equals(listing.modified, modified)) {
+      return listing.names;
+    }
+
+    listing = list(absolute, modified);
+    if (listings.put(absolute, listing) == null) {
+      insertionOrder.add(absolute);
+      while (listings.size() > maximumSize) {
+        Path eldest = insertionOrder.poll();
+        if (eldest == null) {
+          break;
+        }
+
+        listings.remove(eldest);
+      }
+    }
+
+    return listing.names;
+  }
+
+  /**
+   * @return The number of listings.
+   */
+  int size() {
+    return listings.size();
+  }
+
+  private static Listing list(Path directory, FileTime modified) {
+    if (modified == null) {
+      return new Listing(Set.of(), null, false);
+    }
+
+    boolean racy = System.currentTimeMillis() - modified.toMillis() < RacyWindowMillis;
+    try (Stream<Path> files = Files.list(directory)) {
+      return new Listing(files.map((file) -> file.getFileName().toString()).collect(Collectors.toUnmodifiableSet()), modified, racy);
+    } catch (IOException e) {
+      // The directory can't be read, so it is treated as empty (and listed again next time) and the items are fetched
+      return new Listing(Set.of(), modified, true);
+    }
+  }
+
+  private static FileTime modified(Path directory) {
+    try {
+      return Files.getLastModifiedTime(directory);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private record Listing(Set<String> names, FileTime modified, boolean racy) {
+  }
+}
@@ -19,4 +19,23 @@ import java.nio.file.Path;
 
 import org.savantbuild.dep.domain.ResolvableItem;
 
-public record FetchResult(Path file, ItemSource source, ResolvableItem item) {}
+/**
+ * The result of fetching an item.
+ *
+ * @param file   The file of the item.
+ * @param source The source of the item.
+ * @param item   The item that was found, which might be one of the alternative items.
+ * @param owned  True if the file is a staged download that nothing else references. Publish processes can move an
+ *               owned file into place instead of copying it.
+ * @param cached True if the file is in a local cache. Cached files are replaced rather than modified in place, so
+ *               publish processes can hard link to them instead of copying them.
+ */
+public record FetchResult(Path file, ItemSource source, ResolvableItem item, boolean owned, boolean cached) {
+  public FetchResult(Path file, ItemSource source, ResolvableItem item) {
+    this(file, source, item, false, false);
+  }
+
+  public FetchResult(Path file, ItemSource source, ResolvableItem item, boolean owned) {
+    this(file, source, item, owned, false);
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Thrown by the {@link HttpTransport} when a server responds with an error other than a missing file (a 404 or 410).
+ * The {@link RetryPolicy} decides which of the status codes might be temporary.
+ *
+ * @author Brian Pontarelli
+ */
+public class HttpStatusException extends IOException {
+  /**
+   * The delay that the server requested using the Retry-After header or null if it didn't send one.
+   */
+  public final Duration retryAfter;
+
+  public final int statusCode;
+
+  public final URI uri;
+
+  public HttpStatusException(URI uri, int statusCode, Duration retryAfter) {
+    super("The server returned a status code of [" + statusCode + "] for [" + uri + "]");
+    this.uri = uri;
+    this.statusCode = statusCode;
+    this.retryAfter = retryAfter;
+  }
+}
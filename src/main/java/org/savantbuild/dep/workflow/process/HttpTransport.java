@@ -0,0 +1,780 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandler;
+import java.net.http.HttpResponse.BodySubscribers;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.savantbuild.dep.workflow.WorkflowExecutors;
+import org.savantbuild.net.NetTools;
+import org.savantbuild.security.MD5;
+import org.savantbuild.security.MD5Exception;
+
+/**
+ * Downloads files over HTTP using a pooled {@link HttpClient}. The client keeps connections alive and negotiates HTTP/2
+ * when the server supports it, so the many requests that a build makes to the same repository reuse connections
+ * instead of opening a new connection (and doing a new TLS handshake) for each file.
+ * <p>
+ * file:// URLs are copied directly and other URLs that aren't HTTP are downloaded using {@link NetTools}.
+ *
+ * @author Brian Pontarelli
+ */
+public class HttpTransport {
+  /**
+   * The default amount of time to wait for a connection to be established.
+   */
+  public static final Duration DefaultConnectTimeout = Duration.ofSeconds(10);
+
+  /**
+   * The default amount of time to wait for the server to respond to a request or to send more of the body.
+   */
+  public static final Duration DefaultReadTimeout = Duration.ofSeconds(60);
+
+  /**
+   * The default size above which files are downloaded in parallel chunks.
+   */
+  public static final long DefaultChunkThreshold = 32 * 1024 * 1024;
+
+  /**
+   * The default number of parallel chunks for large files.
+   */
+  public static final int DefaultChunks = 4;
+
+  /**
+   * The number of times that a dropped transfer is resumed with a range request before the download fails.
+   */
+  public static final int MaxResumes = 3;
+
+  private static final Map<String, HttpTransport> transports = new ConcurrentHashMap<>();
+
+  private static final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor((runnable) -> {
+    Thread thread = new Thread(runnable, "savant-http-watchdog");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * The size above which files are downloaded in parallel chunks if the server supports range requests. Zero or less
+   * disables chunking.
+   */
+  public final long chunkThreshold;
+
+  /**
+   * The number of parallel chunks that large files are split into.
+   */
+  public final int chunks;
+
+  public final Duration connectTimeout;
+
+  /**
+   * The amount of time to wait for the response headers and for each read of the body. A body that stalls for longer
+   * than this fails with a {@link SocketTimeoutException}, which resumes the download like a dropped transfer.
+   */
+  public final Duration readTimeout;
+
+  private final HttpClient client;
+
+  public HttpTransport(Duration connectTimeout, Duration readTimeout) {
+    this(connectTimeout, readTimeout, DefaultChunkThreshold, DefaultChunks);
+  }
+
+  public HttpTransport(Duration connectTimeout, Duration readTimeout, long chunkThreshold, int chunks) {
+    Objects.requireNonNull(connectTimeout, "The connectTimeout is required");
+    Objects.requireNonNull(readTimeout, "The readTimeout is required");
+    if (chunks < 1) {
+      throw new IllegalArgumentException("The number of chunks must be positive");
+    }
+
+    this.connectTimeout = connectTimeout;
+    this.readTimeout = readTimeout;
+    this.chunkThreshold = chunkThreshold;
+    this.chunks = chunks;
+    this.client = HttpClient.newBuilder()
+                            .version(HttpClient.Version.HTTP_2)
+                            .connectTimeout(connectTimeout)
+                            .followRedirects(HttpClient.Redirect.NORMAL)
+                            .build();
+  }
+
+  /**
+   * Returns the shared transport for the given repository URL. The transport uses the default timeouts and is created
+   * the first time it is requested, so all the processes for a repository share the same connection pool.
+   *
+   * @param url The repository URL.
+   * @return The transport.
+   */
+  public static HttpTransport forURL(String url) {
+    return transports.computeIfAbsent(url, (key) -> new HttpTransport(DefaultConnectTimeout, DefaultReadTimeout));
+  }
+
+  /**
+   * Downloads the given URI to a temporary file and calculates the MD5 of the file while it is downloaded.
+   *
+   * @param uri      The URI to download.
+   * @param username The username for basic authentication or null.
+   * @param password The password for basic authentication or null.
+   * @return The download or null if the server doesn't have the file.
+   * @throws IOException If the download failed, the server returned an error or the thread was interrupted.
+   */
+  public Download download(URI uri, String username, String password) throws IOException {
+    return download(uri, username, password, null);
+  }
+
+  /**
+   * Downloads the given URI to a temporary file in the given directory and calculates the MD5 of the file while it is
+   * written. When the directory is the directory that the file is published to, the file can be moved into place
+   * without being copied or read again.
+   *
+   * @param uri       The URI to download.
+   * @param username  The username for basic authentication or null.
+   * @param password  The password for basic authentication or null.
+   * @param directory The directory to write the temporary file to or null to use the system temporary directory. It is
+   *                  only created once the server returns the file.
+   * @return The download or null if the server doesn't have the file.
+   * @throws IOException If the download failed or the thread was interrupted. If the server returned any other status
+   *     than a 200, 404 or 410, this is an {@link HttpStatusException}.
+   */
+  public Download download(URI uri, String username, String password, Path directory) throws IOException {
+    return download(uri, username, password, directory, WorkflowExecutors.shared());
+  }
+
+  /**
+   * Downloads the given URI like {@link #download(URI, String, String, Path)} and downloads the chunks of large files on
+   * the given executor.
+   *
+   * @param uri       The URI to download.
+   * @param username  The username for basic authentication or null.
+   * @param password  The password for basic authentication or null.
+   * @param directory The directory to write the temporary file to or null to use the system temporary directory. It is
+   *                  only created once the server returns the file.
+   * @param executor  The executor that the chunks of large files are downloaded on. It must be unbounded because the
+   *                  download waits for the chunks and might already be running on the executor.
+   * @return The download or null if the server doesn't have the file (a 404 or 410).
+   * @throws IOException If the download failed or the thread was interrupted. If the server returned any other status
+   *     than a 200, 404 or 410, this is an {@link HttpStatusException}.
+   */
+  public Download download(URI uri, String username, String password, Path directory, Executor executor)
+      throws IOException {
+    return download(uri, username, password, directory, executor, null);
+  }
+
+  /**
+   * Downloads the given URI like {@link #download(URI, String, String, Path, Executor)} and continues the partial file
+   * of a previous attempt. If the previous attempt left a partial file, the rest of it is requested with a range request
+   * that is validated with If-Range, so the file is only continued if it didn't change on the server. If this attempt
+   * is dropped and the server supports range requests, the file is kept in the partial for the next attempt instead of
+   * being deleted.
+   *
+   * @param partial The partial file of the previous attempts or null if files aren't kept between attempts.
+   */
+  Download download(URI uri, String username, String password, Path directory, Executor executor, Partial partial)
+      throws IOException {
+    String scheme = uri.getScheme();
+    if ("file".equalsIgnoreCase(scheme)) {
+      Path source = Paths.get(uri);
+      if (!Files.isRegularFile(source)) {
+        throw new FileNotFoundException("The file [" + source + "] doesn't exist");
+      }
+
+      try (InputStream is = Files.newInputStream(source)) {
+        return write(is, directory, source.getFileName().toString());
+      }
+    }
+
+    if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+      Path file = NetTools.downloadToPath(uri, username, password, null);
+      return file != null ? new Download(file, md5Digest(file).digest()) : null;
+    }
+
+    boolean resuming = partial != null && partial.file != null;
+    HttpResponse<InputStream> response = resuming
+        ? send(uri, username, password, "bytes=" + partial.length + "-", partial.validator)
+        : send(uri, username, password, null, null);
+    try (InputStream is = response.body()) {
+      int status = response.statusCode();
+      // Only a 404 or 410 means that the file is missing. Other client errors (i.e. a 401 or 403 for bad credentials)
+      // are failures so that they aren't remembered as missing files
+      if (status == 404 || status == 410) {
+        if (resuming) {
+          partial.discard();
+        }
+
+        return null;
+      }
+
+      Path file = null;
+      try {
+        if (resuming && status == 206 && rangeStart(response) == partial.length) {
+          file = partial.file;
+          return new Download(file, resume(uri, username, password, is, partial));
+        }
+
+        if (resuming && (status == 200 || status == 206)) {
+          // The file changed on the server (or the server returned the wrong range), so the download starts over
+          long length = partial.length;
+          partial.discard();
+          if (status == 206) {
+            throw new IOException("The server didn't return the rest of [" + uri + "] after byte [" + length + "]");
+          }
+        }
+
+        if (status != 200) {
+          throw new HttpStatusException(uri, status, retryAfter(response));
+        }
+
+        String path = uri.getPath();
+        file = createTempFile(directory, path != null ? path.substring(path.lastIndexOf('/') + 1) : "download");
+        boolean ranges = response.headers().firstValue("Accept-Ranges").filter("bytes"::equalsIgnoreCase).isPresent();
+        long length = response.headers().firstValueAsLong("Content-Length").orElse(-1);
+        if (ranges && chunks > 1 && chunkThreshold > 0 && length > chunkThreshold) {
+          return downloadChunks(uri, username, password, is, length, file, executor);
+        }
+
+        String validator = ranges ? validator(response) : null;
+        return new Download(file, stream(uri, username, password, is, ranges, validator, file, md5Digest(), 0, partial));
+      } catch (IOException | RuntimeException e) {
+        // The file is kept if the partial holds it for the next attempt
+        if (file != null && (partial == null || partial.file != file)) {
+          Files.deleteIfExists(file);
+        }
+
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Downloads the given URI to a temporary file and verifies the MD5 of the file.
+   *
+   * @param uri      The URI to download.
+   * @param username The username for basic authentication or null.
+   * @param password The password for basic authentication or null.
+   * @param md5      The expected MD5 of the file or null if the file shouldn't be verified.
+   * @return The temporary file or null if the server doesn't have the file.
+   * @throws IOException If the download failed, the server returned an error or the thread was interrupted.
+   * @throws MD5Exception If the MD5 of the file doesn't match.
+   */
+  public Path downloadToPath(URI uri, String username, String password, MD5 md5) throws IOException {
+    Download download = download(uri, username, password);
+    if (download == null) {
+      return null;
+    }
+
+    if (md5 != null && md5.bytes != null && !MessageDigest.isEqual(download.md5, md5.bytes)) {
+      Files.delete(download.file);
+      throw new MD5Exception("MD5 mismatch when downloading [" + uri + "]");
+    }
+
+    return download.file;
+  }
+
+  private static MessageDigest md5Digest() {
+    try {
+      return MessageDigest.getInstance("MD5");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Returns the strong ETag or the Last-Modified date of the response, which are the values that If-Range accepts, or
+   * null if the response has neither and a partial file can't be validated.
+   */
+  private static String validator(HttpResponse<?> response) {
+    String etag = response.headers().firstValue("ETag").orElse(null);
+    if (etag != null && !etag.startsWith("W/")) {
+      return etag;
+    }
+
+    return response.headers().firstValue("Last-Modified").orElse(null);
+  }
+
+  /**
+   * Parses the Retry-After header, which is either a number of seconds or an HTTP date.
+   */
+  private static Duration retryAfter(HttpResponse<?> response) {
+    String value = response.headers().firstValue("Retry-After").orElse(null);
+    if (value == null) {
+      return null;
+    }
+
+    try {
+      return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+    } catch (NumberFormatException e) {
+      // Try the date format
+    }
+
+    try {
+      ZonedDateTime date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+      Duration delay = Duration.between(ZonedDateTime.now(date.getZone()), date);
+      return delay.isNegative() ? Duration.ZERO : delay;
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  private static Path createTempFile(Path directory, String name) throws IOException {
+    if (directory != null) {
+      // The directory is only created once there is something to write, so requests for missing files don't leave
+      // empty directories behind
+      try {
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, name + "-", ".tmp");
+      } catch (IOException e) {
+        // The download is written to the temporary directory and copied instead
+      }
+    }
+
+    return Files.createTempFile("savant-net-tools", "download");
+  }
+
+  private static MessageDigest md5Digest(Path file) throws IOException {
+    MessageDigest digest = md5Digest();
+    try (InputStream is = Files.newInputStream(file)) {
+      byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+
+    return digest;
+  }
+
+  /**
+   * Parses the start of the Content-Range header of a 206 response (i.e. <code>bytes 100-199/1000</code>).
+   */
+  private static long rangeStart(HttpResponse<?> response) {
+    String value = response.headers().firstValue("Content-Range").orElse("");
+    if (!value.startsWith("bytes ")) {
+      return -1;
+    }
+
+    int dash = value.indexOf('-');
+    try {
+      return dash > 6 ? Long.parseLong(value.substring(6, dash).trim()) : -1;
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private static Download write(InputStream is, Path directory, String name) throws IOException {
+    Path file = createTempFile(directory, name);
+    MessageDigest digest = md5Digest();
+    try (OutputStream os = Files.newOutputStream(file)) {
+      byte[] buffer = new byte[64 * 1024];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+        os.write(buffer, 0, read);
+      }
+    } catch (IOException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+
+    return new Download(file, digest.digest());
+  }
+
+  /**
+   * Downloads a large file in parallel chunks. The first chunk is read from the response that is already open and the
+   * others are requested with range requests. Each chunk is written at its position in the file and the MD5 is
+   * calculated once the file is complete. If a chunk fails, the other chunks are aborted before their next write and
+   * the channel isn't closed until all of them have stopped.
+   */
+  private Download downloadChunks(URI uri, String username, String password, InputStream first, long length, Path file,
+                                  Executor executor) throws IOException {
+    long chunkSize = (length + chunks - 1) / chunks;
+    AtomicBoolean aborted = new AtomicBoolean();
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      List<CompletableFuture<Void>> futures = new ArrayList<>();
+      for (long start = chunkSize; start < length; start += chunkSize) {
+        long chunkStart = start;
+        long chunkEnd = Math.min(length, start + chunkSize) - 1;
+        futures.add(CompletableFuture.runAsync(() -> {
+          try {
+            downloadRange(uri, username, password, channel, chunkStart, chunkEnd, aborted);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        }, executor));
+      }
+
+      try {
+        long written = write(first, channel, 0, chunkSize, aborted);
+        if (written < chunkSize) {
+          // The first response was dropped, so request the rest of the first chunk
+          downloadRange(uri, username, password, channel, written, chunkSize - 1, aborted);
+        }
+
+        for (CompletableFuture<Void> future : futures) {
+          future.get();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while downloading [" + uri + "]");
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof UncheckedIOException uioe) {
+          throw uioe.getCause();
+        }
+
+        throw new IOException("Unable to download a chunk of [" + uri + "]", e.getCause());
+      } finally {
+        // Stop the remaining chunks and wait for them, since they write to the channel until they see the flag
+        aborted.set(true);
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).handle((result, e) -> null).join();
+      }
+    }
+
+    return new Download(file, md5Digest(file).digest());
+  }
+
+  /**
+   * Downloads the given byte range (inclusive) into the file, resuming from the last byte written if the transfer is
+   * dropped.
+   */
+  private void downloadRange(URI uri, String username, String password, FileChannel channel, long start, long end,
+                             AtomicBoolean aborted) throws IOException {
+    long position = start;
+    for (int attempt = 0; position <= end; attempt++) {
+      if (attempt > MaxResumes) {
+        throw new IOException("The download of the range [" + start + "-" + end + "] of [" + uri + "] was dropped too many times");
+      }
+
+      HttpResponse<InputStream> response = send(uri, username, password, "bytes=" + position + "-" + end, null);
+      try (InputStream is = response.body()) {
+        if (response.statusCode() != 206 || rangeStart(response) != position) {
+          throw new IOException("The server didn't return the range [" + position + "-" + end + "] of [" + uri + "]");
+        }
+
+        position += write(is, channel, position, end - position + 1, aborted);
+      }
+    }
+  }
+
+  private static boolean resumable(IOException e) {
+    // Socket timeouts are InterruptedIOExceptions too, but they aren't caused by an interrupt
+    return !(e instanceof InterruptedIOException) || e instanceof SocketTimeoutException;
+  }
+
+  private HttpResponse<InputStream> send(URI uri, String username, String password, String range, String ifRange)
+      throws IOException {
+    HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(readTimeout).GET();
+    if (username != null) {
+      String credentials = Base64.getEncoder().encodeToString((username + ":" + password).getBytes(StandardCharsets.UTF_8));
+      request.header("Authorization", "Basic " + credentials);
+    }
+
+    if (range != null) {
+      request.header("Range", range);
+    }
+
+    if (ifRange != null) {
+      request.header("If-Range", ifRange);
+    }
+
+    try {
+      // The request timeout only covers the headers, so the body is read through a stream that times out when it stalls
+      BodyHandler<InputStream> handler = (info) -> BodySubscribers.mapping(BodySubscribers.ofInputStream(),
+          (is) -> new IdleTimeoutInputStream(is, readTimeout));
+      return client.send(request.build(), handler);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while downloading [" + uri + "]");
+    }
+  }
+
+  /**
+   * Continues the partial file of a previous attempt with the body of a 206 response. The MD5 of the bytes that are
+   * already in the file is calculated first and the rest is appended while it is downloaded.
+   */
+  private byte[] resume(URI uri, String username, String password, InputStream is, Partial partial) throws IOException {
+    try (FileChannel channel = FileChannel.open(partial.file, StandardOpenOption.WRITE)) {
+      channel.truncate(partial.length);
+    }
+
+    MessageDigest digest = md5Digest(partial.file);
+    return stream(uri, username, password, is, true, partial.validator, partial.file, digest, partial.length, partial);
+  }
+
+  /**
+   * Streams the body of a response to the file at the given offset while calculating the MD5. If the transfer is dropped
+   * and the server supports range requests, the rest of the file is requested and appended. If it still fails and the
+   * file can be validated, the file is handed to the partial so that the next attempt can continue it.
+   *
+   * @param validator The validator that the range requests are sent with or null if the file can't be validated.
+   */
+  private byte[] stream(URI uri, String username, String password, InputStream is, boolean ranges, String validator,
+                        Path file, MessageDigest digest, long offset, Partial partial) throws IOException {
+    long written = offset;
+    int resumes = 0;
+    InputStream current = is;
+    OpenOption[] options = offset > 0
+        ? new OpenOption[]{StandardOpenOption.WRITE, StandardOpenOption.APPEND}
+        : new OpenOption[0];
+    try (OutputStream os = Files.newOutputStream(file, options)) {
+      byte[] buffer = new byte[64 * 1024];
+      while (true) {
+        try {
+          int read;
+          while ((read = current.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+            os.write(buffer, 0, read);
+            written += read;
+          }
+
+          return digest.digest();
+        } catch (IOException e) {
+          if (!ranges || resumes++ >= MaxResumes || !resumable(e)) {
+            keep(partial, file, written, validator, e);
+            throw e;
+          }
+
+          if (current != is) {
+            current.close();
+          }
+
+          HttpResponse<InputStream> resumed;
+          try {
+            resumed = send(uri, username, password, "bytes=" + written + "-", validator);
+          } catch (IOException re) {
+            e.addSuppressed(re);
+            keep(partial, file, written, validator, re);
+            throw e;
+          }
+
+          if (resumed.statusCode() != 206 || rangeStart(resumed) != written) {
+            resumed.body().close();
+            keep(partial, file, written, validator, e);
+            throw e;
+          }
+
+          current = resumed.body();
+        }
+      }
+    } finally {
+      if (current != is) {
+        current.close();
+      }
+    }
+  }
+
+  /**
+   * Hands the file of a failed download to the partial if the next attempt can continue it. Otherwise, the partial is
+   * cleared and the caller deletes the file.
+   */
+  private static void keep(Partial partial, Path file, long written, String validator, IOException failure) {
+    if (partial == null) {
+      return;
+    }
+
+    boolean keep = validator != null && written > 0 && resumable(failure);
+    partial.file = keep ? file : null;
+    partial.length = keep ? written : 0;
+    partial.validator = keep ? validator : null;
+  }
+
+  /**
+   * Writes up to the given number of bytes from the stream to the channel at the given position.
+   *
+   * @return The number of bytes written, which is less than the count if the stream ended early or the transfer was
+   *     dropped.
+   * @throws IOException If the read failed or the download was aborted.
+   */
+  private long write(InputStream is, FileChannel channel, long position, long count, AtomicBoolean aborted)
+      throws IOException {
+    byte[] buffer = new byte[64 * 1024];
+    long written = 0;
+    while (written < count) {
+      if (aborted.get()) {
+        throw new IOException("The download was aborted because another chunk failed");
+      }
+
+      int read;
+      try {
+        read = is.read(buffer, 0, (int) Math.min(buffer.length, count - written));
+      } catch (IOException e) {
+        if (!resumable(e)) {
+          throw e;
+        }
+
+        break;
+      }
+
+      if (read == -1) {
+        break;
+      }
+
+      ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+      while (bytes.hasRemaining()) {
+        written += channel.write(bytes, position + written);
+      }
+    }
+
+    return written;
+  }
+
+  /**
+   * A downloaded temporary file and its MD5 bytes.
+   */
+  public record Download(Path file, byte[] md5) {
+  }
+
+  /**
+   * A partially downloaded file that is kept between the attempts of a download, so that the next attempt continues it
+   * with a range request rather than starting over. The owner deletes the file if the download is given up.
+   */
+  static class Partial {
+    Path file;
+
+    long length;
+
+    String validator;
+
+    /**
+     * Deletes the partial file so that the next attempt starts over.
+     */
+    void discard() {
+      Path discarded = file;
+      file = null;
+      length = 0;
+      validator = null;
+      if (discarded != null) {
+        try {
+          Files.deleteIfExists(discarded);
+        } catch (IOException e) {
+          // The CacheCollector removes stale temporary files
+        }
+      }
+    }
+  }
+
+  /**
+   * Fails a read of the response body that blocks for longer than the timeout. The watchdog closes the stream, which
+   * wakes up the blocked read, and the read then throws a {@link SocketTimeoutException} rather than returning the end
+   * of the stream, so a stalled body is never mistaken for a complete one.
+   */
+  private static class IdleTimeoutInputStream extends FilterInputStream {
+    private final ScheduledFuture<?> check;
+
+    private final long timeoutNanos;
+
+    private volatile boolean expired;
+
+    private volatile long readStart;
+
+    IdleTimeoutInputStream(InputStream is, Duration timeout) {
+      super(is);
+      this.timeoutNanos = timeout.toNanos();
+
+      long period = Math.max(10, timeout.toMillis() / 4);
+      this.check = watchdog.scheduleWithFixedDelay(this::check, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() throws IOException {
+      check.cancel(false);
+      super.close();
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      int read = read(b, 0, 1);
+      return read == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      // Never zero, which means that no read is in progress
+      readStart = System.nanoTime() | 1;
+      int read;
+      try {
+        read = in.read(b, off, len);
+      } catch (IOException e) {
+        if (expired) {
+          SocketTimeoutException timeout = new SocketTimeoutException("The response body stalled");
+          timeout.addSuppressed(e);
+          throw timeout;
+        }
+
+        throw e;
+      } finally {
+        readStart = 0;
+      }
+
+      if (expired) {
+        throw new SocketTimeoutException("The response body stalled");
+      }
+
+      return read;
+    }
+
+    private void check() {
+      long start = readStart;
+      if (start == 0 || System.nanoTime() - start < timeoutNanos) {
+        return;
+      }
+
+      expired = true;
+      try {
+        close();
+      } catch (IOException e) {
+        // The read fails either way
+      }
+    }
+  }
+}
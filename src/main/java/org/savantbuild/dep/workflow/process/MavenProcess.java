@@ -31,6 +31,31 @@ public class MavenProcess extends URLProcess {
     super(output, url, username, password, ItemSource.MAVEN);
   }
 
+  /**
+   * Creates a MavenProcess that downloads using the given transport rather than the shared transport for the URL.
+   */
+  public MavenProcess(Output output, String url, String username, String password, HttpTransport transport) {
+    super(output, url, username, password, ItemSource.MAVEN, transport, RetryPolicy.Default, null);
+  }
+
+  /**
+   * Creates a MavenProcess that downloads using the given transport and retries failed downloads using the given
+   * policy.
+   */
+  public MavenProcess(Output output, String url, String username, String password, HttpTransport transport,
+                      RetryPolicy retryPolicy) {
+    super(output, url, username, password, ItemSource.MAVEN, transport, retryPolicy, null);
+  }
+
+  /**
+   * Creates a MavenProcess that downloads using the given transport, retries failed downloads using the given policy
+   * and skips the requests for files that the negative cache knows are missing.
+   */
+  public MavenProcess(Output output, String url, String username, String password, HttpTransport transport,
+                      RetryPolicy retryPolicy, RemoteNegativeCache negativeCache) {
+    super(output, url, username, password, ItemSource.MAVEN, transport, retryPolicy, negativeCache);
+  }
+
   @Override
   public String toString() {
     return "Maven(" + url + ")";
@@ -15,7 +15,9 @@
  */
 package org.savantbuild.dep.workflow.process;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.concurrent.Executor;
 
 import org.savantbuild.dep.domain.ResolvableItem;
 import org.savantbuild.dep.workflow.PublishWorkflow;
@@ -42,6 +44,36 @@ public interface Process {
    */
   FetchResult fetch(ResolvableItem item, PublishWorkflow publishWorkflow) throws ProcessFailureException;
 
+  /**
+   * Attempts to fetch the given item and runs any work that the process does in parallel (i.e. downloads) on the given
+   * executor, which is the download executor of the Workflow that is fetching the item. The executor is unbounded, so
+   * the work can wait for other work that it submits. The default implementation ignores the executor and calls
+   * {@link #fetch(ResolvableItem, PublishWorkflow)}.
+   *
+   * @param item            The item being fetched.
+   * @param publishWorkflow The PublishWorkflow that is used to store the item if it can be found.
+   * @param executor        The executor for the work that the process does in parallel.
+   * @return A FetchResult containing the Path to the item on the local disk and its source, or null if the item does
+   *     not exist and there were no failures.
+   * @throws ProcessFailureException If the process failed when fetching the artifact.
+   */
+  default FetchResult fetch(ResolvableItem item, PublishWorkflow publishWorkflow, Executor executor)
+      throws ProcessFailureException {
+    return fetch(item, publishWorkflow);
+  }
+
+  /**
+   * Determines if the given file is in a location that this process publishes to (i.e. one of its cache directories).
+   * Derived files such as the binary form of an AMD file are only written next to files in these locations. The
+   * default implementation returns false.
+   *
+   * @param file The file.
+   * @return True if the process publishes to the location of the file.
+   */
+  default boolean owns(Path file) {
+    return false;
+  }
+
   /**
    * Attempts to publish the given item. The item is normally associated with the artifact, but might be associated with
    * a group or project. This method can use the artifact for logging or other purposes, but should use the item String
@@ -56,4 +88,38 @@ public interface Process {
    * @throws ProcessFailureException If there was any issue publishing.
    */
   Path publish(FetchResult fetchResult) throws ProcessFailureException;
+
+  /**
+   * Publishes a negative marker for the given item, which records that the item doesn't exist anywhere so that it isn't
+   * fetched again. The default implementation publishes an empty <code>.neg</code> file with
+   * {@link #publish(FetchResult)}.
+   *
+   * @param item   The item that doesn't exist.
+   * @param source The source to tag the negative marker with.
+   * @throws ProcessFailureException If there was any issue publishing.
+   */
+  default void publishNegative(ResolvableItem item, ItemSource source) throws ProcessFailureException {
+    Path empty;
+    try {
+      empty = CacheFiles.empty();
+    } catch (IOException e) {
+      throw new ProcessFailureException(item, e);
+    }
+
+    publish(new FetchResult(empty, source, new ResolvableItem(item, item.item + ".neg")));
+  }
+
+  /**
+   * Returns the directory where downloads of the given item should be written before they are published. Writing the
+   * download into the same directory that the item is published to allows {@link #publish(FetchResult)} to move an
+   * {@link FetchResult#owned() owned} download into place with an atomic rename rather than copying it.
+   *
+   * @param item   The item being fetched.
+   * @param source The source that the item is being fetched from.
+   * @return The directory, which might not exist yet, or null if this process doesn't publish the item to a local
+   *     directory.
+   */
+  default Path stagingDirectory(ResolvableItem item, ItemSource source) {
+    return null;
+  }
 }
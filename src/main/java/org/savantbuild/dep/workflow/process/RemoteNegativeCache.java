@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Remembers which files a remote repository doesn't have so that they aren't requested again until the TTL expires.
+ * Entries are keyed by the repository URL and the path of the file in the repository. They are kept in memory and, if
+ * a directory is given, as empty marker files on disk so that they survive across builds. The modification time of a
+ * marker file is the time that the file was found to be missing.
+ * <p>
+ * Unlike the negative files in the local cache (which record that an item doesn't exist anywhere), these entries
+ * expire, because a repository can gain a file later (i.e. a new release).
+ *
+ * @author Brian Pontarelli
+ */
+public class RemoteNegativeCache {
+  /**
+   * The default amount of time that a missing file is remembered.
+   */
+  public static final Duration DefaultTTL = Duration.ofHours(24);
+
+  /**
+   * The directory that holds the marker files or null if the cache is only in memory.
+   */
+  public final Path directory;
+
+  public final Duration ttl;
+
+  private final Map<String, Long> entries = new ConcurrentHashMap<>();
+
+  public RemoteNegativeCache(Path directory, Duration ttl) {
+    this.directory = directory;
+    this.ttl = Objects.requireNonNull(ttl, "The ttl is required");
+  }
+
+  /**
+   * Removes all the entries from memory and disk.
+   */
+  public void clear() {
+    entries.clear();
+    if (directory == null || !Files.isDirectory(directory)) {
+      return;
+    }
+
+    try (Stream<Path> files = Files.walk(directory)) {
+      files.filter(Files::isRegularFile).forEach((file) -> {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          // Smother since the entry will expire anyway
+        }
+      });
+    } catch (IOException e) {
+      // Smother since the entries will expire anyway
+    }
+  }
+
+  /**
+   * Determines if the file was recently found to be missing from the repository.
+   *
+   * @param url  The repository URL.
+   * @param path The path of the file in the repository.
+   * @return True if the file is known to be missing and the entry hasn't expired.
+   */
+  public boolean isMissing(String url, String path) {
+    String key = url + "|" + path;
+    long now = System.currentTimeMillis();
+    Long recorded = entries.get(key);
+    if (recorded != null) {
+      if (recorded + ttl.toMillis() > now) {
+        return true;
+      }
+
+      entries.remove(key, recorded);
+    }
+
+    if (directory == null) {
+      return false;
+    }
+
+    Path marker = marker(url, path);
+    try {
+      long modified = Files.getLastModifiedTime(marker).toMillis();
+      if (modified + ttl.toMillis() > now) {
+        entries.put(key, modified);
+        return true;
+      }
+
+      Files.deleteIfExists(marker);
+    } catch (IOException e) {
+      // The marker doesn't exist or can't be read
+    }
+
+    return false;
+  }
+
+  /**
+   * Records that the file is missing from the repository.
+   *
+   * @param url  The repository URL.
+   * @param path The path of the file in the repository.
+   */
+  public void recordMissing(String url, String path) {
+    long now = System.currentTimeMillis();
+    entries.put(url + "|" + path, now);
+    if (directory == null) {
+      return;
+    }
+
+    Path marker = marker(url, path);
+    try {
+      Files.createDirectories(marker.getParent());
+      if (!Files.exists(marker)) {
+        Files.createFile(marker);
+      }
+
+      Files.setLastModifiedTime(marker, FileTime.fromMillis(now));
+    } catch (IOException e) {
+      // This is only an optimization, so the file will be requested again next time
+    }
+  }
+
+  private Path marker(String url, String path) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+      return directory.resolve(HexFormat.of().formatHex(hash, 0, 16)).resolve(path + ".missing");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.FileSystemException;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Controls how the remote processes retry failed downloads. Failed attempts are retried with an exponential backoff
+ * that has jitter so that many builds hitting the same repository don't retry in lockstep. If the server sends a
+ * Retry-After header, that delay is used instead, even if it is longer than the maximum backoff. Retries stop once the
+ * maximum number of attempts is reached or the next retry would start after the deadline.
+ * <p>
+ * Network failures are retried, since the HTTP client reports most of them (connection resets, GOAWAY and RST_STREAM
+ * frames, empty responses) as plain IOExceptions. Local file system errors, missing files, interrupts and the HTTP status
+ * codes that aren't retryable are never retried.
+ *
+ * @author Brian Pontarelli
+ */
+public class RetryPolicy {
+  /**
+   * The HTTP status codes that are retried by default.
+   */
+  public static final Set<Integer> DefaultRetryableStatusCodes = Set.of(429, 502, 503, 504);
+
+  /**
+   * The default policy. This makes up to 4 attempts, starting with a 100 ms backoff and giving up after 30 seconds.
+   */
+  public static final RetryPolicy Default = new RetryPolicy(4, Duration.ofMillis(100), Duration.ofSeconds(10), Duration.ofSeconds(30),
+      DefaultRetryableStatusCodes);
+
+  /**
+   * A policy that never retries.
+   */
+  public static final RetryPolicy None = new RetryPolicy(1, Duration.ZERO, Duration.ZERO, Duration.ZERO, Set.of());
+
+  public final Duration deadline;
+
+  public final Duration initialBackoff;
+
+  public final int maxAttempts;
+
+  public final Duration maxBackoff;
+
+  public final Set<Integer> retryableStatusCodes;
+
+  /**
+   * @param maxAttempts          The maximum number of attempts including the first one.
+   * @param initialBackoff       The backoff before the first retry. Each retry after that doubles it.
+   * @param maxBackoff           The maximum backoff between two attempts.
+   * @param deadline             The maximum amount of time from the start of the first attempt to the start of the last
+   *                             retry.
+   * @param retryableStatusCodes The HTTP status codes that are retried.
+   */
+  public RetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff, Duration deadline,
+                     Set<Integer> retryableStatusCodes) {
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("The maxAttempts of the RetryPolicy must be positive");
+    }
+
+    this.maxAttempts = maxAttempts;
+    this.initialBackoff = Objects.requireNonNull(initialBackoff, "The initialBackoff is required");
+    this.maxBackoff = Objects.requireNonNull(maxBackoff, "The maxBackoff is required");
+    this.deadline = Objects.requireNonNull(deadline, "The deadline is required");
+    this.retryableStatusCodes = Set.copyOf(retryableStatusCodes);
+  }
+
+  /**
+   * Determines how long to wait before the given retry. If the failure has a Retry-After delay, that delay is used as is,
+   * because retrying earlier than the server allowed only fails again. Otherwise, the delay is picked at random between
+   * half of and the full exponential backoff for the attempt.
+   *
+   * @param attempt The attempt that failed, starting at 1.
+   * @param failure The failure.
+   * @return The delay. Unless the server sent a Retry-After delay, this is never more than the maximum backoff.
+   */
+  public Duration backoff(int attempt, IOException failure) {
+    if (failure instanceof HttpStatusException hse && hse.retryAfter != null) {
+      return hse.retryAfter;
+    }
+
+    long max = maxBackoff.toMillis();
+    long backoff = Math.min(max, initialBackoff.toMillis() << Math.min(attempt - 1, 30));
+    if (backoff <= 1) {
+      return Duration.ofMillis(backoff);
+    }
+
+    return Duration.ofMillis(ThreadLocalRandom.current().nextLong(backoff / 2, backoff + 1));
+  }
+
+  /**
+   * Determines if the failure might be temporary and can be retried. Any IOException is treated as a network failure
+   * and retried, except for local file system errors (like a full disk or a missing file), HTTP status codes that aren't
+   * retryable and interrupts. Timeouts are retried even though some of them are InterruptedIOExceptions.
+   *
+   * @param failure The failure.
+   * @return True if the failure can be retried.
+   */
+  public boolean isRetryable(IOException failure) {
+    // The HTTP client and the chunked downloads wrap the failures, so check the causes too
+    for (Throwable t = failure; t != null; t = t.getCause()) {
+      if (t instanceof HttpStatusException hse) {
+        return retryableStatusCodes.contains(hse.statusCode);
+      }
+
+      if (t instanceof FileSystemException || t instanceof FileNotFoundException || t instanceof ClosedByInterruptException) {
+        return false;
+      }
+
+      if (t instanceof InterruptedIOException && !(t instanceof SocketTimeoutException)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+}
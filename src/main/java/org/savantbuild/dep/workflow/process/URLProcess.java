@@ -17,13 +17,26 @@ package org.savantbuild.dep.workflow.process;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.savantbuild.dep.domain.ResolvableItem;
 import org.savantbuild.dep.workflow.PublishWorkflow;
+import org.savantbuild.dep.workflow.WorkflowExecutors;
+import org.savantbuild.dep.workflow.process.HttpTransport.Download;
+import org.savantbuild.dep.workflow.process.HttpTransport.Partial;
 import org.savantbuild.net.NetTools;
 import org.savantbuild.output.Output;
 import org.savantbuild.security.MD5;
@@ -48,13 +61,52 @@ public class URLProcess implements Process {
 
   public final String username;
 
+  /**
+   * The cache of files that this repository is known not to have or null if missing files aren't cached.
+   */
+  public final RemoteNegativeCache negativeCache;
+
+  public final RetryPolicy retryPolicy;
+
+  public final HttpTransport transport;
+
   protected final ItemSource itemSource;
 
   public URLProcess(Output output, String url, String username, String password) {
     this(output, url, username, password, ItemSource.SAVANT);
   }
 
+  /**
+   * Creates a URLProcess that downloads using the given transport rather than the shared transport for the URL. This
+   * allows the timeouts to be configured.
+   */
+  public URLProcess(Output output, String url, String username, String password, HttpTransport transport) {
+    this(output, url, username, password, ItemSource.SAVANT, transport, RetryPolicy.Default, null);
+  }
+
+  /**
+   * Creates a URLProcess that downloads using the given transport and retries failed downloads using the given policy.
+   */
+  public URLProcess(Output output, String url, String username, String password, HttpTransport transport,
+                    RetryPolicy retryPolicy) {
+    this(output, url, username, password, ItemSource.SAVANT, transport, retryPolicy, null);
+  }
+
+  /**
+   * Creates a URLProcess that downloads using the given transport, retries failed downloads using the given policy and
+   * skips the requests for files that the negative cache knows are missing.
+   */
+  public URLProcess(Output output, String url, String username, String password, HttpTransport transport,
+                    RetryPolicy retryPolicy, RemoteNegativeCache negativeCache) {
+    this(output, url, username, password, ItemSource.SAVANT, transport, retryPolicy, negativeCache);
+  }
+
   protected URLProcess(Output output, String url, String username, String password, ItemSource itemSource) {
+    this(output, url, username, password, itemSource, url != null ? HttpTransport.forURL(url) : null, RetryPolicy.Default, null);
+  }
+
+  protected URLProcess(Output output, String url, String username, String password, ItemSource itemSource,
+                       HttpTransport transport, RetryPolicy retryPolicy, RemoteNegativeCache negativeCache) {
     this.output = output;
 
     Objects.requireNonNull(url, "The [url] attribute is required for the [url] workflow process");
@@ -67,11 +119,19 @@ public class URLProcess implements Process {
     this.username = username;
     this.password = password;
     this.itemSource = itemSource;
+    this.transport = Objects.requireNonNull(transport, "The [transport] is required for the [url] workflow process");
+    this.retryPolicy = Objects.requireNonNull(retryPolicy, "The [retryPolicy] is required for the [url] workflow process");
+    this.negativeCache = negativeCache;
   }
 
   /**
    * Using the URL spec given, this method connects to the URL, reads the file from the URL and stores the file in the
    * local cache store. The artifact is used to determine the local cache store directory and file name.
+   * <p>
+   * The MD5 files and the items of the primary item and all the alternative items are requested at the same time, so a
+   * missing primary item doesn't cost another round trip. The candidates are then checked in order and the first one
+   * that exists is verified and published. The downloads of the other candidates are cancelled as soon as a candidate
+   * is found, which interrupts their transfers, and their files are deleted.
    *
    * @param item            The item to fetch.
    * @param publishWorkflow The publishWorkflow to publish the artifact if found.
@@ -79,34 +139,64 @@ public class URLProcess implements Process {
    */
   @Override
   public FetchResult fetch(ResolvableItem item, PublishWorkflow publishWorkflow) throws ProcessFailureException {
-    // Try primary item first
-    FetchResult result = tryFetchCandidate(item, item.item, publishWorkflow);
-    if (result != null) {
-      return result;
-    }
+    return fetch(item, publishWorkflow, WorkflowExecutors.shared());
+  }
 
-    // Try alternatives
-    for (String alt : item.alternativeItems) {
-      result = tryFetchCandidate(item, alt, publishWorkflow);
-      if (result != null) {
-        return result;
+  /**
+   * Fetches the item like {@link #fetch(ResolvableItem, PublishWorkflow)} and runs the downloads on the given executor.
+   */
+  @Override
+  public FetchResult fetch(ResolvableItem item, PublishWorkflow publishWorkflow, Executor executor)
+      throws ProcessFailureException {
+    List<Candidate> candidates = new ArrayList<>();
+    try {
+      candidates.add(startCandidate(item, item.item, publishWorkflow, executor));
+      for (String alternativeItem : item.alternativeItems) {
+        candidates.add(startCandidate(item, alternativeItem, publishWorkflow, executor));
       }
+
+      for (int i = 0; i < candidates.size(); i++) {
+        List<Candidate> later = candidates.subList(i + 1, candidates.size());
+        FetchResult result = tryFetchCandidate(item, candidates.get(i), publishWorkflow, () -> later.forEach(Candidate::discard));
+        if (result != null) {
+          return result;
+        }
+      }
+
+      return null;
+    } finally {
+      // The candidate that was used is claimed, so this only cancels the others
+      candidates.forEach(Candidate::discard);
     }
+  }
 
-    return null;
+  private Candidate startCandidate(ResolvableItem item, String candidateItem, PublishWorkflow publishWorkflow,
+                                   Executor executor) {
+    // Write the downloads next to where they will be published so that publishing is a rename rather than a copy
+    ResolvableItem matchedItem = candidateItem.equals(item.item) ? item : new ResolvableItem(item, candidateItem);
+    Path directory = publishWorkflow.stagingDirectory(matchedItem, itemSource);
+
+    String path = String.join("/", item.group.replace('.', '/'), item.project, item.version, candidateItem);
+    URI md5URI = NetTools.build(url, item.group.replace('.', '/'), item.project, item.version, candidateItem + ".md5");
+    URI itemURI = NetTools.build(url, item.group.replace('.', '/'), item.project, item.version, candidateItem);
+    output.debugln("      - Download [" + md5URI + "] and [" + itemURI + "]");
+
+    Candidate candidate = new Candidate(candidateItem, itemURI);
+    candidate.md5 = downloadAsync(candidate, md5URI, path + ".md5", directory, executor);
+    candidate.item = downloadAsync(candidate, itemURI, path, directory, executor);
+    return candidate;
   }
 
-  private FetchResult tryFetchCandidate(ResolvableItem item, String candidateItem, PublishWorkflow publishWorkflow)
-      throws ProcessFailureException {
+  private FetchResult tryFetchCandidate(ResolvableItem item, Candidate candidate, PublishWorkflow publishWorkflow,
+                                        Runnable discardLater) throws ProcessFailureException {
     try {
-      URI md5URI = NetTools.build(url, item.group.replace('.', '/'), item.project, item.version, candidateItem + ".md5");
-      output.debugln("      - Download [" + md5URI + "]");
-      Path md5File = downloadToPath(md5URI, username, password, null);
-      if (md5File == null) {
+      Download md5Download = await(item, candidate.md5);
+      if (md5Download == null) {
         output.debugln("      - Not found");
         return null;
       }
 
+      Path md5File = md5Download.file();
       MD5 md5;
       try {
         md5 = MD5.load(md5File);
@@ -115,31 +205,36 @@ public class URLProcess implements Process {
         throw new ProcessFailureException(item, e);
       }
 
-      URI itemURI = NetTools.build(url, item.group.replace('.', '/'), item.project, item.version, candidateItem);
-      output.debugln("      - Download [" + itemURI + "]");
-      Path itemFile;
-      try {
-        itemFile = downloadToPath(itemURI, username, password, md5);
-      } catch (MD5Exception e) {
-        throw new MD5Exception("MD5 mismatch when fetching item from [" + itemURI + "]");
+      Download itemDownload = await(item, candidate.item);
+      if (itemDownload == null) {
+        output.debugln("      - Not found");
+        return null;
       }
 
-      if (itemFile != null) {
-        output.infoln("Downloaded [%s]", itemURI);
-        ResolvableItem matchedItem = candidateItem.equals(item.item) ? item : new ResolvableItem(item, candidateItem);
-        ResolvableItem md5Item = new ResolvableItem(item, candidateItem + ".md5");
-        publishWorkflow.publish(new FetchResult(md5File, itemSource, md5Item));
-        try {
-          Path publishedFile = publishWorkflow.publish(new FetchResult(itemFile, itemSource, matchedItem));
-          return new FetchResult(publishedFile != null ? publishedFile : itemFile, itemSource, matchedItem);
-        } catch (ProcessFailureException e) {
-          throw new ProcessFailureException(item, e);
-        }
-      } else {
-        output.debugln("      - Not found");
+      // The candidate's files are now handled here and the later candidates aren't needed
+      synchronized (candidate) {
+        candidate.claimed = true;
       }
 
-      return null;
+      discardLater.run();
+
+      Path itemFile = itemDownload.file();
+      if (md5 != null && md5.bytes != null && !MessageDigest.isEqual(itemDownload.md5(), md5.bytes)) {
+        Files.delete(itemFile);
+        Files.deleteIfExists(md5File);
+        throw new MD5Exception("MD5 mismatch when fetching item from [" + candidate.itemURI + "]");
+      }
+
+      output.infoln("Downloaded [%s]", candidate.itemURI);
+      ResolvableItem matchedItem = candidate.candidateItem.equals(item.item) ? item : new ResolvableItem(item, candidate.candidateItem);
+      ResolvableItem md5Item = new ResolvableItem(item, candidate.candidateItem + ".md5");
+      publishWorkflow.publish(new FetchResult(md5File, itemSource, md5Item, true));
+      try {
+        Path publishedFile = publishWorkflow.publish(new FetchResult(itemFile, itemSource, matchedItem, true));
+        return new FetchResult(publishedFile != null ? publishedFile : itemFile, itemSource, matchedItem);
+      } catch (ProcessFailureException e) {
+        throw new ProcessFailureException(item, e);
+      }
     } catch (FileNotFoundException e) {
       // Special case for file:// URLs
       return null;
@@ -161,30 +256,176 @@ public class URLProcess implements Process {
     return "URL(" + url + ")";
   }
 
-  private Path downloadToPath(URI uri, String username, String password, MD5 md5) throws IOException {
+  /**
+   * Waits for a download and rethrows the IOException or RuntimeException if it failed.
+   */
+  private Download await(ResolvableItem item, Future<Download> future) throws IOException {
     try {
-      return NetTools.downloadToPath(uri, username, password, md5);
-    } catch (IOException e) {
-      // Do not retry a FileNotFoundException
-      if (e instanceof FileNotFoundException) {
-        throw e;
-      }
-
-      long ms = 5_000;
-      String reason = "[" + e.getClass() + "] " + e.getMessage();
-      String cause = e.getCause() != null
-          ? "[" + e.getCause().getClass() + "] " + e.getCause().getMessage()
-          : "-";
-      output.infoln(
-          "      - Retry Download [" + uri + "] after [" + ms + "] ms\n" +
-              "          Reason: " + reason + "\n" +
-              "          Cause: " + cause);
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while downloading [" + item + "]");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException ioe) {
+        throw ioe;
+      }
+
+      if (cause instanceof RuntimeException re) {
+        throw re;
+      }
+
+      if (cause instanceof Error error) {
+        throw error;
+      }
+
+      throw new ProcessFailureException(item, cause);
+    }
+  }
+
+  private Future<Download> downloadAsync(Candidate candidate, URI uri, String path, Path directory, Executor executor) {
+    if (negativeCache != null && negativeCache.isMissing(url, path)) {
+      output.debugln("      - Known to be missing [" + uri + "]");
+      return CompletableFuture.completedFuture(null);
+    }
+
+    // A FutureTask rather than a CompletableFuture so that cancelling the download interrupts the thread running it
+    FutureTask<Download> task = new FutureTask<>(() -> {
+      Download download = downloadWithRetry(uri, directory, executor);
+      if (download == null) {
+        if (negativeCache != null) {
+          negativeCache.recordMissing(url, path);
+        }
+
+        return null;
+      }
+
+      if (!candidate.keep(download.file())) {
+        Files.deleteIfExists(download.file());
+        return null;
+      }
+
+      return download;
+    });
+    executor.execute(task);
+    return task;
+  }
+
+  /**
+   * Downloads the URI and retries the download using the retry policy. A download that was dropped part of the way
+   * through leaves its partial file for the next attempt, which continues it with a range request. The partial file is
+   * deleted if the download is given up.
+   */
+  private Download downloadWithRetry(URI uri, Path directory, Executor executor) throws IOException {
+    Partial partial = new Partial();
+    try {
+      return downloadWithRetry(uri, directory, executor, partial);
+    } catch (IOException | RuntimeException e) {
+      partial.discard();
+      throw e;
+    }
+  }
+
+  private Download downloadWithRetry(URI uri, Path directory, Executor executor, Partial partial) throws IOException {
+    long start = System.nanoTime();
+    for (int attempt = 1; ; attempt++) {
       try {
-        Thread.sleep(ms);
-      } catch (InterruptedException ignore) {
+        return transport.download(uri, username, password, directory, executor, partial);
+      } catch (IOException e) {
+        if (attempt >= retryPolicy.maxAttempts || !retryPolicy.isRetryable(e)) {
+          throw e;
+        }
+
+        // A Retry-After delay that goes past the deadline gives up right away rather than retrying too early
+        Duration backoff = retryPolicy.backoff(attempt, e);
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        if (backoff.compareTo(retryPolicy.deadline.minus(elapsed)) > 0) {
+          throw e;
+        }
+
+        String reason = "[" + e.getClass() + "] " + e.getMessage();
+        String cause = e.getCause() != null
+            ? "[" + e.getCause().getClass() + "] " + e.getCause().getMessage()
+            : "-";
+        output.infoln(
+            "      - Retry Download [" + uri + "] after [" + backoff.toMillis() + "] ms (attempt [" + (attempt + 1) + "] of [" + retryPolicy.maxAttempts + "])\n" +
+                "          Reason: " + reason + "\n" +
+                "          Cause: " + cause);
+        try {
+          // Sleeping unmounts a virtual thread, so this doesn't hold a carrier thread during the back-off
+          Thread.sleep(backoff.toMillis());
+        } catch (InterruptedException ie) {
+          // The fetch was cancelled, so don't retry and keep the interrupt for the caller
+          Thread.currentThread().interrupt();
+          InterruptedIOException interrupted = new InterruptedIOException("Interrupted before retrying the download of [" + uri + "]");
+          interrupted.addSuppressed(e);
+          throw interrupted;
+        }
+      }
+    }
+  }
+
+  /**
+   * The in-flight downloads of the MD5 file and the item for one of the candidate items.
+   */
+  private static class Candidate {
+    final String candidateItem;
+
+    final List<Path> files = new ArrayList<>();
+
+    final URI itemURI;
+
+    boolean claimed;
+
+    boolean discarded;
+
+    Future<Download> item;
+
+    Future<Download> md5;
+
+    Candidate(String candidateItem, URI itemURI) {
+      this.candidateItem = candidateItem;
+      this.itemURI = itemURI;
+    }
+
+    /**
+     * Cancels the downloads and deletes their temporary files unless the candidate was used. Cancelling interrupts the
+     * downloads that are still running, which delete their own files when they fail.
+     */
+    void discard() {
+      List<Path> completed;
+      synchronized (this) {
+        if (claimed) {
+          return;
+        }
+
+        discarded = true;
+        completed = new ArrayList<>(files);
+      }
+
+      md5.cancel(true);
+      item.cancel(true);
+      for (Path file : completed) {
+        try {
+          Files.deleteIfExists(file);
+        } catch (IOException e) {
+          // The CacheCollector removes stale temporary files
+        }
+      }
+    }
+
+    /**
+     * Records the file of a download that completed.
+     *
+     * @return False if the candidate was already discarded, in which case the caller deletes the file.
+     */
+    synchronized boolean keep(Path file) {
+      if (discarded) {
+        return false;
       }
 
-      return NetTools.downloadToPath(uri, username, password, md5);
+      files.add(file);
+      return true;
     }
   }
 }
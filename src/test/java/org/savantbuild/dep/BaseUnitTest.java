@@ -49,6 +49,11 @@ public abstract class BaseUnitTest {
 
   public static Path integration;
 
+  /**
+   * The integration directory that the tests publish to, so that the fixtures in test-deps are never written to.
+   */
+  public static Path integrationCache;
+
   public static Path mavenCache;
 
   public static Path projectDir;
@@ -60,6 +65,7 @@ public abstract class BaseUnitTest {
     projectDir = Paths.get("../savant-dependency-management");
     cache = projectDir.resolve("build/test/cache");
     integration = projectDir.resolve("test-deps/integration");
+    integrationCache = projectDir.resolve("build/test/integration");
     mavenCache = projectDir.resolve("build/test/maven-cache");
 
     workflow = new Workflow(
@@ -69,7 +75,7 @@ public abstract class BaseUnitTest {
             new URLProcess(output, "http://localhost:7042/test-deps/savant", null, null)
         ),
         new PublishWorkflow(
-            new CacheProcess(output, cache.toString(), integration.toString(), null)
+            new CacheProcess(output, cache.toString(), integrationCache.toString(), null)
         ),
         output
     );
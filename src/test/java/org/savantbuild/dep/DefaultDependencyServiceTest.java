@@ -20,13 +20,16 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
+import org.savantbuild.dep.DependencyService.PrefetchResult;
 import org.savantbuild.dep.DependencyService.TraversalRules;
 import org.savantbuild.dep.DependencyService.TraversalRules.GroupTraversalRule;
 import org.savantbuild.dep.domain.Artifact;
@@ -214,7 +217,7 @@ public class DefaultDependencyServiceTest extends BaseUnitTest {
             new URLProcess(output, "http://localhost:7042/test-deps/savant", null, null)
         ),
         new PublishWorkflow(
-            new CacheProcess(output, cache.toString(), integration.toString(), null)
+            new CacheProcess(output, cache.toString(), integrationCache.toString(), null)
         ),
         output
     );
@@ -270,6 +273,102 @@ public class DefaultDependencyServiceTest extends BaseUnitTest {
     }
   }
 
+  @Test
+  public void buildGraphParallel() {
+    DependencyGraph actual = service.buildGraph(project, dependencies, workflow, 4);
+    assertEquals(actual, goodGraph);
+    assertEquals(actual, service.buildGraph(project, dependencies, workflow));
+  }
+
+  @Test
+  public void buildGraphParallelExclusions() {
+    dependencies = new Dependencies(
+        new DependencyGroup("compile", true,
+            new Artifact(multipleVersions.id, new Version("1.0.0"), Collections.singletonList(leaf1.id)),
+            new Artifact(multipleVersionsDifferentDeps.id, new Version("1.0.0"), Collections.singletonList(new ArtifactID("org.savantbuild.test:leaf2:*:*")))
+        ),
+        new DependencyGroup("runtime", true,
+            new Artifact(intermediate.id, new Version("1.0.0"), Arrays.asList(integrationBuild.id, leaf2_2.id))
+        )
+    );
+
+    DependencyGraph expected = service.buildGraph(project, dependencies, workflow);
+    DependencyGraph actual = service.buildGraph(project, dependencies, workflow, 4);
+    assertEquals(actual, expected);
+  }
+
+  @Test
+  public void buildGraphParallelFailureMissingDependency() {
+    try {
+      Dependencies dependencies = makeSimpleDependencies("org.savantbuild.test:missing:1.0.0");
+      service.buildGraph(project, dependencies, workflow, 4);
+      fail("Should have failed");
+    } catch (ArtifactMetaDataMissingException e) {
+      assertEquals(e.artifactMissingAMD, new Artifact("org.savantbuild.test:missing:1.0.0"));
+    }
+  }
+
+  @Test
+  public void buildReducedGraphLockFile() throws IOException {
+    Path lockFile = projectDir.resolve("build/test/savant.lock");
+    Files.deleteIfExists(lockFile);
+
+    Dependencies dependencies = makeSimpleDependencies("org.savantbuild.test:multiple-versions-different-dependencies:1.0.0");
+    TraversalRules rules = new TraversalRules().with("compile", new GroupTraversalRule(true, true));
+    ArtifactGraph expected = service.reduce(service.buildGraph(project, dependencies, workflow));
+    assertEquals(service.buildReducedGraph(project, dependencies, workflow, rules, lockFile), expected);
+    assertTrue(Files.isRegularFile(lockFile));
+
+    // A workflow that can't fetch anything proves the graph comes from the lockfile
+    Workflow offline = new Workflow(new FetchWorkflow(output), new PublishWorkflow(), output);
+    ArtifactGraph locked = service.buildReducedGraph(project, dependencies, offline, rules, lockFile);
+    assertEquals(locked, expected);
+    assertEquals(locked.toString(), expected.toString());
+    assertEquals(locked.values().stream().filter((artifact) -> artifact.id.equals(leaf1_1.id)).findFirst().orElseThrow().licenses, leaf1_1.licenses);
+
+    // Changing the mappings invalidates the lockfile
+    offline.mappings.put("org.savantbuild.test:leaf:1.0", new Version("1.0.0"));
+    try {
+      service.buildReducedGraph(project, dependencies, offline, rules, lockFile);
+      fail("Should have failed");
+    } catch (ArtifactMetaDataMissingException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void buildReducedGraphLockFileCorrupt() throws IOException {
+    Path lockFile = projectDir.resolve("build/test/savant.lock");
+    Files.deleteIfExists(lockFile);
+
+    Dependencies dependencies = makeSimpleDependencies("org.savantbuild.test:multiple-versions-different-dependencies:1.0.0");
+    ArtifactGraph expected = service.buildReducedGraph(project, dependencies, workflow, null, lockFile);
+
+    // Tampering with the graph breaks the checksum, so the graph is rebuilt and the lockfile is rewritten
+    String contents = Files.readString(lockFile);
+    Files.writeString(lockFile, contents.replace("\"runtime\"", "\"compile\""));
+    Workflow offline = new Workflow(new FetchWorkflow(output), new PublishWorkflow(), output);
+    try {
+      service.buildReducedGraph(project, dependencies, offline, null, lockFile);
+      fail("Should have failed");
+    } catch (ArtifactMetaDataMissingException e) {
+      // Expected
+    }
+
+    assertEquals(service.buildReducedGraph(project, dependencies, workflow, null, lockFile), expected);
+    assertEquals(Files.readString(lockFile), contents);
+  }
+
+  @Test
+  public void buildReducedGraphLockFileIntegrationBuild() throws IOException {
+    Path lockFile = projectDir.resolve("build/test/savant.lock");
+    Files.deleteIfExists(lockFile);
+
+    ArtifactGraph actual = service.buildReducedGraph(project, dependencies, workflow, null, lockFile);
+    assertEquals(actual, goodReducedGraph);
+    assertFalse(Files.exists(lockFile));
+  }
+
   @Test
   public void exclusions() {
     // Override to add exclusions. Because the project AND the exclusions artifact both exclude leaf1 and leaf1_1, this prevents them from being included in the graph
@@ -449,7 +548,7 @@ public class DefaultDependencyServiceTest extends BaseUnitTest {
             new MavenProcess(output, "http://localhost:7042/test-deps/maven", null, null)
         ),
         new PublishWorkflow(
-            new CacheProcess(output, cache.toString(), integration.toString(), mavenCache.toString())
+            new CacheProcess(output, cache.toString(), integrationCache.toString(), mavenCache.toString())
         ),
         output
     );
@@ -500,7 +599,7 @@ public class DefaultDependencyServiceTest extends BaseUnitTest {
             new MavenProcess(output, "http://localhost:7042/test-deps/maven", null, null)
         ),
         new PublishWorkflow(
-            new CacheProcess(output, cache.toString(), integration.toString(), mavenCache.toString())
+            new CacheProcess(output, cache.toString(), integrationCache.toString(), mavenCache.toString())
         ),
         output
     );
@@ -515,6 +614,52 @@ public class DefaultDependencyServiceTest extends BaseUnitTest {
     assertFalse(Files.exists(mavenCache.resolve("org/savantbuild/test/leaf1/1.0.0/leaf1-1.0.0.jar.amd")));
   }
 
+  @Test
+  public void prefetch() throws IOException {
+    Path lockFile = projectDir.resolve("build/test/savant.lock");
+    Files.deleteIfExists(lockFile);
+
+    Dependencies dependencies = makeSimpleDependencies("org.savantbuild.test:multiple-versions-different-dependencies:1.0.0");
+    TraversalRules rules = new TraversalRules().with("compile", new GroupTraversalRule(true, true));
+    service.buildReducedGraph(project, dependencies, workflow, rules, lockFile);
+    PathTools.prune(cache);
+
+    // Warm an empty cache from the lockfile (a new Workflow, like a new build, doesn't have the meta-data in memory)
+    List<ReifiedArtifact> artifacts = LockFileTools.artifacts(lockFile);
+    assertFalse(artifacts.isEmpty());
+    Set<Integer> progress = Collections.synchronizedSet(new TreeSet<>());
+    Workflow fresh = new Workflow(workflow.fetchWorkflow, workflow.publishWorkflow, output);
+    PrefetchResult result = service.prefetch(artifacts, fresh, true, 4, (artifact, cachedBytes, completed, total) -> {
+      assertEquals(total, artifacts.size());
+      progress.add(completed);
+    });
+    assertEquals(result.artifacts(), artifacts.size());
+    assertTrue(result.cachedBytes() > 0);
+    assertEquals(progress.size(), artifacts.size());
+
+    for (ReifiedArtifact artifact : artifacts) {
+      Path directory = cache.resolve(artifact.id.group.replace('.', '/')).resolve(artifact.id.project).resolve(artifact.version.toString());
+      assertTrue(Files.isRegularFile(directory.resolve(artifact.getArtifactFile())));
+      assertTrue(Files.isRegularFile(directory.resolve(artifact.getArtifactMetaDataFile())));
+    }
+
+    // A workflow that only has the cache can resolve the graph
+    Workflow offline = new Workflow(
+        new FetchWorkflow(output, new CacheProcess(output, cache.toString(), integration.toString(), null)),
+        new PublishWorkflow(),
+        output
+    );
+    ArtifactGraph graph = service.reduce(service.buildGraph(project, dependencies, offline));
+    ResolvedArtifactGraph resolved = service.resolve(graph, offline, rules);
+    assertEquals(resolved.size(), artifacts.size() + 1);
+
+    // The resolved graph can warm the cache too
+    PathTools.prune(cache);
+    result = service.prefetch(resolved, new Workflow(workflow.fetchWorkflow, workflow.publishWorkflow, output), false, 4);
+    assertEquals(result.artifacts(), artifacts.size());
+    assertEquals(result.sources(), 0);
+  }
+
   @Test
   public void publishMissingFile() {
     Artifact artifact = new Artifact("org.savantbuild.test:publication-with-source:1.0.0");
@@ -628,6 +773,57 @@ public class DefaultDependencyServiceTest extends BaseUnitTest {
     MD5.load(projectDir.resolve("build/test/publish/org/savantbuild/test/publication-without-source/1.0.0/publication-without-source-1.0.0.jar.md5"));
   }
 
+  @Test
+  public void rebuildGraph() {
+    DependencyGraph previous = service.buildGraph(project, dependencies, workflow);
+
+    // Bump a version, remove a dependency and promote a transitive dependency. All of this meta-data was already fetched
+    Dependencies changed = new Dependencies(
+        new DependencyGroup("compile", true,
+            new Artifact(multipleVersions.id, new Version("1.1.0")),
+            new Artifact(multipleVersionsDifferentDeps.id, new Version("1.0.0"))
+        ),
+        new DependencyGroup("runtime", true,
+            new Artifact(leaf1_1.id, new Version("1.0.0"))
+        )
+    );
+
+    Workflow offline = new Workflow(new FetchWorkflow(output), new PublishWorkflow(), output);
+    DependencyGraph actual = service.rebuildGraph(previous, changed, offline);
+    DependencyGraph expected = service.buildGraph(project, changed, workflow);
+    assertEquals(actual, expected);
+    assertEquals(service.reduce(actual), service.reduce(expected));
+
+    // Nothing changed
+    assertEquals(service.rebuildGraph(previous, dependencies, offline), previous);
+  }
+
+  @Test
+  public void rebuildGraphOnlyFetchesChangedSubtrees() {
+    DependencyGraph previous = service.buildGraph(project, dependencies, workflow);
+
+    List<Artifact> fetched = new ArrayList<>();
+    Workflow counting = new Workflow(workflow.fetchWorkflow, workflow.publishWorkflow, output) {
+      @Override
+      public ArtifactMetaData fetchMetaData(Artifact artifact) {
+        fetched.add(artifact);
+        return super.fetchMetaData(artifact);
+      }
+    };
+
+    dependencies.groups.get("runtime").dependencies.add(new Artifact(exclusions.id, new Version("1.0.0")));
+    DependencyGraph actual = service.rebuildGraph(previous, dependencies, counting);
+    assertEquals(fetched, List.of(new Artifact(exclusions.id, new Version("1.0.0"))));
+    assertEquals(actual, service.buildGraph(project, dependencies, workflow));
+
+    // Changing the mappings fetches all the meta-data again because translated POMs depend on them
+    fetched.clear();
+    counting.mappings.put("org.savantbuild.test:leaf:1.0", new Version("1.0.0"));
+    assertEquals(service.rebuildGraph(actual, dependencies, counting), actual);
+    assertTrue(fetched.containsAll(dependencies.groups.get("compile").dependencies));
+    assertTrue(fetched.containsAll(dependencies.groups.get("runtime").dependencies));
+  }
+
   /**
    * Graph:
    * <p>
@@ -751,6 +947,34 @@ public class DefaultDependencyServiceTest extends BaseUnitTest {
     assertEquals(actual, expected);
   }
 
+  /**
+   * A chain of diamonds has an exponential number of paths but a linear number of edges. The reduce must visit each
+   * edge once rather than each path.
+   */
+  @Test(timeOut = 10_000)
+  public void reduceDiamondChain() {
+    Version version = new Version("1.0.0");
+    DependencyGraph graph = new DependencyGraph(project);
+    ArtifactGraph expected = new ArtifactGraph(project);
+
+    ReifiedArtifact top = project;
+    for (int i = 0; i < 40; i++) {
+      ReifiedArtifact left = new ReifiedArtifact(new ArtifactID("org.savantbuild.test", "left" + i, "left" + i, "jar"), version);
+      ReifiedArtifact right = new ReifiedArtifact(new ArtifactID("org.savantbuild.test", "right" + i, "right" + i, "jar"), version);
+      ReifiedArtifact bottom = new ReifiedArtifact(new ArtifactID("org.savantbuild.test", "bottom" + i, "bottom" + i, "jar"), version);
+      for (ReifiedArtifact[] edge : new ReifiedArtifact[][]{{top, left}, {top, right}, {left, bottom}, {right, bottom}}) {
+        Version dependentVersion = edge[0] == project ? project.version : version;
+        graph.addEdge(new Dependency(edge[0].id), new Dependency(edge[1].id), new DependencyEdgeValue(dependentVersion, version, "compile"));
+        expected.addEdge(edge[0], edge[1], "compile");
+      }
+
+      top = bottom;
+    }
+
+    ArtifactGraph actual = service.reduce(graph);
+    assertEquals(actual, expected);
+  }
+
   /**
    * Graph:
    * <p>
@@ -1092,6 +1316,38 @@ public class DefaultDependencyServiceTest extends BaseUnitTest {
     verifyResolvedArtifacts(actual);
   }
 
+  @Test
+  public void resolveGraphParallel() {
+    ArtifactGraph artifactGraph = service.reduce(goodGraph);
+    TraversalRules rules = new TraversalRules().with("compile", new GroupTraversalRule(true, true))
+                                               .with("runtime", new GroupTraversalRule(true, true));
+    List<ResolvedArtifact> serialFetched = new ArrayList<>();
+    ResolvedArtifactGraph expected = service.resolve(artifactGraph, workflow, rules, recordingListener(serialFetched));
+
+    List<ResolvedArtifact> parallelFetched = new ArrayList<>();
+    ResolvedArtifactGraph actual = service.resolve(artifactGraph, workflow, rules, 4, recordingListener(parallelFetched));
+    assertEquals(actual, expected);
+    assertEquals(actual.toClasspath().toString(), expected.toClasspath().toString());
+    assertEquals(parallelFetched, serialFetched);
+
+    verifyResolvedArtifacts(actual);
+  }
+
+  @Test
+  public void resolveGraphParallelFailureBadLicense() {
+    ArtifactGraph artifactGraph = service.reduce(goodGraph);
+    try {
+      service.resolve(artifactGraph, workflow,
+          new TraversalRules().with("compile", new GroupTraversalRule(true, true, License.Licenses.get("GPLV2_0")))
+                              .with("runtime", new GroupTraversalRule(true, true)),
+          4
+      );
+      fail("Should have failed");
+    } catch (LicenseException e) {
+      assertEquals(e.artifact, leaf1);
+    }
+  }
+
   @Test
   public void resolveGraphTransitiveWithTransitiveGroups() {
     ArtifactGraph artifactGraph = service.reduce(goodGraph);
@@ -1362,6 +1618,19 @@ public class DefaultDependencyServiceTest extends BaseUnitTest {
     return graph;
   }
 
+  private DependencyListener recordingListener(List<ResolvedArtifact> fetched) {
+    return new DependencyListener() {
+      @Override
+      public void artifactFetched(ResolvedArtifact artifact) {
+        fetched.add(artifact);
+      }
+
+      @Override
+      public void artifactPublished(Artifact artifact) {
+      }
+    };
+  }
+
   private void verifyResolvedArtifacts(ResolvedArtifactGraph actual) {
     // Verify that all the artifacts have files, and they all exist (except for the project)
     Set<ResolvedArtifact> artifacts = actual.values();
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep;
+
+import java.util.List;
+
+import org.savantbuild.dep.domain.ArtifactID;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the exclusion index.
+ *
+ * @author Brian Pontarelli
+ */
+public class ExclusionIndexTest {
+  @Test
+  public void matchesLikeDependencyTools() {
+    List<ArtifactID> artifacts = List.of(
+        new ArtifactID("foo:bar"), new ArtifactID("foo:bar:xml"), new ArtifactID("foo:baz:qux:jar"),
+        new ArtifactID("other:bar"), new ArtifactID("foo:bar:baz:jar")
+    );
+    List<String> fields = List.of("foo", "bar", "baz", "qux", "jar", "xml", "*");
+
+    // Every exclusion made from the fields (including the wildcards) must match exactly like DependencyTools
+    for (String group : fields) {
+      for (String project : fields) {
+        for (String name : fields) {
+          for (String type : fields) {
+            ArtifactID exclusion = new ArtifactID(group, project, name, type);
+            ExclusionIndex index = new ExclusionIndex();
+            index.push(List.of(exclusion));
+            for (ArtifactID artifact : artifacts) {
+              assertEquals(index.matches(artifact), DependencyTools.matchesExclusion(artifact, exclusion), artifact + " " + exclusion);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void pushAndPop() {
+    ExclusionIndex index = new ExclusionIndex();
+    assertTrue(index.isEmpty());
+    assertFalse(index.matches(new ArtifactID("foo:bar")));
+
+    index.push(List.of(new ArtifactID("foo:*:*:*")));
+    index.push(List.of(new ArtifactID("baz:qux"), new ArtifactID("foo:bar")));
+    index.push(List.of());
+    assertTrue(index.matches(new ArtifactID("foo:bar")));
+    assertTrue(index.matches(new ArtifactID("foo:other")));
+    assertTrue(index.matches(new ArtifactID("baz:qux")));
+
+    index.pop();
+    index.pop();
+    assertTrue(index.matches(new ArtifactID("foo:bar")));
+    assertFalse(index.matches(new ArtifactID("baz:qux")));
+
+    // Duplicates are counted
+    index.push(List.of(new ArtifactID("foo:*:*:*")));
+    index.pop();
+    assertTrue(index.matches(new ArtifactID("foo:other")));
+
+    index.pop();
+    assertFalse(index.matches(new ArtifactID("foo:bar")));
+    assertTrue(index.isEmpty());
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.savantbuild.dep.BaseUnitTest;
+import org.savantbuild.dep.domain.Artifact;
+import org.savantbuild.dep.domain.ArtifactMetaData;
+import org.savantbuild.dep.domain.License;
+import org.savantbuild.dep.domain.ReifiedArtifact;
+import org.savantbuild.dep.workflow.process.CacheProcess;
+import org.savantbuild.domain.Version;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Tests the MetaDataCache.
+ *
+ * @author Brian Pontarelli
+ */
+public class MetaDataCacheTest extends BaseUnitTest {
+  @Test
+  public void eviction() {
+    MetaDataCache cache = new MetaDataCache(2);
+    ArtifactMetaData amd = new ArtifactMetaData(null, License.Licenses.get("Apache-2.0"));
+    cache.get(new Artifact("org.savantbuild.test:leaf1:1.0.0"), "", () -> amd);
+    cache.get(new Artifact("org.savantbuild.test:leaf2:1.0.0"), "", () -> amd);
+    cache.get(new Artifact("org.savantbuild.test:leaf3:1.0.0"), "", () -> amd);
+    assertEquals(cache.size(), 2);
+
+    // The oldest was evicted
+    AtomicInteger loads = new AtomicInteger();
+    cache.get(new Artifact("org.savantbuild.test:leaf1:1.0.0"), "", () -> {
+      loads.incrementAndGet();
+      return amd;
+    });
+    assertEquals(loads.get(), 1);
+  }
+
+  @Test
+  public void failuresAreNotCached() {
+    MetaDataCache cache = new MetaDataCache(10);
+    Artifact artifact = new Artifact("org.savantbuild.test:missing:1.0.0");
+    try {
+      cache.get(artifact, "", () -> {
+        throw new ArtifactMetaDataMissingException(artifact);
+      });
+      fail("Should have failed");
+    } catch (ArtifactMetaDataMissingException e) {
+      // Expected
+    }
+
+    assertEquals(cache.size(), 0);
+  }
+
+  @Test
+  public void keys() {
+    MetaDataCache cache = new MetaDataCache(10);
+    ArtifactMetaData amd = new ArtifactMetaData(null, License.Licenses.get("Apache-2.0"));
+    Artifact artifact = new Artifact("org.savantbuild.test:leaf1:1.0.0");
+    assertSame(cache.get(artifact, "", () -> amd), amd);
+    assertSame(cache.get(new Artifact("org.savantbuild.test:leaf1:1.0.0"), "", () -> {
+      fail("Should be cached");
+      return null;
+    }), amd);
+
+    // The non-semantic version and the mappings are part of the key
+    ArtifactMetaData other = new ArtifactMetaData(null, License.Licenses.get("Apache-2.0"));
+    Artifact nonSemantic = new Artifact(artifact.id, new Version("1.0.0"), "1.0.0.Final", List.of());
+    assertSame(cache.get(nonSemantic, "", () -> other), other);
+    assertNotSame(cache.get(artifact, "mappings", () -> new ArtifactMetaData(null, License.Licenses.get("Apache-2.0"))), amd);
+    assertEquals(cache.size(), 3);
+  }
+
+  @Test
+  public void sharedAcrossWorkflows() {
+    MetaDataCache cache = new MetaDataCache(10);
+    Workflow first = new Workflow(
+        new FetchWorkflow(output, new CacheProcess(output, projectDir.resolve("test-deps/savant").toString(), null, null)),
+        new PublishWorkflow(),
+        output,
+        WorkflowExecutors.shared(),
+        cache
+    );
+    Workflow second = new Workflow(new FetchWorkflow(output), new PublishWorkflow(), output, WorkflowExecutors.shared(), cache);
+
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:leaf1:1.0.0", License.Licenses.get("Apache-2.0"));
+    ArtifactMetaData amd = first.fetchMetaData(artifact);
+    assertSame(first.fetchMetaData(artifact), amd);
+    assertSame(second.fetchMetaData(artifact), amd);
+
+    // Different mappings can translate POMs differently
+    second.mappings.put("org.savantbuild.test:leaf:1.0", new Version("1.0.0"));
+    try {
+      second.fetchMetaData(artifact);
+      fail("Should have failed");
+    } catch (ArtifactMetaDataMissingException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void singleFlight() throws Exception {
+    MetaDataCache cache = new MetaDataCache(10);
+    ArtifactMetaData amd = new ArtifactMetaData(null, License.Licenses.get("Apache-2.0"));
+    Artifact artifact = new Artifact("org.savantbuild.test:leaf1:1.0.0");
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<ArtifactMetaData>> futures = new ArrayList<>();
+      futures.add(executor.submit(() -> cache.get(artifact, "", () -> {
+        loads.incrementAndGet();
+        started.countDown();
+        try {
+          assertTrue(release.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+        return amd;
+      })));
+
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      for (int i = 0; i < 7; i++) {
+        futures.add(executor.submit(() -> cache.get(artifact, "", () -> {
+          loads.incrementAndGet();
+          return amd;
+        })));
+      }
+
+      release.countDown();
+      for (Future<ArtifactMetaData> future : futures) {
+        assertSame(future.get(), amd);
+      }
+
+      assertEquals(loads.get(), 1);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
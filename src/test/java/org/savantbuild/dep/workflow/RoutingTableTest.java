@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.savantbuild.dep.BaseUnitTest;
+import org.savantbuild.dep.domain.ResolvableItem;
+import org.savantbuild.dep.workflow.process.FetchResult;
+import org.savantbuild.dep.workflow.process.ItemSource;
+import org.savantbuild.dep.workflow.process.MavenProcess;
+import org.savantbuild.dep.workflow.process.URLProcess;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * Tests the RoutingTable and the learned routing of the FetchWorkflow.
+ *
+ * @author Brian Pontarelli
+ */
+public class RoutingTableTest extends BaseUnitTest {
+  @Test
+  public void fetchWorkflowTriesTheLearnedProcessFirst() throws Exception {
+    Path file = projectDir.resolve("build/test/routes.properties");
+    Files.deleteIfExists(file);
+
+    List<String> calls = new ArrayList<>();
+    URLProcess savant = new URLProcess(output, "http://savant.example.com", null, null) {
+      @Override
+      public FetchResult fetch(ResolvableItem item, PublishWorkflow publishWorkflow, Executor executor) {
+        calls.add("savant");
+        return null;
+      }
+    };
+    MavenProcess maven = new MavenProcess(output, "http://maven.example.com", null, null) {
+      @Override
+      public FetchResult fetch(ResolvableItem item, PublishWorkflow publishWorkflow, Executor executor) {
+        calls.add("maven");
+        return new FetchResult(Path.of("foo.jar"), ItemSource.MAVEN, item);
+      }
+    };
+
+    ResolvableItem item = new ResolvableItem("org.example.foo", "foo", "foo", "1.0.0", "foo-1.0.0.jar");
+    FetchWorkflow workflow = new FetchWorkflow(output, new RoutingTable(file), savant, maven);
+    workflow.fetchItem(item, new PublishWorkflow());
+    assertEquals(calls, List.of("savant", "maven"));
+
+    // The next build loads the route and skips the miss on the Savant repository
+    calls.clear();
+    workflow = new FetchWorkflow(output, new RoutingTable(file), savant, maven);
+    workflow.fetchItem(new ResolvableItem("org.example.foo", "foo", "foo", "2.0.0", "foo-2.0.0.jar"), new PublishWorkflow());
+    assertEquals(calls, List.of("maven"));
+
+    // Without routes the configured order is used
+    calls.clear();
+    new FetchWorkflow(output, savant, maven).fetchItem(item, new PublishWorkflow());
+    assertEquals(calls, List.of("savant", "maven"));
+  }
+
+  @Test
+  public void lookup() {
+    RoutingTable table = new RoutingTable(null);
+    table.record("org.example.foo", "Maven(https://repo1.maven.org/maven2)");
+    table.record("org.example.bar", "URL(https://repository.savantbuild.org)");
+    assertEquals(table.lookup("org.example.foo"), "Maven(https://repo1.maven.org/maven2)");
+    assertEquals(table.lookup("org.example.bar"), "URL(https://repository.savantbuild.org)");
+
+    assertEquals(table.size(), 2);
+
+    // Other groups of the same organization aren't routed
+    assertNull(table.lookup("org.example"));
+    assertNull(table.lookup("org.example.baz"));
+    assertNull(table.lookup("org.example.foo.qux"));
+  }
+}
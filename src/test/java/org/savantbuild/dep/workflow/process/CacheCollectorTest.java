@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.savantbuild.dep.BaseUnitTest;
+import org.savantbuild.dep.PathTools;
+import org.savantbuild.dep.domain.Artifact;
+import org.savantbuild.dep.domain.ResolvableItem;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the CacheCollector.
+ *
+ * @author Brian Pontarelli
+ */
+public class CacheCollectorTest extends BaseUnitTest {
+  @Test
+  public void collect() throws Exception {
+    Path cache = projectDir.resolve("build/test/collector/cache");
+    PathTools.prune(cache.getParent());
+
+    long now = System.currentTimeMillis();
+    Path oldest = artifact(cache, "org/example/oldest/1.0.0", 100, now - 40_000_000);
+    Path pinned = artifact(cache, "org/example/pinned/1.0.0", 100, now - 30_000_000);
+    Path older = artifact(cache, "org/example/older/1.0.0", 100, now - 20_000_000);
+    Path newest = artifact(cache, "org/example/newest/1.0.0", 100, now - 10_000_000);
+    Path negative = Files.createDirectories(cache.resolve("org/example/missing/1.0.0")).resolve("missing-1.0.0.jar.neg");
+    Files.createFile(negative);
+    Files.setLastModifiedTime(negative, FileTime.fromMillis(now - 50_000_000));
+    Path staleTemp = Files.writeString(newest.resolve("newest-1.0.0.jar.1234.tmp"), "partial");
+    Files.setLastModifiedTime(staleTemp, FileTime.fromMillis(now - CacheCollector.StaleTempMillis - 60_000));
+
+    CacheCollector collector = new CacheCollector(output, 200);
+    CacheCollector.Result result = collector.collect(List.of(cache, projectDir.resolve("build/test/collector/missing")),
+        List.of(new Artifact("org.example:pinned:1.0.0")));
+    assertEquals(result.sizeBefore(), 400);
+    assertEquals(result.sizeAfter(), 200);
+    assertEquals(result.evicted(), 3);
+
+    // The least recently used directories are evicted, along with the marker that is older than them
+    assertFalse(Files.exists(negative.getParent().getParent()));
+    assertFalse(Files.exists(oldest.getParent()));
+    assertFalse(Files.exists(older));
+    assertTrue(Files.isDirectory(pinned));
+    assertTrue(Files.isDirectory(newest));
+    assertFalse(Files.exists(staleTemp));
+  }
+
+  @Test
+  public void collectBlobs() throws Exception {
+    Path root = projectDir.resolve("build/test/collector");
+    PathTools.prune(root);
+
+    BlobStore blobStore = new BlobStore(root.resolve("blobs"));
+    Path source = Files.createDirectories(root).resolve("source.jar");
+    Files.writeString(source, "kept");
+    Path kept = root.resolve("cache/org/example/kept/1.0.0/kept-1.0.0.jar");
+    blobStore.store(source, kept, false);
+    Files.writeString(source, "evicted");
+    Path evicted = root.resolve("cache/org/example/evicted/1.0.0/evicted-1.0.0.jar");
+    blobStore.store(source, evicted, false);
+    Files.setLastModifiedTime(evicted, FileTime.fromMillis(System.currentTimeMillis() - 10_000_000));
+    Path evictedBlob = blobStore.blob(BlobStore.hash(source));
+
+    // A blob that was just stored but isn't linked yet
+    Files.writeString(source, "storing");
+    Path storing = blobStore.blob(BlobStore.hash(source));
+    Files.createDirectories(storing.getParent());
+    Files.copy(source, storing);
+
+    // The blobs are part of the budget, and the blob that is being stored can't be freed
+    CacheCollector.Result result = new CacheCollector(output, 11, blobStore).collect(List.of(root.resolve("cache")), List.of());
+    assertEquals(result.sizeBefore(), 18);
+    assertEquals(result.sizeAfter(), 11);
+    assertEquals(result.evicted(), 1);
+    assertTrue(Files.isRegularFile(kept));
+    assertTrue(Files.isRegularFile(blobStore.blob(BlobStore.hash(kept))));
+    assertFalse(Files.exists(evictedBlob));
+    assertTrue(Files.isRegularFile(storing));
+  }
+
+  @Test
+  public void collectLinked() throws Exception {
+    Path root = projectDir.resolve("build/test/collector");
+    PathTools.prune(root);
+
+    // The same blob is linked from the Savant and the Maven caches
+    BlobStore blobStore = new BlobStore(root.resolve("blobs"));
+    Path source = Files.createDirectories(root).resolve("source.jar");
+    Files.write(source, new byte[100]);
+    Path savant = root.resolve("savant/org/example/shared/1.0.0/shared-1.0.0.jar");
+    Path maven = root.resolve("maven/org/example/shared/1.0.0/shared-1.0.0.jar");
+    blobStore.store(source, savant, false);
+    blobStore.store(source, maven, false);
+    Files.setLastModifiedTime(savant, FileTime.fromMillis(System.currentTimeMillis() - 20_000_000));
+    Path sharedBlob = blobStore.blob(BlobStore.hash(source));
+
+    Files.write(source, new byte[50]);
+    Path newer = root.resolve("savant/org/example/newer/1.0.0/newer-1.0.0.jar");
+    blobStore.store(source, newer, false);
+    Files.setLastModifiedTime(newer, FileTime.fromMillis(System.currentTimeMillis() - 10_000_000));
+
+    // Evicting one of the links doesn't free anything, so both are evicted
+    CacheCollector.Result result = new CacheCollector(output, 50, blobStore).collect(List.of(root.resolve("savant"), root.resolve("maven")), List.of());
+    assertEquals(result.sizeBefore(), 150);
+    assertEquals(result.sizeAfter(), 50);
+    assertEquals(result.evicted(), 2);
+    assertFalse(Files.exists(savant));
+    assertFalse(Files.exists(maven));
+    assertFalse(Files.exists(sharedBlob));
+    assertTrue(Files.isRegularFile(newer));
+  }
+
+  @Test
+  public void collectIndexed() throws Exception {
+    Path cache = projectDir.resolve("build/test/collector/cache");
+    PathTools.prune(cache.getParent());
+
+    long now = System.currentTimeMillis();
+    Path used = artifact(cache, "org/example/used/1.0.0", 100, now - 40_000_000);
+    Path unused = artifact(cache, "org/example/unused/1.0.0", 100, now - 10_000_000);
+
+    // Fetching the older artifact through the index makes it the most recently used
+    CacheProcess process = new CacheProcess(output, cache.toString(), null, null, null, true);
+    process.rebuildIndexes();
+    assertNotNull(process.fetch(new ResolvableItem("org.example", "used", "used", "1.0.0", "used-1.0.0.jar"), null));
+
+    CacheCollector.Result result = new CacheCollector(output, 100).collect(List.of(cache), List.of());
+    assertEquals(result.evicted(), 1);
+    assertTrue(Files.isDirectory(used));
+    assertFalse(Files.exists(unused));
+    assertNull(CacheIndex.forRoot(cache).lookup("org/example/unused/1.0.0/unused-1.0.0.jar"));
+    assertNotNull(CacheIndex.forRoot(cache).lookup("org/example/used/1.0.0/used-1.0.0.jar"));
+  }
+
+  @Test
+  public void collectMavenMetadata() throws Exception {
+    Path cache = projectDir.resolve("build/test/collector/cache");
+    PathTools.prune(cache.getParent());
+
+    long now = System.currentTimeMillis();
+    Path pinned = artifact(cache, "org/example/project/1.0.0", 100, now - 30_000_000);
+    Path unpinned = artifact(cache, "org/example/project/2.0.0", 100, now - 20_000_000);
+    Path metadata = Files.writeString(cache.resolve("org/example/project/maven-metadata.xml"), "<metadata/>");
+    Files.setLastModifiedTime(metadata, FileTime.fromMillis(now - 40_000_000));
+
+    // The project directory is the least recently used, but evicting it would take the pinned version with it
+    CacheCollector.Result result = new CacheCollector(output, 100).collect(List.of(cache), List.of(new Artifact("org.example:project:1.0.0")));
+    assertEquals(result.evicted(), 1);
+    assertTrue(Files.isRegularFile(metadata));
+    assertTrue(Files.isRegularFile(pinned.resolve("project-1.0.0.jar")));
+    assertFalse(Files.exists(unpinned));
+  }
+
+  private static Path artifact(Path cache, String path, int size, long modified) throws Exception {
+    Path directory = Files.createDirectories(cache.resolve(path));
+    String name = directory.getParent().getFileName() + "-" + directory.getFileName() + ".jar";
+    Path file = Files.write(directory.resolve(name), new byte[size]);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+    return directory;
+  }
+}
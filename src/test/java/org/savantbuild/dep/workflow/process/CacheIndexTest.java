@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.savantbuild.dep.BaseUnitTest;
+import org.savantbuild.dep.PathTools;
+import org.savantbuild.security.MD5;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the CacheIndex.
+ *
+ * @author Brian Pontarelli
+ */
+public class CacheIndexTest extends BaseUnitTest {
+  @Test
+  public void corrupt() throws Exception {
+    Path root = projectDir.resolve("build/test/index");
+    PathTools.prune(root);
+    Files.createDirectories(root);
+    Files.writeString(root.resolve(CacheIndex.FileName), "not an index");
+
+    // A corrupt index is replaced with an empty one
+    CacheIndex index = new CacheIndex(root);
+    assertNull(index.lookup("org/example/foo/1.0.0/foo-1.0.0.jar"));
+    index.put("org/example/foo/1.0.0/foo-1.0.0.jar", 42, 1000, null, false);
+    assertNotNull(index.lookup("org/example/foo/1.0.0/foo-1.0.0.jar"));
+  }
+
+  @Test
+  public void persists() throws Exception {
+    Path root = projectDir.resolve("build/test/index");
+    PathTools.prune(root);
+
+    byte[] md5 = new byte[16];
+    md5[0] = 1;
+    md5[15] = 2;
+    CacheIndex index = new CacheIndex(root);
+    index.put("org/example/foo/1.0.0/foo-1.0.0.jar", 42, 1000, md5, false);
+    index.put("org/example/foo/1.0.0/foo-1.0.0-src.jar.neg", 0, 2000, null, true);
+    index.put("org/example/bar/1.0.0/bar-1.0.0.jar", 7, 3000, null, false);
+    index.remove("org/example/bar/1.0.0/bar-1.0.0.jar");
+
+    // A new index (i.e. the next build) maps the same file
+    CacheIndex reopened = new CacheIndex(root);
+    CacheIndex.Entry entry = reopened.lookup("org/example/foo/1.0.0/foo-1.0.0.jar");
+    assertEquals(entry.size(), 42);
+    assertEquals(entry.modified(), 1000);
+    assertEquals(entry.md5(), md5);
+    assertFalse(entry.negative());
+
+    CacheIndex.Entry negative = reopened.lookup("org/example/foo/1.0.0/foo-1.0.0-src.jar.neg");
+    assertNull(negative.md5());
+    assertTrue(negative.negative());
+    assertNull(reopened.lookup("org/example/bar/1.0.0/bar-1.0.0.jar"));
+    assertNull(reopened.lookup("org/example/baz/1.0.0/baz-1.0.0.jar"));
+  }
+
+  @Test
+  public void rebuild() throws Exception {
+    Path root = projectDir.resolve("build/test/index");
+    PathTools.prune(root);
+
+    // Populate a cache in several groups without the index. The directories are older than the racy window
+    long modified = System.currentTimeMillis() - 60_000;
+    for (int i = 0; i < 5; i++) {
+      Path directory = Files.createDirectories(root.resolve("org/example" + i + "/foo/1.0.0"));
+      Files.writeString(directory.resolve("foo-1.0.0.jar"), "jar" + i);
+      MD5.writeMD5(MD5.forPath(directory.resolve("foo-1.0.0.jar")), directory.resolve("foo-1.0.0.jar.md5"));
+      Files.createFile(directory.resolve("foo-1.0.0-src.jar.neg"));
+      Files.setLastModifiedTime(directory, FileTime.fromMillis(modified + i));
+    }
+
+    // A directory that was just changed is indexed without its generation
+    Path recent = Files.createDirectories(root.resolve("org/example5/foo/1.0.0"));
+    Files.writeString(recent.resolve("foo-1.0.0.jar"), "jar5");
+
+    CacheIndex index = new CacheIndex(root);
+    assertNull(index.lookup("org/example0/foo/1.0.0/foo-1.0.0.jar"));
+
+    assertEquals(index.rebuild(), 16);
+    Path jar = root.resolve("org/example3/foo/1.0.0/foo-1.0.0.jar");
+    CacheIndex.Entry entry = index.lookup("org/example3/foo/1.0.0/foo-1.0.0.jar");
+    assertEquals(entry.size(), Files.size(jar));
+    assertEquals(entry.modified(), Files.getLastModifiedTime(jar).toMillis());
+    assertEquals(entry.md5(), MD5.forPath(jar).bytes);
+    assertEquals(entry.generation(), modified + 3);
+    assertTrue(index.lookup("org/example3/foo/1.0.0/foo-1.0.0-src.jar.neg").negative());
+    assertNotNull(index.lookup("org/example3/foo/1.0.0/foo-1.0.0.jar.md5"));
+    assertEquals(index.lookup("org/example3/foo/1.0.0/").generation(), modified + 3);
+    assertNull(index.lookup("org/example3/foo/"));
+
+    assertEquals(index.lookup("org/example5/foo/1.0.0/foo-1.0.0.jar").generation(), 0);
+    assertNull(index.lookup("org/example5/foo/1.0.0/"));
+  }
+
+  @Test
+  public void putDirectory() throws Exception {
+    Path root = projectDir.resolve("build/test/index");
+    PathTools.prune(root);
+
+    Path directory = Files.createDirectories(root.resolve("org/example/foo/1.0.0"));
+    Files.writeString(directory.resolve("foo-1.0.0.jar"), "jar");
+    Files.writeString(directory.resolve("foo-1.0.0.jar.1234.tmp"), "partial");
+    Files.createDirectories(directory.resolve("subdirectory"));
+
+    // The files are stamped with the modification time of the directory and only used files have an access time
+    long modified = System.currentTimeMillis() - 60_000;
+    CacheIndex index = new CacheIndex(root);
+    index.putDirectory("org/example/foo/1.0.0/", modified, List.of("foo-1.0.0.jar", "foo-1.0.0.jar.1234.tmp", "subdirectory"));
+    assertEquals(index.lookup("org/example/foo/1.0.0/").generation(), modified);
+    assertEquals(index.lookup("org/example/foo/1.0.0/foo-1.0.0.jar").generation(), modified);
+    assertEquals(index.lookup("org/example/foo/1.0.0/foo-1.0.0.jar", true).accessed(), 0);
+    assertTrue(index.lookup("org/example/foo/1.0.0/foo-1.0.0.jar").accessed() > 0);
+    assertNull(index.lookup("org/example/foo/1.0.0/foo-1.0.0.jar.1234.tmp"));
+    assertNull(index.lookup("org/example/foo/1.0.0/subdirectory"));
+
+    // Files that are put on their own aren't stamped
+    index.putFile("org/example/foo/1.0.0/foo-1.0.0.jar");
+    assertEquals(index.lookup("org/example/foo/1.0.0/foo-1.0.0.jar").generation(), 0);
+  }
+
+  @Test
+  public void resize() throws Exception {
+    Path root = projectDir.resolve("build/test/index");
+    PathTools.prune(root);
+
+    CacheIndex index = new CacheIndex(root);
+    long initialSize = Files.size(index.file);
+    for (int i = 0; i < 20_000; i++) {
+      index.put("org/example/project" + i + "/1.0.0/project" + i + "-1.0.0.jar", i, i, null, false);
+    }
+
+    assertTrue(Files.size(index.file) > initialSize);
+    assertEquals(index.size(), 20_000);
+
+    CacheIndex reopened = new CacheIndex(root);
+    for (int i = 0; i < 20_000; i++) {
+      assertEquals(reopened.lookup("org/example/project" + i + "/1.0.0/project" + i + "-1.0.0.jar").size(), i);
+    }
+  }
+}
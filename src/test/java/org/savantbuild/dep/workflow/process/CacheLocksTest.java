@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.savantbuild.dep.BaseUnitTest;
+import org.savantbuild.dep.PathTools;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Tests the CacheLocks.
+ *
+ * @author Brian Pontarelli
+ */
+public class CacheLocksTest extends BaseUnitTest {
+  @Test
+  public void lock() throws Exception {
+    Path root = projectDir.resolve("build/test/locks");
+    PathTools.prune(root);
+
+    CacheLocks locks = CacheLocks.forRoot(root);
+    CountDownLatch started = new CountDownLatch(1);
+    AtomicBoolean acquired = new AtomicBoolean();
+    Thread other;
+    CacheLocks.Lock lock = locks.lock("org/example/foo/1.0.0/foo-1.0.0.jar");
+    try {
+      assertTrue(Files.isRegularFile(locks.file));
+
+      // The lock is reentrant and other items aren't blocked
+      locks.lock("org/example/foo/1.0.0/foo-1.0.0.jar").close();
+      locks.lock("org/example/bar/1.0.0/bar-1.0.0.jar").close();
+
+      // The file lock is held (this JVM can't take it through another channel)
+      try (FileChannel channel = FileChannel.open(locks.file, StandardOpenOption.WRITE)) {
+        channel.tryLock(0, Long.MAX_VALUE, false);
+        fail("Should have thrown");
+      } catch (OverlappingFileLockException e) {
+        // Expected
+      }
+
+      other = new Thread(() -> {
+        started.countDown();
+        CacheLocks.Lock otherLock = locks.lock("org/example/foo/1.0.0/foo-1.0.0.jar");
+        acquired.set(true);
+        otherLock.close();
+      });
+      other.start();
+      assertTrue(started.await(10, TimeUnit.SECONDS));
+      Thread.sleep(200);
+      assertFalse(acquired.get());
+      assertEquals(locks.size(), 1);
+    } finally {
+      lock.close();
+    }
+
+    other.join(10_000);
+    assertTrue(acquired.get());
+    assertEquals(locks.size(), 0);
+
+    // All the regions were released
+    try (FileChannel channel = FileChannel.open(locks.file, StandardOpenOption.WRITE)) {
+      channel.tryLock(0, Long.MAX_VALUE, false).release();
+    }
+  }
+}
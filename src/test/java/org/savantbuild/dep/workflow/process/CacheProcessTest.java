@@ -17,7 +17,10 @@ package org.savantbuild.dep.workflow.process;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 import org.savantbuild.dep.BaseUnitTest;
 import org.savantbuild.dep.PathTools;
@@ -28,6 +31,7 @@ import org.savantbuild.dep.domain.ResolvableItem;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
@@ -63,6 +67,104 @@ public class CacheProcessTest extends BaseUnitTest {
     assertTrue(Files.isRegularFile(result.file()));
   }
 
+  @Test
+  public void fetchIndexed() throws Exception {
+    Path cache = projectDir.resolve("build/test/deps");
+    PathTools.prune(cache);
+
+    CacheProcess process = new CacheProcess(output, cache.toString(), null, null, null, true);
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:multiple-versions:multiple-versions:1.0.0:jar", License.Licenses.get("ApacheV2_0"));
+    ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
+
+    // Publishing adds the file to the index
+    Path artFile = projectDir.resolve("test-deps/savant/org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar");
+    Path file = process.publish(new FetchResult(artFile, ItemSource.SAVANT, item));
+    CacheIndex index = CacheIndex.forRoot(cache);
+    CacheIndex.Entry entry = index.lookup("org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar");
+    assertEquals(entry.size(), Files.size(file));
+    assertEquals(process.fetch(item, null).file(), file);
+    assertEquals(index.lookup("org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar").generation(), 0);
+
+    // Once the directory is older than the racy window, it is indexed with its modification time and the lookups are
+    // answered from the index
+    Path directory = file.getParent();
+    long modified = System.currentTimeMillis() - 60_000;
+    Files.setLastModifiedTime(directory, FileTime.fromMillis(modified));
+    assertEquals(process.fetch(item, null).file(), file);
+    assertEquals(index.lookup("org/savantbuild/test/multiple-versions/1.0.0/").generation(), modified);
+    assertEquals(index.lookup("org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar").generation(), modified);
+    assertTrue(index.lookup("org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar").accessed() > 0);
+    assertNull(index.lookup("org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar.neg"));
+
+    // Files replaced outside the build change the directory, so it is indexed again
+    Path replacement = Files.writeString(cache.resolve("replacement"), "replaced");
+    Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING);
+    Files.setLastModifiedTime(directory, FileTime.fromMillis(modified + 1_000));
+    assertEquals(process.fetch(item, null).file(), file);
+    assertEquals(index.lookup("org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar").size(), "replaced".length());
+    assertEquals(index.lookup("org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar").generation(), modified + 1_000);
+
+    // Files removed outside the build are detected right away from the listing and later from the index
+    Files.delete(file);
+    assertNull(process.fetch(item, null));
+    Files.setLastModifiedTime(directory, FileTime.fromMillis(modified + 2_000));
+    assertNull(process.fetch(item, null));
+    assertEquals(index.lookup("org/savantbuild/test/multiple-versions/1.0.0/").generation(), modified + 2_000);
+  }
+
+  @Test
+  public void fetchListing() throws Exception {
+    Path cache = projectDir.resolve("build/test/deps");
+    PathTools.prune(cache);
+
+    CacheProcess fetchProcess = new CacheProcess(output, cache.toString(), null, null);
+    CacheProcess publishProcess = new CacheProcess(output, cache.toString(), null, null);
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:multiple-versions:multiple-versions:1.0.0:jar", License.Licenses.get("ApacheV2_0"));
+    ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
+    assertNull(fetchProcess.fetch(item, null));
+
+    // Files published through another instance are picked up
+    Path artFile = projectDir.resolve("test-deps/savant/org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar");
+    Path file = publishProcess.publish(new FetchResult(artFile, ItemSource.SAVANT, item));
+    FetchResult result = fetchProcess.fetch(item, null);
+    assertNotNull(result);
+    assertEquals(result.file(), file);
+
+    // Files deleted or added outside the build are picked up
+    Files.delete(file);
+    assertNull(fetchProcess.fetch(item, null));
+
+    Files.createFile(file.resolveSibling(item.item + ".neg"));
+    try {
+      fetchProcess.fetch(item, null);
+      fail("Should have thrown");
+    } catch (NegativeCacheException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void publishNegative() throws Exception {
+    Path cache = projectDir.resolve("build/test/cache");
+    PathTools.prune(cache);
+
+    CacheProcess process = new CacheProcess(output, cache.toString(), null, null, null, true);
+    ResolvableItem item = new ResolvableItem("org.savantbuild.test", "missing-source", "missing-source", "1.0.0", "missing-source-1.0.0-src.jar");
+    process.publishNegative(item, ItemSource.SAVANT);
+    process.publishNegative(item, ItemSource.SAVANT);
+
+    Path marker = cache.resolve("org/savantbuild/test/missing-source/1.0.0/missing-source-1.0.0-src.jar.neg");
+    assertEquals(Files.size(marker), 0);
+    assertTrue(CacheIndex.forRoot(cache).lookup("org/savantbuild/test/missing-source/1.0.0/missing-source-1.0.0-src.jar.neg").negative());
+
+    try {
+      process.fetch(item, null);
+      fail("Expected NegativeCacheException");
+    } catch (NegativeCacheException e) {
+      // Expected
+    }
+  }
+
   @Test
   public void store() throws Exception {
     Path cache = projectDir.resolve("build/test/deps");
@@ -79,6 +181,94 @@ public class CacheProcessTest extends BaseUnitTest {
     assertTrue(Files.isRegularFile(file));
   }
 
+  @Test
+  public void storeBlobStore() throws Exception {
+    Path cache = projectDir.resolve("build/test/deps");
+    Path mavenCache = projectDir.resolve("build/test/maven-deps");
+    Path blobs = projectDir.resolve("build/test/blobs");
+    PathTools.prune(cache);
+    PathTools.prune(mavenCache);
+    PathTools.prune(blobs);
+
+    CacheProcess process = new CacheProcess(output, cache.toString(), null, mavenCache.toString(), new BlobStore(blobs));
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:multiple-versions:multiple-versions:1.0.0:jar", License.Licenses.get("ApacheV2_0"));
+    ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
+
+    // The same file published to both caches is stored once
+    Path artFile = projectDir.resolve("test-deps/savant/org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar");
+    Path savantFile = process.publish(new FetchResult(artFile, ItemSource.SAVANT, item));
+    Path mavenFile = process.publish(new FetchResult(artFile, ItemSource.MAVEN, item));
+    assertEquals(Files.readAllBytes(savantFile), Files.readAllBytes(artFile));
+    assertTrue(Files.isSameFile(savantFile, mavenFile));
+
+    Path blob = process.blobStore.blob(BlobStore.hash(artFile));
+    assertTrue(Files.isSameFile(savantFile, blob));
+    try (Stream<Path> files = Files.walk(blobs)) {
+      assertEquals(files.filter(Files::isRegularFile).count(), 1);
+    }
+
+    // Publishing again replaces the link and an owned file is removed once the blob exists
+    Path staged = Files.createTempFile(process.stagingDirectory(item, ItemSource.SAVANT), "multiple-versions-1.0.0.jar-", ".tmp");
+    Files.copy(artFile, staged, StandardCopyOption.REPLACE_EXISTING);
+    assertEquals(process.publish(new FetchResult(staged, ItemSource.SAVANT, item, true)), savantFile);
+    assertFalse(Files.exists(staged));
+    assertTrue(Files.isSameFile(savantFile, blob));
+    try (Stream<Path> files = Files.list(savantFile.getParent())) {
+      assertEquals(files.count(), 1);
+    }
+  }
+
+  @Test
+  public void storeCached() throws Exception {
+    Path cache = projectDir.resolve("build/test/deps");
+    Path mavenCache = projectDir.resolve("build/test/maven-deps");
+    PathTools.prune(cache);
+    PathTools.prune(mavenCache);
+
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:multiple-versions:multiple-versions:1.0.0:jar", License.Licenses.get("ApacheV2_0"));
+    ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
+    Path artFile = projectDir.resolve("test-deps/savant/org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar");
+
+    // Files from outside the caches are copied, but cached files are linked
+    Path file = new CacheProcess(output, cache.toString(), null, null).publish(new FetchResult(artFile, ItemSource.SAVANT, item));
+    assertFalse(Files.isSameFile(file, artFile));
+    assertEquals(Files.readAllBytes(file), Files.readAllBytes(artFile));
+
+    Path mavenFile = new CacheProcess(output, null, null, mavenCache.toString()).publish(new FetchResult(file, ItemSource.MAVEN, item, false, true));
+    assertEquals(mavenFile, mavenCache.resolve("org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar"));
+    assertTrue(Files.isSameFile(file, mavenFile));
+
+    // Publishing over an existing file replaces it without leaving temporary files behind
+    assertEquals(new CacheProcess(output, cache.toString(), null, null).publish(new FetchResult(artFile, ItemSource.SAVANT, item)), file);
+    try (Stream<Path> files = Files.list(file.getParent())) {
+      assertEquals(files.count(), 1);
+    }
+  }
+
+  @Test
+  public void storeOwned() throws Exception {
+    Path cache = projectDir.resolve("build/test/deps");
+    PathTools.prune(cache);
+
+    CacheProcess process = new CacheProcess(output, cache.toString(), null, null);
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:multiple-versions:multiple-versions:1.0.0:jar", License.Licenses.get("ApacheV2_0"));
+    ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
+
+    // The staged download is written into the cache directory and renamed into place
+    Path directory = process.stagingDirectory(item, ItemSource.SAVANT);
+    assertEquals(directory, cache.resolve("org/savantbuild/test/multiple-versions/1.0.0"));
+    assertNull(process.stagingDirectory(item, ItemSource.MAVEN));
+    assertFalse(Files.exists(directory));
+
+    Files.createDirectories(directory);
+    Path staged = Files.createTempFile(directory, "multiple-versions-1.0.0.jar-", ".tmp");
+    Files.copy(projectDir.resolve("test-deps/savant/org/savantbuild/test/multiple-versions/1.0.0/multiple-versions-1.0.0.jar"), staged, StandardCopyOption.REPLACE_EXISTING);
+    Path file = process.publish(new FetchResult(staged, ItemSource.SAVANT, item, true));
+    assertEquals(file, directory.resolve("multiple-versions-1.0.0.jar"));
+    assertTrue(Files.isRegularFile(file));
+    assertFalse(Files.exists(staged));
+  }
+
   @Test
   public void store_rejectsMaven() throws Exception {
     Path cache = projectDir.resolve("build/test/deps");
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.savantbuild.dep.BaseUnitTest;
+import org.savantbuild.dep.PathTools;
+import org.savantbuild.security.MD5;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the CacheScanner.
+ *
+ * @author Brian Pontarelli
+ */
+public class CacheScannerTest extends BaseUnitTest {
+  @Test
+  public void scan() throws Exception {
+    Path root = projectDir.resolve("build/test/scanner");
+    PathTools.prune(root);
+
+    Path cache = root.resolve("cache");
+    for (int i = 0; i < 10; i++) {
+      Path directory = Files.createDirectories(cache.resolve("org/example/project" + i + "/1.0.0"));
+      Path jar = Files.writeString(directory.resolve("project" + i + "-1.0.0.jar"), "jar" + i);
+      MD5.writeMD5(MD5.forPath(jar), directory.resolve("project" + i + "-1.0.0.jar.md5"));
+    }
+
+    // Bit rot, a truncated file, an invalid MD5 file and a file without an MD5 file
+    Path directory = cache.resolve("org/example/project3/1.0.0");
+    Files.writeString(directory.resolve("project3-1.0.0.jar"), "jaR3");
+    Files.writeString(cache.resolve("org/example/project4/1.0.0/project4-1.0.0.jar"), "");
+    Files.writeString(cache.resolve("org/example/project5/1.0.0/project5-1.0.0.jar.md5"), "bad");
+    Files.writeString(cache.resolve("org/example/project6/1.0.0/project6-1.0.0.pom"), "<project/>");
+    Files.createFile(cache.resolve("org/example/project6/1.0.0/project6-1.0.0-src.jar.neg"));
+
+    CacheIndex index = CacheIndex.forRoot(cache);
+    index.rebuild();
+
+    CacheScanner.Result result = new CacheScanner(output, root.resolve("quarantine"), 4).scan(List.of(cache, root.resolve("missing")));
+    assertEquals(result.verified(), 10);
+    assertEquals(result.unverified(), 1);
+    assertEquals(result.corrupt().size(), 3);
+
+    assertFalse(Files.exists(directory.resolve("project3-1.0.0.jar")));
+    assertFalse(Files.exists(directory.resolve("project3-1.0.0.jar.md5")));
+    assertEquals(Files.readString(root.resolve("quarantine/cache/org/example/project3/1.0.0/project3-1.0.0.jar")), "jaR3");
+    assertTrue(Files.isRegularFile(root.resolve("quarantine/cache/org/example/project3/1.0.0/project3-1.0.0.jar.md5")));
+    assertTrue(Files.isRegularFile(root.resolve("quarantine/cache/org/example/project4/1.0.0/project4-1.0.0.jar")));
+    assertTrue(Files.isRegularFile(root.resolve("quarantine/cache/org/example/project5/1.0.0/project5-1.0.0.jar")));
+    assertTrue(Files.isRegularFile(cache.resolve("org/example/project2/1.0.0/project2-1.0.0.jar")));
+    assertNull(index.lookup("org/example/project3/1.0.0/project3-1.0.0.jar"));
+
+    // Without a quarantine directory the files are only reported
+    Files.writeString(cache.resolve("org/example/project7/1.0.0/project7-1.0.0.jar"), "jaR7");
+    result = new CacheScanner(output, null).scan(List.of(cache));
+    assertEquals(result.corrupt(), List.of(cache.toAbsolutePath().normalize().resolve("org/example/project7/1.0.0/project7-1.0.0.jar")));
+    assertTrue(Files.isRegularFile(cache.resolve("org/example/project7/1.0.0/project7-1.0.0.jar")));
+  }
+
+  @Test
+  public void scanLinked() throws Exception {
+    Path root = projectDir.resolve("build/test/scanner");
+    PathTools.prune(root);
+
+    // The Savant and Maven caches link to the same blob and only the Savant cache has the MD5 file
+    BlobStore blobStore = new BlobStore(root.resolve("blobs"));
+    Path source = Files.writeString(Files.createDirectories(root).resolve("source.jar"), "jar");
+    Path savant = root.resolve("savant/org/example/project/1.0.0/project-1.0.0.jar");
+    Path maven = root.resolve("maven/org/example/project/1.0.0/project-1.0.0.jar");
+    blobStore.store(source, savant, false);
+    blobStore.store(source, maven, false);
+    MD5.writeMD5(MD5.forPath(savant), savant.resolveSibling("project-1.0.0.jar.md5"));
+    Path blob = blobStore.blob(BlobStore.hash(source));
+
+    // Bit rot changes the contents of every link
+    Files.writeString(savant, "jaR");
+    assertEquals(Files.readString(maven), "jaR");
+
+    // Without a quarantine directory all the links are reported
+    CacheScanner.Result result = new CacheScanner(output, null, 2, blobStore).scan(List.of(root.resolve("savant"), root.resolve("maven")));
+    assertEquals(result.corrupt().size(), 3);
+    assertTrue(Files.isRegularFile(blob));
+
+    result = new CacheScanner(output, root.resolve("quarantine"), 2, blobStore).scan(List.of(root.resolve("savant"), root.resolve("maven")));
+    assertEquals(result.verified(), 1);
+    assertEquals(result.unverified(), 1);
+    assertEquals(result.corrupt().size(), 3);
+    assertFalse(Files.exists(savant));
+    assertFalse(Files.exists(maven));
+    assertFalse(Files.exists(blob));
+    assertTrue(Files.isRegularFile(root.resolve("quarantine/savant/org/example/project/1.0.0/project-1.0.0.jar.md5")));
+    assertEquals(Files.readString(root.resolve("quarantine/maven/org/example/project/1.0.0/project-1.0.0.jar")), "jaR");
+    assertTrue(Files.isRegularFile(root.resolve("quarantine/blobs").resolve(blobStore.directory.relativize(blob))));
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.savantbuild.dep.BaseUnitTest;
+import org.savantbuild.dep.PathTools;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests the DirectoryListings.
+ *
+ * @author Brian Pontarelli
+ */
+public class DirectoryListingsTest extends BaseUnitTest {
+  @Test
+  public void bounded() throws Exception {
+    Path root = projectDir.resolve("build/test/listings");
+    PathTools.prune(root);
+    for (int i = 0; i < 5; i++) {
+      Files.createDirectories(root.resolve("dir" + i));
+      Files.writeString(root.resolve("dir" + i + "/file" + i), "");
+    }
+
+    DirectoryListings listings = new DirectoryListings(3);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(listings.names(root.resolve("dir" + i)), Set.of("file" + i));
+    }
+
+    // The oldest listings were evicted
+    assertEquals(listings.size(), 3);
+
+    // Evicted directories are listed again
+    assertEquals(listings.names(root.resolve("dir0")), Set.of("file0"));
+    assertEquals(listings.size(), 3);
+  }
+}
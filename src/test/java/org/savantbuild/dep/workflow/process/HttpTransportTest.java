@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import org.savantbuild.dep.BaseUnitTest;
+import org.savantbuild.dep.PathTools;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpServer;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Tests the HttpTransport.
+ *
+ * @author Brian Pontarelli
+ */
+public class HttpTransportTest extends BaseUnitTest {
+  private final byte[] content = new byte[256 * 1024];
+
+  private final List<String> ranges = new CopyOnWriteArrayList<>();
+
+  private HttpServer server;
+
+  @Test
+  public void chunked() throws Exception {
+    HttpTransport transport = new HttpTransport(Duration.ofSeconds(1), Duration.ofSeconds(5), 64 * 1024, 4);
+    HttpTransport.Download download = transport.download(URI.create("http://localhost:7044/large.jar"), null, null);
+    assertEquals(Files.readAllBytes(download.file()), content);
+    assertEquals(download.md5(), MessageDigest.getInstance("MD5").digest(content));
+    assertEquals(ranges.size(), 3);
+    assertTrue(ranges.contains("bytes=196608-262143"), ranges.toString());
+    Files.delete(download.file());
+  }
+
+  @Test
+  public void chunkFailure() throws Exception {
+    // The second chunk fails while the last chunk is still being written
+    HttpServer failing = HttpServer.create(new InetSocketAddress(7046), 0);
+    ExecutorService handlers = Executors.newCachedThreadPool();
+    failing.setExecutor(handlers);
+    failing.createContext("/", (httpExchange) -> {
+      httpExchange.getRequestBody().close();
+      httpExchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+
+      String range = httpExchange.getRequestHeaders().getFirst("Range");
+      if (range == null) {
+        httpExchange.sendResponseHeaders(200, content.length);
+        httpExchange.getResponseBody().write(content);
+      } else if (range.equals("bytes=65536-131071")) {
+        httpExchange.sendResponseHeaders(500, -1);
+      } else {
+        String[] parts = range.substring(6).split("-");
+        int start = Integer.parseInt(parts[0]);
+        int end = Integer.parseInt(parts[1]);
+        httpExchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        httpExchange.sendResponseHeaders(206, end - start + 1);
+        for (int position = start; position <= end; position += 4096) {
+          httpExchange.getResponseBody().write(content, position, Math.min(4096, end - position + 1));
+          httpExchange.getResponseBody().flush();
+          try {
+            Thread.sleep(5);
+          } catch (InterruptedException e) {
+            return;
+          }
+        }
+      }
+
+      httpExchange.close();
+    });
+    failing.start();
+
+    Path directory = projectDir.resolve("build/test/chunks");
+    PathTools.prune(directory);
+    Files.createDirectories(directory);
+    try {
+      HttpTransport transport = new HttpTransport(Duration.ofSeconds(1), Duration.ofSeconds(5), 64 * 1024, 4);
+      transport.download(URI.create("http://localhost:7046/large.jar"), null, null, directory);
+      fail("Should have failed");
+    } catch (IOException e) {
+      // The channel is only closed and the file deleted after the other chunks stopped
+      try (Stream<Path> files = Files.list(directory)) {
+        assertEquals(files.count(), 0L);
+      }
+    } finally {
+      failing.stop(0);
+      handlers.shutdownNow();
+    }
+  }
+
+  @Test
+  public void resume() throws Exception {
+    // The HttpServer doesn't drop connections, so this uses a raw socket that closes the first response half way through
+    try (ServerSocket socket = new ServerSocket(7045)) {
+      Thread thread = new Thread(() -> {
+        try {
+          for (int i = 0; i < 2; i++) {
+            try (Socket connection = socket.accept()) {
+              BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.ISO_8859_1));
+              String range = null;
+              String line;
+              while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                if (line.toLowerCase().startsWith("range:")) {
+                  range = line.substring(6).trim();
+                  ranges.add(range);
+                }
+              }
+
+              OutputStream os = connection.getOutputStream();
+              if (range == null) {
+                os.write(("HTTP/1.1 200 OK\r\nAccept-Ranges: bytes\r\nContent-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                os.write(content, 0, content.length / 2);
+              } else {
+                int start = Integer.parseInt(range.substring(6, range.indexOf('-')));
+                os.write(("HTTP/1.1 206 Partial Content\r\nAccept-Ranges: bytes\r\nContent-Range: bytes " + start + "-" + (content.length - 1) + "/" + content.length +
+                    "\r\nContent-Length: " + (content.length - start) + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                os.write(content, start, content.length - start);
+              }
+
+              os.flush();
+            }
+          }
+        } catch (IOException e) {
+          // The socket was closed by the test
+        }
+      });
+      thread.start();
+
+      HttpTransport transport = new HttpTransport(Duration.ofSeconds(1), Duration.ofSeconds(5), 0, 1);
+      HttpTransport.Download download = transport.download(URI.create("http://localhost:7045/large.jar"), null, null);
+      assertEquals(Files.readAllBytes(download.file()), content);
+      assertEquals(download.md5(), MessageDigest.getInstance("MD5").digest(content));
+
+      // The range starts wherever the client was when the connection dropped, which can be before the half way mark
+      assertEquals(ranges.size(), 1);
+      assertTrue(ranges.get(0).matches("bytes=[1-9][0-9]*-"), ranges.get(0));
+      Files.delete(download.file());
+    }
+  }
+
+  @Test
+  public void stall() throws Exception {
+    // The first response stops sending the body half way through without closing the connection
+    try (ServerSocket socket = new ServerSocket(7047)) {
+      Thread thread = new Thread(() -> {
+        List<Socket> stalled = new CopyOnWriteArrayList<>();
+        try {
+          for (int i = 0; i < 2; i++) {
+            Socket connection = socket.accept();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.ISO_8859_1));
+            String range = null;
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+              if (line.toLowerCase().startsWith("range:")) {
+                range = line.substring(6).trim();
+                ranges.add(range);
+              }
+            }
+
+            OutputStream os = connection.getOutputStream();
+            if (range == null) {
+              os.write(("HTTP/1.1 200 OK\r\nAccept-Ranges: bytes\r\nContent-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+              os.write(content, 0, content.length / 2);
+              os.flush();
+              stalled.add(connection);
+            } else {
+              int start = Integer.parseInt(range.substring(6, range.indexOf('-')));
+              os.write(("HTTP/1.1 206 Partial Content\r\nAccept-Ranges: bytes\r\nContent-Range: bytes " + start + "-" + (content.length - 1) + "/" + content.length +
+                  "\r\nContent-Length: " + (content.length - start) + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+              os.write(content, start, content.length - start);
+              os.flush();
+              connection.close();
+            }
+          }
+        } catch (IOException e) {
+          // The socket was closed by the test
+        } finally {
+          for (Socket connection : stalled) {
+            try {
+              connection.close();
+            } catch (IOException e) {
+              // Ignore
+            }
+          }
+        }
+      });
+      thread.start();
+
+      HttpTransport transport = new HttpTransport(Duration.ofSeconds(1), Duration.ofMillis(500), 0, 1);
+      HttpTransport.Download download = transport.download(URI.create("http://localhost:7047/large.jar"), null, null);
+      assertEquals(Files.readAllBytes(download.file()), content);
+      assertEquals(download.md5(), MessageDigest.getInstance("MD5").digest(content));
+      assertEquals(ranges.size(), 1);
+      assertTrue(ranges.get(0).matches("bytes=[1-9][0-9]*-"), ranges.get(0));
+      Files.delete(download.file());
+      thread.join();
+    }
+  }
+
+  @BeforeMethod
+  public void startServer() throws Exception {
+    new Random(42).nextBytes(content);
+    ranges.clear();
+
+    // Serves the content with range support
+    server = HttpServer.create(new InetSocketAddress(7044), 0);
+    server.createContext("/", (httpExchange) -> {
+      httpExchange.getRequestBody().close();
+      httpExchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+
+      String range = httpExchange.getRequestHeaders().getFirst("Range");
+      int start = 0;
+      int end = content.length - 1;
+      if (range != null) {
+        ranges.add(range);
+        String[] parts = range.substring(6).split("-");
+        start = Integer.parseInt(parts[0]);
+        end = parts.length > 1 ? Integer.parseInt(parts[1]) : end;
+        httpExchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        httpExchange.sendResponseHeaders(206, end - start + 1);
+      } else {
+        httpExchange.sendResponseHeaders(200, content.length);
+      }
+
+      httpExchange.getResponseBody().write(content, start, end - start + 1);
+      httpExchange.close();
+    });
+    server.start();
+  }
+
+  @AfterMethod
+  public void stopServer() {
+    server.stop(0);
+  }
+}
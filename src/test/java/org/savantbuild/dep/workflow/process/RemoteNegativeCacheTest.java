@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.stream.Stream;
+
+import org.savantbuild.dep.BaseUnitTest;
+import org.savantbuild.dep.PathTools;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the RemoteNegativeCache.
+ *
+ * @author Brian Pontarelli
+ */
+public class RemoteNegativeCacheTest extends BaseUnitTest {
+  private static final String RepositoryURL = "https://repo.example.com/maven2";
+
+  @Test
+  public void expires() throws Exception {
+    Path directory = projectDir.resolve("build/test/negative");
+    PathTools.prune(directory);
+
+    RemoteNegativeCache cache = new RemoteNegativeCache(directory, Duration.ofHours(1));
+    cache.recordMissing(RepositoryURL, "org/example/foo/1.0.0/foo-1.0.0.jar.amd");
+
+    // Age the marker beyond the TTL
+    try (Stream<Path> files = Files.walk(directory)) {
+      Path marker = files.filter(Files::isRegularFile).findFirst().orElseThrow();
+      Files.setLastModifiedTime(marker, FileTime.fromMillis(System.currentTimeMillis() - Duration.ofHours(2).toMillis()));
+    }
+
+    RemoteNegativeCache reloaded = new RemoteNegativeCache(directory, Duration.ofHours(1));
+    assertFalse(reloaded.isMissing(RepositoryURL, "org/example/foo/1.0.0/foo-1.0.0.jar.amd"));
+
+    // The in-memory entry expires too
+    RemoteNegativeCache expired = new RemoteNegativeCache(null, Duration.ZERO);
+    expired.recordMissing(RepositoryURL, "org/example/foo/1.0.0/foo-1.0.0.jar.amd");
+    assertFalse(expired.isMissing(RepositoryURL, "org/example/foo/1.0.0/foo-1.0.0.jar.amd"));
+  }
+
+  @Test
+  public void persists() throws Exception {
+    Path directory = projectDir.resolve("build/test/negative");
+    PathTools.prune(directory);
+
+    RemoteNegativeCache cache = new RemoteNegativeCache(directory, Duration.ofHours(1));
+    assertFalse(cache.isMissing(RepositoryURL, "org/example/foo/1.0.0/foo-1.0.0.jar.amd"));
+    cache.recordMissing(RepositoryURL, "org/example/foo/1.0.0/foo-1.0.0.jar.amd");
+    assertTrue(cache.isMissing(RepositoryURL, "org/example/foo/1.0.0/foo-1.0.0.jar.amd"));
+
+    // A new cache (i.e. the next build) loads the entry from disk, but it is keyed by the RepositoryURL and the path
+    RemoteNegativeCache reloaded = new RemoteNegativeCache(directory, Duration.ofHours(1));
+    assertTrue(reloaded.isMissing(RepositoryURL, "org/example/foo/1.0.0/foo-1.0.0.jar.amd"));
+    assertFalse(reloaded.isMissing(RepositoryURL, "org/example/foo/1.0.0/foo-1.0.0.jar"));
+    assertFalse(reloaded.isMissing("https://other.example.com", "org/example/foo/1.0.0/foo-1.0.0.jar.amd"));
+
+    reloaded.clear();
+    assertFalse(new RemoteNegativeCache(directory, Duration.ofHours(1)).isMissing(RepositoryURL, "org/example/foo/1.0.0/foo-1.0.0.jar.amd"));
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2025, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package org.savantbuild.dep.workflow.process;
+
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.Set;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests the RetryPolicy.
+ *
+ * @author Brian Pontarelli
+ */
+public class RetryPolicyTest {
+  private final URI uri = URI.create("http://localhost:7042/test");
+
+  @Test
+  public void backoff() {
+    RetryPolicy policy = new RetryPolicy(10, Duration.ofMillis(100), Duration.ofMillis(1_000), Duration.ofSeconds(30), Set.of(503));
+    IOException failure = new IOException("Connection reset");
+    for (int i = 0; i < 100; i++) {
+      long first = policy.backoff(1, failure).toMillis();
+      assertTrue(first >= 50 && first <= 100, "" + first);
+
+      long third = policy.backoff(3, failure).toMillis();
+      assertTrue(third >= 200 && third <= 400, "" + third);
+
+      long capped = policy.backoff(9, failure).toMillis();
+      assertTrue(capped >= 500 && capped <= 1_000, "" + capped);
+    }
+
+    // Retry-After wins, even past the maximum backoff
+    assertEquals(policy.backoff(1, new HttpStatusException(uri, 503, Duration.ofMillis(10))), Duration.ofMillis(10));
+    assertEquals(policy.backoff(1, new HttpStatusException(uri, 503, Duration.ofSeconds(120))), Duration.ofSeconds(120));
+  }
+
+  @Test
+  public void isRetryable() {
+    RetryPolicy policy = RetryPolicy.Default;
+    assertTrue(policy.isRetryable(new SocketException("Connection reset")));
+    assertTrue(policy.isRetryable(new ConnectException("Connection refused")));
+    assertTrue(policy.isRetryable(new SocketTimeoutException("Read timed out")));
+    assertTrue(policy.isRetryable(new HttpTimeoutException("request timed out")));
+    assertTrue(policy.isRetryable(new EOFException("EOF reached while reading")));
+    assertTrue(policy.isRetryable(new IOException("Unable to download a chunk", new SocketException("Connection reset"))));
+    assertTrue(policy.isRetryable(new IOException("Connection reset")));
+    assertTrue(policy.isRetryable(new IOException("HTTP/1.1 header parser received no bytes")));
+    assertTrue(policy.isRetryable(new IOException("Received RST_STREAM: Stream cancelled")));
+    assertTrue(policy.isRetryable(new IOException("Stream closed")));
+    assertTrue(policy.isRetryable(new HttpStatusException(uri, 429, null)));
+    assertTrue(policy.isRetryable(new HttpStatusException(uri, 502, null)));
+    assertTrue(policy.isRetryable(new HttpStatusException(uri, 503, null)));
+    assertFalse(policy.isRetryable(new HttpStatusException(uri, 500, null)));
+    assertFalse(policy.isRetryable(new HttpStatusException(uri, 403, null)));
+    assertFalse(policy.isRetryable(new IOException("Unable to download a chunk", new HttpStatusException(uri, 403, null))));
+    assertFalse(policy.isRetryable(new FileNotFoundException("missing")));
+    assertFalse(policy.isRetryable(new InterruptedIOException("interrupted")));
+    assertFalse(policy.isRetryable(new ClosedByInterruptException()));
+    assertFalse(policy.isRetryable(new NoSuchFileException("/tmp/missing")));
+    assertFalse(policy.isRetryable(new AccessDeniedException("/tmp/denied")));
+    assertFalse(policy.isRetryable(new FileSystemException("/tmp/full", null, "No space left on device")));
+    assertFalse(policy.isRetryable(new IOException("Unable to write", new FileSystemException("/tmp/full"))));
+  }
+}
@@ -15,8 +15,25 @@
  */
 package org.savantbuild.dep.workflow.process;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import org.savantbuild.dep.BaseUnitTest;
 import org.savantbuild.dep.PathTools;
@@ -32,8 +49,13 @@ import org.testng.annotations.Test;
 
 import com.sun.net.httpserver.HttpServer;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 /**
  * This class tests the URLProcess class.
@@ -43,6 +65,21 @@ import static org.testng.Assert.assertNull;
 public class URLProcessTest extends BaseUnitTest {
   private HttpServer server;
 
+  @Test
+  public void authentication() throws Exception {
+    PathTools.prune(projectDir.resolve("build/test/cache"));
+    server.stop(0);
+    server = makeFileServer("user", "pass");
+
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:leaf1:leaf1:1.0.0:jar", License.Licenses.get("ApacheV2_0"));
+    URLProcess ufp = new URLProcess(output, "http://localhost:7042/test-deps/savant", "user", "pass",
+        new HttpTransport(Duration.ofSeconds(5), Duration.ofSeconds(5)));
+    ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
+    FetchResult fetchResult = ufp.fetch(item, new PublishWorkflow(new CacheProcess(output, cache.toString(), null, null)));
+    assertNotNull(fetchResult);
+    assertEquals((Object) fetchResult.file().toAbsolutePath(), projectDir.resolve("build/test/cache/org/savantbuild/test/leaf1/1.0.0/leaf1-1.0.0.jar").toAbsolutePath());
+  }
+
   @Test(dataProvider = "fetchData")
   public void fetch(String url, String name, String version, String result) throws Exception {
     PathTools.prune(projectDir.resolve("build/test/cache"));
@@ -56,6 +93,23 @@ public class URLProcessTest extends BaseUnitTest {
     assertEquals((Object) fetchResult.file().toAbsolutePath(), Paths.get(result).toAbsolutePath());
   }
 
+  @Test(dataProvider = "urls")
+  public void fetchAlternative(String url) throws Exception {
+    PathTools.prune(projectDir.resolve("build/test/cache"));
+
+    URLProcess ufp = new URLProcess(output, url, null, null);
+    ResolvableItem item = new ResolvableItem("org.savantbuild.test", "leaf1", "leaf1", "1.0.0", "leaf1-1.0.0.missing", List.of("leaf1-1.0.0.other", "leaf1-1.0.0.jar"));
+    FetchResult fetchResult = ufp.fetch(item, new PublishWorkflow(new CacheProcess(output, cache.toString(), null, null)));
+    assertNotNull(fetchResult);
+    assertEquals(fetchResult.item().item, "leaf1-1.0.0.jar");
+    assertEquals((Object) fetchResult.file().toAbsolutePath(), projectDir.resolve("build/test/cache/org/savantbuild/test/leaf1/1.0.0/leaf1-1.0.0.jar").toAbsolutePath());
+
+    // The candidates were requested at the same time, but only the one that was found is left in the cache
+    try (Stream<Path> files = Files.list(fetchResult.file().getParent())) {
+      assertEquals(files.map((file) -> file.getFileName().toString()).sorted().toList(), List.of("leaf1-1.0.0.jar", "leaf1-1.0.0.jar.md5"));
+    }
+  }
+
   @DataProvider(name = "fetchData")
   public Object[][] fetchData() {
     return new Object[][]{
@@ -112,6 +166,9 @@ public class URLProcessTest extends BaseUnitTest {
     ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
     FetchResult result = ufp.fetch(item, pw);
     assertNull(result);
+
+    // The probe doesn't leave an empty directory in the cache
+    assertFalse(Files.exists(cache.resolve("org/savantbuild/test/missing-item")));
   }
 
   @Test
@@ -130,6 +187,210 @@ public class URLProcessTest extends BaseUnitTest {
     assertNull(result);
   }
 
+  @Test
+  public void negativeCache() throws Exception {
+    PathTools.prune(projectDir.resolve("build/test/cache"));
+
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:missing-item:missing-item:1.0.0:jar", License.Licenses.get("ApacheV2_0"));
+    ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
+    PublishWorkflow publishWorkflow = new PublishWorkflow(new CacheProcess(output, cache.toString(), null, null));
+    RemoteNegativeCache negativeCache = new RemoteNegativeCache(null, Duration.ofHours(1));
+    String url = "http://localhost:7042/test-deps/savant";
+    URLProcess ufp = new URLProcess(output, url, null, null, HttpTransport.forURL(url), RetryPolicy.None, negativeCache);
+    assertNull(ufp.fetch(item, publishWorkflow));
+    // The MD5 is checked first and the item request might still be running when the fetch returns
+    assertTrue(negativeCache.isMissing(url, "org/savantbuild/test/missing-item/1.0.0/missing-item-1.0.0.jar.md5"));
+
+    // With the server down, the known missing files aren't requested
+    server.stop(0);
+    assertNull(ufp.fetch(item, publishWorkflow));
+    server = makeFileServer(null, null);
+
+    // Other client errors fail the fetch and aren't remembered as missing files
+    HttpServer forbidden = HttpServer.create(new InetSocketAddress(7043), 0);
+    forbidden.createContext("/", (httpExchange) -> {
+      httpExchange.getRequestBody().close();
+      httpExchange.sendResponseHeaders(403, -1);
+      httpExchange.close();
+    });
+    forbidden.start();
+
+    try {
+      String forbiddenURL = "http://localhost:7043/test-deps/savant";
+      ufp = new URLProcess(output, forbiddenURL, null, null, HttpTransport.forURL(forbiddenURL), RetryPolicy.None, negativeCache);
+      try {
+        ufp.fetch(item, publishWorkflow);
+        fail("Should have failed");
+      } catch (ProcessFailureException e) {
+        assertTrue(e.getCause() instanceof HttpStatusException hse && hse.statusCode == 403);
+      }
+
+      assertFalse(negativeCache.isMissing(forbiddenURL, "org/savantbuild/test/missing-item/1.0.0/missing-item-1.0.0.jar.md5"));
+    } finally {
+      forbidden.stop(0);
+    }
+  }
+
+  @Test
+  public void resumeAcrossAttempts() throws Exception {
+    PathTools.prune(projectDir.resolve("build/test/cache"));
+
+    // The first attempt is dropped half way through and can't be resumed right away because the range request fails, so
+    // the retry has to continue the partial file. The HttpServer doesn't drop connections, so this uses a raw socket
+    byte[] jar = Files.readAllBytes(projectDir.resolve("test-deps/savant/org/savantbuild/test/leaf1/1.0.0/leaf1-1.0.0.jar"));
+    byte[] md5 = Files.readAllBytes(projectDir.resolve("test-deps/savant/org/savantbuild/test/leaf1/1.0.0/leaf1-1.0.0.jar.md5"));
+    List<String> requests = new CopyOnWriteArrayList<>();
+    AtomicInteger rangeRequests = new AtomicInteger();
+    try (ServerSocket socket = new ServerSocket(7048)) {
+      Thread thread = new Thread(() -> {
+        try {
+          while (true) {
+            Socket connection = socket.accept();
+            new Thread(() -> {
+              try (connection) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.ISO_8859_1));
+                String path = reader.readLine().split(" ")[1];
+                String range = null;
+                String ifRange = null;
+                String line;
+                while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                  if (line.toLowerCase().startsWith("range:")) {
+                    range = line.substring(6).trim();
+                  } else if (line.toLowerCase().startsWith("if-range:")) {
+                    ifRange = line.substring(9).trim();
+                  }
+                }
+
+                OutputStream os = connection.getOutputStream();
+                if (path.endsWith(".md5")) {
+                  os.write(("HTTP/1.1 200 OK\r\nConnection: close\r\nContent-Length: " + md5.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                  os.write(md5);
+                  os.flush();
+                  return;
+                }
+
+                requests.add(range + " " + ifRange);
+                if (range == null) {
+                  os.write(("HTTP/1.1 200 OK\r\nConnection: close\r\nAccept-Ranges: bytes\r\nETag: \"v1\"\r\nContent-Length: " + jar.length + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                  os.write(jar, 0, jar.length / 2);
+                  os.flush();
+                  Thread.sleep(100);
+                } else if (rangeRequests.incrementAndGet() == 1) {
+                  os.write("HTTP/1.1 503 Service Unavailable\r\nConnection: close\r\nContent-Length: 0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                  os.flush();
+                } else {
+                  int start = Integer.parseInt(range.substring(6, range.indexOf('-')));
+                  os.write(("HTTP/1.1 206 Partial Content\r\nConnection: close\r\nAccept-Ranges: bytes\r\nETag: \"v1\"\r\nContent-Range: bytes " + start + "-" + (jar.length - 1) + "/" + jar.length +
+                      "\r\nContent-Length: " + (jar.length - start) + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                  os.write(jar, start, jar.length - start);
+                  os.flush();
+                }
+              } catch (IOException | InterruptedException e) {
+                // The connection was closed by the client
+              }
+            }).start();
+          }
+        } catch (IOException e) {
+          // The socket was closed by the test
+        }
+      });
+      thread.start();
+
+      Artifact artifact = new ReifiedArtifact("org.savantbuild.test:leaf1:leaf1:1.0.0:jar", License.Licenses.get("ApacheV2_0"));
+      ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
+      PublishWorkflow publishWorkflow = new PublishWorkflow(new CacheProcess(output, cache.toString(), null, null));
+      RetryPolicy retryPolicy = new RetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(10), Duration.ofSeconds(10), RetryPolicy.DefaultRetryableStatusCodes);
+      String url = "http://localhost:7048/test-deps/savant";
+      URLProcess ufp = new URLProcess(output, url, null, null, new HttpTransport(Duration.ofSeconds(5), Duration.ofSeconds(5), 0, 1), retryPolicy);
+      FetchResult fetchResult = ufp.fetch(item, publishWorkflow);
+      assertNotNull(fetchResult);
+      assertEquals(Files.readAllBytes(fetchResult.file()), jar);
+
+      // The first attempt, its failed resume and the retry that continues the partial file
+      assertEquals(requests.size(), 3, requests.toString());
+      assertEquals(requests.get(0), "null null");
+      assertTrue(requests.get(2).matches("bytes=[1-9][0-9]*- \"v1\""), requests.toString());
+    }
+  }
+
+  @Test
+  public void retry() throws Exception {
+    PathTools.prune(projectDir.resolve("build/test/cache"));
+
+    // Every file fails with a 503 the first time it is requested
+    Set<String> failed = ConcurrentHashMap.newKeySet();
+    AtomicInteger requests = new AtomicInteger();
+    AtomicReference<String> retryAfter = new AtomicReference<>("0");
+    HttpServer flaky = HttpServer.create(new InetSocketAddress(7043), 0);
+    flaky.createContext("/", (httpExchange) -> {
+      requests.incrementAndGet();
+      httpExchange.getRequestBody().close();
+
+      String path = httpExchange.getRequestURI().getPath();
+      Path file = projectDir.resolve(path.substring(1));
+      if (failed.add(path)) {
+        httpExchange.getResponseHeaders().add("Retry-After", retryAfter.get());
+        httpExchange.sendResponseHeaders(503, -1);
+      } else if (Files.isRegularFile(file)) {
+        httpExchange.sendResponseHeaders(200, Files.size(file));
+        httpExchange.getResponseBody().write(Files.readAllBytes(file));
+      } else {
+        httpExchange.sendResponseHeaders(404, -1);
+      }
+
+      httpExchange.close();
+    });
+    flaky.start();
+
+    try {
+      Artifact artifact = new ReifiedArtifact("org.savantbuild.test:leaf1:leaf1:1.0.0:jar", License.Licenses.get("ApacheV2_0"));
+      ResolvableItem item = new ResolvableItem(artifact.id.group, artifact.id.project, artifact.id.name, artifact.version.toString(), artifact.getArtifactFile());
+      PublishWorkflow publishWorkflow = new PublishWorkflow(new CacheProcess(output, cache.toString(), null, null));
+
+      long start = System.currentTimeMillis();
+      URLProcess ufp = new URLProcess(output, "http://localhost:7043/test-deps/savant", null, null);
+      FetchResult fetchResult = ufp.fetch(item, publishWorkflow);
+      assertNotNull(fetchResult);
+      assertEquals(requests.get(), 4);
+      assertTrue(System.currentTimeMillis() - start < 5_000);
+
+      // Without retries the failure is fatal
+      failed.clear();
+      ufp = new URLProcess(output, "http://localhost:7043/test-deps/savant", null, null, HttpTransport.forURL("http://localhost:7043/test-deps/savant"), RetryPolicy.None);
+      try {
+        ufp.fetch(item, publishWorkflow);
+        fail("Should have failed");
+      } catch (ProcessFailureException e) {
+        assertTrue(e.getCause() instanceof HttpStatusException);
+      }
+
+      // A Retry-After that goes past the deadline fails right away instead of retrying early
+      failed.clear();
+      retryAfter.set("3600");
+      start = System.currentTimeMillis();
+      ufp = new URLProcess(output, "http://localhost:7043/test-deps/savant", null, null);
+      try {
+        ufp.fetch(item, publishWorkflow);
+        fail("Should have failed");
+      } catch (ProcessFailureException e) {
+        assertTrue(e.getCause() instanceof HttpStatusException hse && hse.retryAfter.equals(Duration.ofHours(1)));
+      }
+      assertTrue(System.currentTimeMillis() - start < 5_000);
+    } finally {
+      flaky.stop(0);
+    }
+  }
+
+  @Test
+  public void sharedTransport() {
+    URLProcess first = new URLProcess(output, "http://localhost:7042/test-deps/savant", null, null);
+    URLProcess second = new MavenProcess(output, "http://localhost:7042/test-deps/savant", null, null);
+    URLProcess other = new URLProcess(output, "http://localhost:7042/test-deps/maven", null, null);
+    assertSame(first.transport, second.transport);
+    assertNotSame(first.transport, other.transport);
+    assertEquals(first.transport.connectTimeout, HttpTransport.DefaultConnectTimeout);
+  }
+
   @BeforeMethod
   public void setupFileServer() throws Exception {
     server = makeFileServer(null, null);
@@ -19,8 +19,14 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.savantbuild.dep.BaseUnitTest;
 import org.savantbuild.dep.PathTools;
@@ -31,6 +37,8 @@ import org.savantbuild.dep.domain.Dependencies;
 import org.savantbuild.dep.domain.DependencyGroup;
 import org.savantbuild.dep.domain.License;
 import org.savantbuild.dep.domain.ReifiedArtifact;
+import org.savantbuild.dep.domain.ResolvableItem;
+import org.savantbuild.dep.workflow.ArtifactMissingException;
 import org.savantbuild.dep.workflow.FetchWorkflow;
 import org.savantbuild.dep.workflow.PublishWorkflow;
 import org.savantbuild.dep.workflow.Workflow;
@@ -40,7 +48,9 @@ import org.testng.annotations.Test;
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 /**
  * Tests the Workflow for fetching artifacts, specifically the Maven handling.
@@ -48,6 +58,100 @@ import static org.testng.Assert.assertTrue;
  * @author Brian Pontarelli
  */
 public class WorkflowTest extends BaseUnitTest {
+  @Test
+  public void fetchAsync() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor((runnable) -> new Thread(runnable, "fetch-async-test"));
+    try {
+      // Records the thread that the Workflow fetches on and the executor that it passes to the processes. The fetch
+      // executor only has one thread, so the downloads must run on the download executor
+      CacheProcess cache = new CacheProcess(output, projectDir.resolve("test-deps/savant").toString(), null, null);
+      List<String> threads = Collections.synchronizedList(new ArrayList<>());
+      List<Executor> executors = Collections.synchronizedList(new ArrayList<>());
+      Process recording = new Process() {
+        @Override
+        public FetchResult fetch(ResolvableItem item, PublishWorkflow publishWorkflow) {
+          throw new AssertionError("The Workflow didn't pass its download executor");
+        }
+
+        @Override
+        public FetchResult fetch(ResolvableItem item, PublishWorkflow publishWorkflow, Executor executor) {
+          threads.add(Thread.currentThread().getName());
+          executors.add(executor);
+          return cache.fetch(item, publishWorkflow, executor);
+        }
+
+        @Override
+        public Path publish(FetchResult fetchResult) {
+          return null;
+        }
+      };
+
+      Workflow workflow = new Workflow(new FetchWorkflow(output, recording), new PublishWorkflow(), output, executor);
+      Artifact artifact = new ReifiedArtifact("org.savantbuild.test:leaf1:1.0.0", License.Licenses.get("Apache-2.0"));
+      Path file = workflow.fetchArtifactAsync(artifact).get();
+      ArtifactMetaData amd = workflow.fetchMetaDataAsync(artifact).get();
+      assertNull(workflow.fetchSourceAsync(artifact).get());
+      assertFalse(threads.isEmpty());
+      assertEquals(Set.copyOf(threads), Set.of("fetch-async-test"));
+      assertEquals(Set.copyOf(executors), Set.of(workflow.downloadExecutor));
+
+      assertEquals(file, workflow.fetchArtifact(artifact));
+      assertEquals(amd.licenses, workflow.fetchMetaData(artifact).licenses);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void fetchAsyncFailure() throws Exception {
+    Workflow workflow = new Workflow(
+        new FetchWorkflow(
+            output,
+            new CacheProcess(output, projectDir.resolve("test-deps/savant").toString(), null, null)
+        ),
+        new PublishWorkflow(),
+        output
+    );
+
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:missing:1.0.0", License.Licenses.get("Apache-2.0"));
+    try {
+      workflow.fetchArtifactAsync(artifact).get();
+      fail("Should have failed");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof ArtifactMissingException);
+    }
+
+    // The cache is only read from, so it isn't locked
+    assertFalse(Files.exists(projectDir.resolve("test-deps/savant").resolve(CacheLocks.FileName)));
+  }
+
+  @Test
+  public void fetchMetaDataBinary() throws Exception {
+    Path cache = projectDir.resolve("build/test/binary-cache");
+    PathTools.prune(cache);
+    Path dir = cache.resolve("org/savantbuild/test/leaf1/1.0.0");
+    Files.createDirectories(dir);
+    for (String file : List.of("leaf1-1.0.0.jar.amd", "leaf1-1.0.0.jar.amd.md5")) {
+      Files.copy(projectDir.resolve("test-deps/savant/org/savantbuild/test/leaf1/1.0.0").resolve(file), dir.resolve(file));
+    }
+
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:leaf1:1.0.0", License.Licenses.get("Apache-2.0"));
+    CacheProcess cacheProcess = new CacheProcess(output, cache.toString(), null, null);
+    Workflow workflow = new Workflow(new FetchWorkflow(output, cacheProcess), new PublishWorkflow(cacheProcess), output);
+    ArtifactMetaData amd = workflow.fetchMetaData(artifact);
+    assertTrue(Files.isRegularFile(dir.resolve("leaf1-1.0.0.jar.amd.bin")));
+
+    // A new Workflow doesn't share the in-memory cache, so this loads the binary file
+    workflow = new Workflow(new FetchWorkflow(output, cacheProcess), new PublishWorkflow(cacheProcess), output);
+    assertEquals(workflow.fetchMetaData(artifact).licenses, amd.licenses);
+
+    // Caches that the workflow doesn't publish to are read-only
+    Path fixtures = projectDir.resolve("test-deps/savant");
+    workflow = new Workflow(new FetchWorkflow(output, new CacheProcess(output, fixtures.toString(), null, null)), new PublishWorkflow(), output);
+    workflow.fetchMetaData(artifact);
+    assertFalse(Files.exists(fixtures.resolve("org/savantbuild/test/leaf1/1.0.0/leaf1-1.0.0.jar.amd.bin")));
+  }
+
   @Test
   public void fetchSource_empty_publish_workflow() throws Exception {
     // arrange — publish workflow is empty, so fetched files won't be cached
@@ -76,6 +180,31 @@ public class WorkflowTest extends BaseUnitTest {
     assertNotNull(sourcePath);
   }
 
+  @Test
+  public void fetchSource_missing() throws Exception {
+    Path cache = projectDir.resolve("build/test/cache");
+    PathTools.prune(cache);
+
+    Workflow workflow = new Workflow(
+        new FetchWorkflow(output, new CacheProcess(output, cache.toString(), null, null)),
+        new PublishWorkflow(new CacheProcess(output, cache.toString(), null, null)),
+        output
+    );
+
+    Artifact artifact = new ReifiedArtifact("org.savantbuild.test:missing-source:1.0.0", License.Licenses.get("Apache-2.0"));
+    assertNull(workflow.fetchSource(artifact));
+
+    // The negative marker is written directly as an empty file
+    Path marker = cache.resolve("org/savantbuild/test/missing-source/1.0.0/missing-source-1.0.0-src.jar.neg");
+    assertTrue(Files.isRegularFile(marker));
+    assertEquals(Files.size(marker), 0);
+
+    // The Workflow remembers the missing source, so the cache isn't checked again
+    Files.delete(marker);
+    assertNull(workflow.fetchSource(artifact));
+    assertFalse(Files.exists(marker));
+  }
+
   @Test
   public void fetchSource_publish_source_file_exists() throws Exception {
     // arrange
@@ -25,6 +25,7 @@ import java.util.Map;
 
 import org.savantbuild.dep.ArtifactTools;
 import org.savantbuild.dep.BaseUnitTest;
+import org.savantbuild.dep.PathTools;
 import org.savantbuild.dep.domain.Artifact;
 import org.savantbuild.dep.domain.ArtifactID;
 import org.savantbuild.dep.domain.ArtifactMetaData;
@@ -36,6 +37,7 @@ import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -44,6 +46,48 @@ import static org.testng.Assert.assertTrue;
  * @author Brian Pontarelli
  */
 public class ArtifactToolsTest extends BaseUnitTest {
+  @Test
+  public void binary() throws Exception {
+    Path dir = projectDir.resolve("build/test/binary-amd");
+    PathTools.prune(dir);
+    Files.createDirectories(dir);
+    Path source = dir.resolve("amd.xml");
+    Files.copy(projectDir.resolve("src/test/resources/amd.xml"), source);
+
+    Map<String, Version> mappings = new HashMap<>();
+    mappings.put("org.example.test:badver:1.0.0.Final", new Version("1.0.0"));
+    mappings.put("org.example.test:short-badver:1.0", new Version("1.0.0"));
+    ArtifactMetaData expected = ArtifactTools.parseArtifactMetaData(source, mappings);
+
+    assertNull(ArtifactTools.readBinaryMetaData(source, "fingerprint"));
+    ArtifactTools.writeBinaryMetaData(expected, source, "fingerprint");
+    assertTrue(Files.isRegularFile(dir.resolve("amd.xml.bin")));
+
+    ArtifactMetaData actual = ArtifactTools.readBinaryMetaData(source, "fingerprint");
+    assertEquals(actual, expected);
+    assertEquals(actual.licenses.get(1).text, "Override the BSD license.");
+    expected.dependencies.groups.forEach((name, group) -> {
+      for (int i = 0; i < group.dependencies.size(); i++) {
+        Artifact expectedArtifact = group.dependencies.get(i);
+        Artifact actualArtifact = actual.dependencies.groups.get(name).dependencies.get(i);
+        assertEquals(actualArtifact.nonSemanticVersion, expectedArtifact.nonSemanticVersion);
+        assertEquals(actualArtifact.exclusions, expectedArtifact.exclusions);
+      }
+    });
+
+    // Different mappings
+    assertNull(ArtifactTools.readBinaryMetaData(source, "other"));
+
+    // Corrupt
+    Files.write(dir.resolve("amd.xml.bin"), new byte[]{1, 2, 3});
+    assertNull(ArtifactTools.readBinaryMetaData(source, "fingerprint"));
+
+    // Source changed
+    ArtifactTools.writeBinaryMetaData(expected, source, "fingerprint");
+    Files.writeString(source, Files.readString(source) + "\n");
+    assertNull(ArtifactTools.readBinaryMetaData(source, "fingerprint"));
+  }
+
   @Test
   public void parse() throws Exception {
     Map<String, Version> mappings = new HashMap<>();